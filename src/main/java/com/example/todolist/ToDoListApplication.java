@@ -1,13 +1,35 @@
 package com.example.todolist;
 
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.config.ExecutionProperties;
+import com.example.todolist.config.PageCacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.config.StorageGcProperties;
 import com.example.todolist.config.StorageProperties;
+import com.example.todolist.config.TaskBatchProperties;
+import com.example.todolist.config.TaskEventProperties;
+import com.example.todolist.config.TaskPageProperties;
+import com.example.todolist.config.UploadSessionProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 @EnableConfigurationProperties({
-		StorageProperties.class
+		StorageProperties.class,
+		TaskPageProperties.class,
+		CacheProperties.class,
+		TaskBatchProperties.class,
+		TaskEventProperties.class,
+		ExecutionProperties.class,
+		UploadSessionProperties.class,
+		StorageGcProperties.class,
+		PdfConversionProperties.class,
+		PageCacheProperties.class,
+		PageRenderProperties.class
 })
 public class ToDoListApplication {
 
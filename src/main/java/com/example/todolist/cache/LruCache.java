@@ -0,0 +1,122 @@
+package com.example.todolist.cache;
+
+import com.example.todolist.model.CacheStats;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ограниченный по размеру кэш с вытеснением давно не использованных записей (LRU) и счетчиками попаданий.
+ * Если задано время жизни, устаревшие записи считаются промахом и загружаются заново.
+ * Значение загружается вне блокировки; если за время загрузки кэш был инвалидирован, загруженное значение
+ * возвращается вызывающему, но в кэш не попадает, чтобы не закэшировать устаревшие данные.
+ *
+ * @param <K> Тип ключа.
+ * @param <V> Тип значения.
+ */
+public class LruCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Увеличивается при каждой инвалидации, позволяет отбросить результат загрузки, начатой до нее
+    private long generation;
+
+    public LruCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize Максимальное количество записей.
+     * @param ttl Время жизни записи или null, если записи не устаревают.
+     */
+    public LruCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Возвращает значение из кэша или загружает его через loader. Значения null не кэшируются.
+     *
+     * @param key Ключ значения.
+     * @param loader Функция загрузки значения при промахе.
+     * @return Значение из кэша или загруженное значение.
+     */
+    public V get(K key, Supplier<V> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry<V> cached = entries.get(key);
+            if (cached != null) {
+                if (!isExpired(cached)) {
+                    hits.incrementAndGet();
+                    return cached.value();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+
+        misses.incrementAndGet();
+        V loaded = loader.get();
+        if (loaded != null) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    long expiresAt = ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos;
+                    entries.put(key, new Entry<>(loaded, expiresAt));
+                }
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStats stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long total = hitCount + missCount;
+        double hitRatio = total == 0 ? 0.0 : (double) hitCount / total;
+        return new CacheStats(hitCount, missCount, evictions.get(), invalidations.get(), size(), hitRatio);
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlNanos != 0 && System.nanoTime() - entry.expiresAt() > 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "cache")
+public class CacheProperties {
+    private int referenceMaxSize = 1000;
+    private int taskMaxSize = 10000;
+    private Duration taskTtl = Duration.ofMinutes(5);
+    private int fileMaxSize = 10000;
+    private Duration fileTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,16 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "task.execution")
+public class ExecutionProperties {
+    private int renderThreads = Runtime.getRuntime().availableProcessors();
+    // Сколько задач может ждать свободного потока отрисовки; при переполнении новые запросы отклоняются
+    private int renderQueueSize = 64;
+    // Сколько потоков отрисовки одновременно работают над одним документом; 1 - страницы отрисовываются по очереди
+    private int renderParallelism = Runtime.getRuntime().availableProcessors();
+    private int encodeThreads = Runtime.getRuntime().availableProcessors();
+}
@@ -0,0 +1,30 @@
+package com.example.todolist.config;
+
+import com.example.todolist.servicetask.BlobStore;
+import jakarta.servlet.MultipartConfigElement;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Потоковый прием multipart-загрузок. Контейнер записывает части запроса, превышающие
+ * spring.servlet.multipart.file-size-threshold, во временную директорию хранилища, а не в свою временную
+ * директорию на другом разделе. Поэтому {@link com.example.todolist.servicetask.FileSystemStorageService}
+ * переносит записанную часть в хранилище по хэшу переименованием, и содержимое файла пишется на диск один раз.
+ * Отключается параметром file.upload.streaming-multipart=false; тогда части пишутся в директорию контейнера
+ * и копируются в хранилище.
+ */
+@Configuration
+@ConditionalOnProperty(name = "file.upload.streaming-multipart", havingValue = "true", matchIfMissing = true)
+public class MultipartConfig {
+
+    @Bean
+    public MultipartConfigElement multipartConfigElement(MultipartProperties multipartProperties,
+                                                         BlobStore blobStore) {
+        // Лимиты и порог остаются из spring.servlet.multipart.*, меняется только директория
+        MultipartConfigElement defaults = multipartProperties.createMultipartConfig();
+        return new MultipartConfigElement(blobStore.tempDirectory().toString(), defaults.getMaxFileSize(),
+                defaults.getMaxRequestSize(), defaults.getFileSizeThreshold());
+    }
+}
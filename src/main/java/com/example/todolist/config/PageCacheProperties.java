@@ -0,0 +1,15 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pdf.page-cache")
+public class PageCacheProperties {
+    private DataSize memoryMaxSize = DataSize.ofMegabytes(64);
+    // Страницы крупнее этого размера отдаются с диска и не вытесняют из памяти много мелких страниц
+    private DataSize memoryMaxEntrySize = DataSize.ofMegabytes(4);
+    private DataSize diskMaxSize = DataSize.ofGigabytes(1);
+}
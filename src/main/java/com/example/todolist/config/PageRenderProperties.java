@@ -0,0 +1,72 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pdf.render")
+public class PageRenderProperties {
+
+    // Уровни качества изображений страниц, из которых клиент выбирает при скачивании
+    private Map<String, Tier> tiers = defaultTiers();
+
+    // Уровень, в котором страницы сохраняются как файлы задачи и отдаются, если клиент уровень не указал
+    private String defaultTier = "full";
+
+    // Общий для всех отрисовок предел памяти под несжатые изображения страниц; страница, которой не хватает
+    // даже всего бюджета, не отрисовывается
+    private DataSize memoryBudget = DataSize.ofMegabytes(512);
+
+    // Предел памяти под разобранные копии документов, которые держат потоки отрисовки
+    private DataSize documentMemoryBudget = DataSize.ofMegabytes(512);
+
+    // Во сколько раз разобранный документ больше своего файла; по этой оценке копия резервирует память до загрузки
+    private int documentMemoryFactor = 4;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Tier {
+        private int dpi;
+        // Неизвестный формат (например, webp) не привязывается, и приложение не запускается, а не отрисовывает PNG
+        private Format format = Format.PNG;
+        // Качество JPEG от 0 до 1; для PNG не используется
+        private float quality = 0.85f;
+
+        public boolean isJpeg() {
+            return format == Format.JPEG;
+        }
+
+        public String extension() {
+            return isJpeg() ? "jpg" : "png";
+        }
+
+        public String contentType() {
+            return isJpeg() ? "image/jpeg" : "image/png";
+        }
+
+        // Параметры отрисовки в имени изображения: после изменения настроек уровня страницы отрисовываются заново
+        public String fingerprint() {
+            return dpi + extension() + (isJpeg() ? "q" + Math.round(quality * 100) : "");
+        }
+    }
+
+    public enum Format {
+        PNG,
+        JPEG
+    }
+
+    private static Map<String, Tier> defaultTiers() {
+        Map<String, Tier> tiers = new LinkedHashMap<>();
+        tiers.put("thumbnail", new Tier(36, Format.JPEG, 0.7f));
+        tiers.put("preview", new Tier(96, Format.JPEG, 0.8f));
+        tiers.put("full", new Tier(150, Format.PNG, 0.85f));
+        return tiers;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "pdf.conversion")
+public class PdfConversionProperties {
+    private int workers = 2;
+    private int maxAttempts = 3;
+    private Duration retryDelay = Duration.ofSeconds(30);
+    private Duration pollInterval = Duration.ofSeconds(5);
+    private Duration stallTimeout = Duration.ofMinutes(10);
+    // Обработчик отмечается с этим интервалом, пока отрисовывает страницу; интервал должен быть меньше stallTimeout
+    private Duration heartbeatInterval = Duration.ofMinutes(1);
+    // При загрузке определяется только число страниц, страница отрисовывается при первом обращении к ней
+    private boolean lazy = false;
+}
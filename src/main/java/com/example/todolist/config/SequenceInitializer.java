@@ -0,0 +1,48 @@
+package com.example.todolist.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Выравнивает последовательности идентификаторов задач и файлов по уже существующим строкам. Таблицы, созданные
+ * до перехода с IDENTITY на последовательности, содержат идентификаторы, которые последовательность иначе выдала бы
+ * повторно. Значение сдвигается с запасом на размер блока, который Hibernate резервирует за одно обращение.
+ * Выравнивание выполняется после создания всех бинов, но до запуска веб-сервера, поэтому первые запросы
+ * уже получают идентификаторы из выровненных последовательностей. Запрос написан для PostgreSQL; для других
+ * баз выравнивание пропускается.
+ */
+@Component
+public class SequenceInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceInitializer.class);
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            log.info("Skipping id sequence alignment: not supported for {}", database);
+            return;
+        }
+        alignSequence("task_seq", "task");
+        alignSequence("file_seq", "file");
+    }
+
+    private void alignSequence(String sequence, String table) {
+        jdbcTemplate.queryForList(
+                "select setval('" + sequence + "', (select coalesce(max(id), 0) from " + table + ") + " + ALLOCATION_SIZE + ") " +
+                "where (select last_value from " + sequence + ") <= (select coalesce(max(id), 0) from " + table + ")");
+    }
+}
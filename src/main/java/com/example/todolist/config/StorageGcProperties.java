@@ -0,0 +1,19 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "file.upload.gc")
+public class StorageGcProperties {
+    private boolean enabled = true;
+    // Пока режим не выключен явно, очистка только подсчитывает файлы без ссылок
+    private boolean dryRun = true;
+    private int batchSize = 500;
+    private Duration batchPause = Duration.ofMillis(50);
+    private Duration gracePeriod = Duration.ofHours(1);
+    private Duration tempMaxAge = Duration.ofHours(24);
+}
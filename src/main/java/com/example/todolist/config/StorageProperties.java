@@ -3,9 +3,14 @@ package com.example.todolist.config;
 import lombok.*;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "file.upload")
 public class StorageProperties {
     private String  location;
+    private int migrationBatchSize = 500;
+    private Duration migrationBatchPause = Duration.ZERO;
+    private boolean streamingMultipart = true;
 }
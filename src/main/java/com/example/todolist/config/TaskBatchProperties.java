@@ -0,0 +1,12 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "task.batch")
+public class TaskBatchProperties {
+    private int maxItems = 10000;
+    private int flushSize = 50;
+}
@@ -0,0 +1,18 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "task.events")
+public class TaskEventProperties {
+    private int bufferSize = 1024;
+    private Duration emitterTimeout = Duration.ofMinutes(30);
+    // Сколько неотправленных событий может накопиться у подписчика, прежде чем его подписка будет закрыта
+    private int subscriberQueueSize = 256;
+    // Сколько может длиться отправка события подписчику, прежде чем он будет исключен из рассылки
+    private Duration sendTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,16 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "task.page")
+public class TaskPageProperties {
+    private int defaultSize = 50;
+    private int maxSize = 500;
+    // Таймаут выгрузки всех задач потоком; полная выгрузка может идти дольше общего таймаута асинхронных запросов
+    private Duration streamTimeout = Duration.ofHours(1);
+}
@@ -0,0 +1,38 @@
+package com.example.todolist.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Создаёт индекс по названию задачи с классом операторов text_pattern_ops. Обычный btree-индex idx_task_title
+ * при сопоставлении, отличном от C, не может обслуживать LIKE 'префикс%', поэтому поиск по началу названия
+ * идёт по отдельному индексу. JPA не умеет описывать классы операторов, а схема создаётся Hibernate, поэтому
+ * индекс добавляется при старте; если он уже есть, запрос ничего не меняет. Запрос написан для PostgreSQL;
+ * для других баз создание индекса пропускается.
+ */
+@Component
+public class TitleIndexInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(TitleIndexInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TitleIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            log.info("Skipping title pattern index: not supported for {}", database);
+            return;
+        }
+        jdbcTemplate.execute("create index if not exists idx_task_title_pattern on task (title text_pattern_ops)");
+    }
+}
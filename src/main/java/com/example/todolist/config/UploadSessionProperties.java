@@ -0,0 +1,16 @@
+package com.example.todolist.config;
+
+import lombok.*;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "upload.session")
+public class UploadSessionProperties {
+    private int defaultChunkSize = 8 * 1024 * 1024;
+    private int maxChunkSize = 64 * 1024 * 1024;
+    private long maxFileSize = 50L * 1024 * 1024 * 1024;
+    private Duration ttl = Duration.ofHours(24);
+}
@@ -1,31 +1,62 @@
 package com.example.todolist.controller;
 
+import com.example.todolist.config.AsyncTimeoutInterceptor;
+import com.example.todolist.config.TaskPageProperties;
+import com.example.todolist.exception.FileStorageException;
+import com.example.todolist.model.BatchItemResult;
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionStatus;
 import com.example.todolist.model.Tag;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskBatchItem;
+import com.example.todolist.model.TaskFilter;
+import com.example.todolist.model.TaskListItem;
+import com.example.todolist.model.TaskPage;
 import com.example.todolist.servicetask.*;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.*;
-import java.net.MalformedURLException;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
 import java.util.zip.*;
 
 @RestController
 @RequestMapping("/api/tasks/")
 public class APIController {
 
+    private static final Logger log = LoggerFactory.getLogger(APIController.class);
+
     private final ServiceTask service;
     private final FileSystemStorage fileSystemStorage;
 
@@ -35,30 +66,118 @@ public class APIController {
 
     private final PDFService pdfService;
 
+    private final TaskEventBroadcaster eventBroadcaster;
+
+    private final TaskPageProperties pageProperties;
+
+    // Исполнитель, на котором параллельно сохраняются вложения одного запроса
+    private final TaskExecutor attachmentExecutor;
+
+    // Сколько вложений одного запроса сохраняется одновременно; остальные ждут, чтобы один запрос
+    // не занимал весь пул исполнителя
+    private static final int MAX_PARALLEL_ATTACHMENTS = 4;
+
+    // Заголовок ответа со списком идентификаторов заданий отрисовки PDF, поставленных в очередь запросом
+    static final String CONVERSION_JOBS_HEADER = "X-Pdf-Conversion-Jobs";
+
     public APIController(ServiceTask taskService, FileSystemStorage storage,
                          ServiceCategory catService, ServiceTag tagService,
-                         PDFService pdfService) {
+                         PDFService pdfService, TaskEventBroadcaster eventBroadcaster,
+                         TaskPageProperties pageProperties,
+                         @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+                         TaskExecutor attachmentExecutor) {
         this.service = taskService;
         this.fileSystemStorage = storage;
         this.catService = catService;
         this.tagService = tagService;
         this.pdfService = pdfService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.pageProperties = pageProperties;
+        this.attachmentExecutor = attachmentExecutor;
     }
 
     /**
-     * Возвращает список всех задач. Не принимает параметров и возвращает полный список задач,
-     * доступных в системе.
+     * Возвращает страницу задач, упорядоченных по идентификатору. Для получения следующей страницы клиент
+     * передает токен nextCursor из предыдущего ответа; когда nextCursor равен null, задачи закончились.
+     * Задачи возвращаются в облегченном виде (идентификатор, название, дата, имена тэга и категории,
+     * количество вложений); описание и список файлов добавляются параметром expand.
      *
-     * @return Список всех задач.
+     * @param cursor Токен продолжения из предыдущей страницы (необязательный).
+     * @param size Размер страницы (необязательный, ограничен максимальным значением из настроек).
+     * @param expand Дополнительные поля через запятую: description, files (необязательный).
+     * @return Страница задач и токен следующей страницы.
      */
     @GetMapping("/")
-    public List<Task> getAllTask(){
-        return service.findAllTasks();
+    public TaskPage<TaskListItem> getAllTask(@RequestParam(value = "cursor", required = false) String cursor,
+                                             @RequestParam(value = "size", required = false) Integer size,
+                                             @RequestParam(value = "expand", required = false) Set<String> expand){
+        return service.findTasksPage(cursor, size, expand);
+    }
+
+    /**
+     * Выгружает все задачи в формате NDJSON (по одной задаче на строку). Задачи читаются из базы курсором
+     * и отправляются клиенту по мере чтения, поэтому ответ начинается сразу и не накапливается в памяти.
+     * Для выгрузки действует собственный таймаут task.page.stream-timeout, а не общий таймаут асинхронных запросов.
+     *
+     * @return Потоковое тело ответа с задачами.
+     */
+    @GetMapping(value = "/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamTasksAsNdjson(HttpServletRequest request) {
+        AsyncTimeoutInterceptor.setTimeout(request, pageProperties.getStreamTimeout());
+        StreamingResponseBody body = service::writeTasksAsNdjson;
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * Выгружает все задачи одним JSON-массивом, который передается клиенту по частям по мере чтения из базы.
+     *
+     * @return Потоковое тело ответа с массивом задач.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTasksAsJsonArray(HttpServletRequest request) {
+        AsyncTimeoutInterceptor.setTimeout(request, pageProperties.getStreamTimeout());
+        StreamingResponseBody body = service::writeTasksAsJsonArray;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Подписывает клиента на события об изменении задач (Server-Sent Events). Каждое событие содержит тип изменения
+     * (created, updated, deleted) и идентификатор задачи, поэтому клиенту не нужно периодически перечитывать
+     * весь список. При переподключении браузер передает заголовок Last-Event-ID, и клиент получает пропущенные
+     * события; если они уже вытеснены из буфера, приходит событие reset, после которого список нужно перечитать.
+     *
+     * @param lastEventId Идентификатор последнего полученного события (необязательный).
+     * @return Поток событий.
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeToEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return eventBroadcaster.subscribe(lastEventId);
+    }
+
+    /**
+     * Возвращает статистику кэшей задач, метаданных файлов и отрисованных страниц PDF: количество попаданий,
+     * промахов, вытеснений, инвалидаций, текущий размер и долю попаданий.
+     *
+     * @return Статистика по каждому кэшу.
+     */
+    @GetMapping("/cacheStats")
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("tasksById", service.taskCacheStats());
+        stats.put("filesById", fileSystemStorage.fileCacheStats());
+        stats.putAll(fileSystemStorage.pageCacheStats());
+        return stats;
     }
 
     /**
      * Возвращает задачу по её идентификатору. Если задача с таким идентификатором существует,
      * возвращает её и статус OK. Если задача не найдена, возвращает статус 'Not Found'.
+     * Ответ содержит ETag и Last-Modified по версии задачи, поэтому запрос с совпадающими
+     * If-None-Match или If-Modified-Since завершается статусом 304 без тела.
      *
      * @param id Идентификатор задачи, которую необходимо найти.
      * @return ResponseEntity с задачей и соответствующим статусом.
@@ -67,7 +186,12 @@ public class APIController {
     public ResponseEntity<Task> getTaskById(@PathVariable Long id) {
         Task task = service.findTaskById(id);
         if (task != null) {
-            return ResponseEntity.ok(task);
+            // Условные заголовки запроса сравниваются с этими валидаторами при записи ответа
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok().eTag(taskETag(task));
+            if (task.getLastModified() != null) {
+                builder.lastModified(task.getLastModified().getTime());
+            }
+            return builder.body(task);
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -85,9 +209,57 @@ public class APIController {
         return service.findTasksByTitle(title);
     }
 
+    /**
+     * Полнотекстовый поиск задач по словам в названии и описании. Учитывает словоформы русского и английского языка
+     * и возвращает задачи в порядке убывания релевантности. Выбирается, если в запросе передан параметр q.
+     *
+     * @param q Поисковый запрос из одного или нескольких слов.
+     * @param limit Максимальное количество результатов (необязательный).
+     * @return Список найденных задач, отсортированный по релевантности.
+     */
+    @GetMapping(value = "/search", params = "q")
+    public List<Task> fullTextSearch(@RequestParam String q,
+                                     @RequestParam(value = "limit", required = false) Integer limit) {
+        return service.searchTasks(q, limit);
+    }
+
+    /**
+     * Возвращает задачи, отобранные по любой комбинации фильтров и отсортированные по заданному полю.
+     * Фильтрация и сортировка выполняются в базе данных одним запросом.
+     *
+     * @param tagId Идентификатор тэга (необязательный).
+     * @param categoryId Идентификатор категории (необязательный).
+     * @param titlePrefix Начало названия задачи (необязательный).
+     * @param createdFrom Нижняя граница даты создания включительно, ISO-формат (необязательный).
+     * @param createdTo Верхняя граница даты создания не включительно, ISO-формат (необязательный).
+     * @param hasAttachments Отбор задач с вложениями (true) или без них (false) (необязательный).
+     * @param sort Поле сортировки: id, title, creationDate, tag или category.
+     * @param direction Направление сортировки: asc или desc.
+     * @param size Максимальное количество задач в ответе.
+     * @return Облегченные представления задач, удовлетворяющих фильтру.
+     */
+    @GetMapping("/query")
+    public List<TaskListItem> queryTasks(@RequestParam(value = "tagId", required = false) Long tagId,
+                                 @RequestParam(value = "categoryId", required = false) Long categoryId,
+                                 @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                 @RequestParam(value = "createdFrom", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdFrom,
+                                 @RequestParam(value = "createdTo", required = false)
+                                 @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdTo,
+                                 @RequestParam(value = "hasAttachments", required = false) Boolean hasAttachments,
+                                 @RequestParam(value = "sort", required = false) String sort,
+                                 @RequestParam(value = "direction", required = false) String direction,
+                                 @RequestParam(value = "size", required = false) Integer size) {
+        TaskFilter filter = new TaskFilter(tagId, categoryId, titlePrefix, createdFrom, createdTo, hasAttachments);
+        return service.findTaskListItems(filter, sort, direction, size);
+    }
+
     /**
      * Создает новую задачу с указанными названием, описанием, категорией, тэгом и файлами.
      * Возвращает созданную задачу, если операция успешна, или соответствующий статус ошибки.
+     * Содержимое файлов сохраняется параллельно до создания задачи. Если какой-либо файл сохранить не удалось,
+     * задача не создается. Страницы PDF отрисовываются в очереди после ответа; идентификаторы заданий отрисовки
+     * возвращаются в заголовке {@value #CONVERSION_JOBS_HEADER}.
      *
      * @param title Название задачи.
      * @param description Описание задачи.
@@ -100,6 +272,12 @@ public class APIController {
     public ResponseEntity<?> createTask(@RequestParam String title, @RequestParam String description,
                                            @RequestParam("files") MultipartFile[] files,
                                         @RequestParam String categoryID, @RequestParam String tagID) {
+        // Сохранение содержимого файлов до создания задачи: при ошибке в базе ничего не остается
+        StoredUploads uploads = storeUploads(files);
+        if (uploads.failedFile() != null) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(uploads.errorMessage());
+        }
+
         // Инициализация новой задачи с данными
         Task task = new Task();
         task.setTitle(title);
@@ -111,24 +289,13 @@ public class APIController {
         task.setCategory(category);
         task.setTag(tag);
 
-        // Сохранение задачи
-        Task savedTask = service.saveTask(task);
-
-        // Обработка и сохранение файлов, связанных с задачей
-        for(MultipartFile file: files){
-            if(!file.isEmpty()){
-                try{
-                    fileSystemStorage.saveFile(file, savedTask);
-                } catch(Exception exception){
-                    exception.printStackTrace();
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Failed to save file: " + file.getOriginalFilename());
-                }
-            }
-        }
+        // Сохранение задачи вместе с файлами в одной транзакции
+        ServiceTask.TaskWithFiles saved = service.saveTaskWithFiles(task, uploads.uploads());
+        Task savedTask = saved.task();
 
         // Проверка успешности сохранения задачи и возврат результата
         if (savedTask != null && savedTask.getId() != null) {
-            return ResponseEntity.ok(savedTask);
+            return ResponseEntity.ok().headers(conversionJobsHeader(saved.files())).body(savedTask);
         } else {
             // Возврат ошибки, если создание задачи не удалось
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
@@ -138,6 +305,9 @@ public class APIController {
     /**
      * Обновляет информацию о задаче по заданному идентификатору, включая название, описание, категорию, тэг и файлы.
      * Возвращает обновленную задачу, если операция успешна, или статус 'Не найдено', если задача с таким ID не существует.
+     * Содержимое файлов сохраняется параллельно до изменения задачи. Если какой-либо файл сохранить не удалось,
+     * задача не изменяется. Идентификаторы заданий отрисовки PDF возвращаются в заголовке
+     * {@value #CONVERSION_JOBS_HEADER}.
      *
      * @param id Идентификатор задачи для обновления.
      * @param title Новое название задачи.
@@ -146,6 +316,7 @@ public class APIController {
      * @param tagId Идентификатор нового тэга задачи.
      * @param files Массив файлов для связи с задачей.
      * @return ResponseEntity с обновленной задачей или статусом 'Не найдено'.
+     * @throws FileStorageException Если какой-либо файл не удалось сохранить; сообщение содержит имя файла и причину.
      */
     @PutMapping("/edit/{id}")
     public ResponseEntity<Task> updateTask(@PathVariable Long id, @RequestParam("title") String title,
@@ -154,9 +325,15 @@ public class APIController {
                                            @RequestParam("tagId") Long tagId,
                                            @RequestParam("files") MultipartFile[] files) {
 
-        // Поиск существующей задачи по ID
-        Task task = service.findTaskById(id);
+        // Поиск существующей задачи по ID; изменяется собственный экземпляр задачи, а не общий из кэша
+        Task task = service.findTaskForUpdate(id);
         if (task != null) {
+            // Сохранение содержимого файлов до изменения задачи, чтобы при ошибке задача осталась прежней
+            StoredUploads uploads = storeUploads(files);
+            if (uploads.failedFile() != null) {
+                throw new FileStorageException(uploads.errorMessage(), uploads.failure());
+            }
+
             // Обновление основной информации задачи
             task.setTitle(title);
             task.setDescription(description);
@@ -169,27 +346,94 @@ public class APIController {
             Tag tag = tagService.findTaskById(tagId);
             task.setTag(tag);
 
-            // Обработка и сохранение прикрепленных файло
-            for (MultipartFile file : files) {
-                if(!file.isEmpty()){
-                    try{
-                        fileSystemStorage.saveFile(file, task);
-                    } catch(Exception exception){
-                        // Логирование ошибки при сохранении файл
-                        exception.printStackTrace();
-                    }
-                }
-            }
-
-            // Сохранение обновленной задачи и возврат результата
-            Task updatedTask = service.saveTask(task);
-            return ResponseEntity.ok(updatedTask);
+            // Сохранение обновленной задачи вместе с файлами в одной транзакции и возврат результата
+            ServiceTask.TaskWithFiles saved = service.saveTaskWithFiles(task, uploads.uploads());
+            return ResponseEntity.ok().headers(conversionJobsHeader(saved.files())).body(saved.task());
         } else {
             // Возврат статуса 'Не найдено', если задача с таким ID не существует
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Сохраняет в хранилище содержимое непустых файлов запроса параллельно, не более
+     * {@link #MAX_PARALLEL_ATTACHMENTS} одновременно, поэтому время запроса с несколькими файлами близко ко времени
+     * сохранения самого долгого из них. После первой ошибки новые файлы не запускаются, а уже запущенные
+     * дожидаются завершения. Записи о файлах здесь не создаются, поэтому при ошибке удалять нечего: содержимое
+     * без ссылок удаляется очисткой хранилища.
+     *
+     * @param files Файлы запроса.
+     * @return Сохраненное содержимое, имя первого в порядке запроса файла, который не удалось сохранить, и причина
+     *         ошибки, или null вместо имени и причины, если сохранены все файлы.
+     */
+    private StoredUploads storeUploads(MultipartFile[] files) {
+        List<MultipartFile> attachments = Arrays.stream(files).filter(file -> !file.isEmpty()).toList();
+        if (attachments.isEmpty()) {
+            return new StoredUploads(List.of(), null, null);
+        }
+
+        Semaphore permits = new Semaphore(MAX_PARALLEL_ATTACHMENTS);
+        List<CompletableFuture<FileSystemStorage.StoredUpload>> storing = new ArrayList<>(attachments.size());
+        for (MultipartFile file : attachments) {
+            permits.acquireUninterruptibly();
+            if (storing.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                permits.release();
+                break;
+            }
+            CompletableFuture<FileSystemStorage.StoredUpload> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> fileSystemStorage.storeUpload(file), attachmentExecutor);
+            } catch (RuntimeException rejected) {
+                future = CompletableFuture.failedFuture(rejected);
+            }
+            storing.add(future.whenComplete((stored, error) -> permits.release()));
+        }
+
+        // Ожидание всех запущенных сохранений, чтобы ответ не ушел, пока файлы запроса еще пишутся
+        String failedFile = null;
+        Throwable failure = null;
+        List<FileSystemStorage.StoredUpload> stored = new ArrayList<>();
+        for (int i = 0; i < storing.size(); i++) {
+            try {
+                FileSystemStorage.StoredUpload upload = storing.get(i).join();
+                if (upload != null) {
+                    stored.add(upload);
+                }
+            } catch (CompletionException exception) {
+                String fileName = attachments.get(i).getOriginalFilename();
+                log.error("Failed to save file {}", fileName, exception.getCause());
+                if (failedFile == null) {
+                    failedFile = fileName;
+                    failure = exception.getCause();
+                }
+            }
+        }
+        return new StoredUploads(stored, failedFile, failure);
+    }
+
+    private record StoredUploads(List<FileSystemStorage.StoredUpload> uploads, String failedFile, Throwable failure) {
+
+        // Сообщение для ответа 500: первый несохраненный файл и причина ошибки
+        String errorMessage() {
+            String reason = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+            return "Failed to save file: " + failedFile + " (" + reason + ")";
+        }
+    }
+
+    // Задания отрисовки PDF запроса, по которым клиент следит за готовностью страниц через /api/conversions/
+    private static HttpHeaders conversionJobsHeader(List<File> files) {
+        HttpHeaders headers = new HttpHeaders();
+        List<String> jobIds = files.stream()
+                .map(File::getConversionJobId)
+                .filter(Objects::nonNull)
+                .map(String::valueOf)
+                .toList();
+        if (!jobIds.isEmpty()) {
+            headers.set(CONVERSION_JOBS_HEADER, String.join(",", jobIds));
+        }
+        return headers;
+    }
+
     /**
      * Обрабатывает HTTP DELETE запрос для удаления задачи по заданному идентификатору.
      * Возвращает успешный статус, если задача найдена и удалена, или статус 'Не найдено', если задача не существует.
@@ -214,6 +458,41 @@ public class APIController {
         }
     }
 
+    /**
+     * Создает несколько задач одним запросом в одной транзакции. Возвращает результат по каждому элементу:
+     * идентификатор созданной задачи или причину, по которой элемент не был сохранен.
+     *
+     * @param items Список задач с названием, описанием, идентификаторами категории и тэга.
+     * @return Результаты по каждому элементу в порядке запроса.
+     */
+    @PostMapping("/batch")
+    public List<BatchItemResult> createTasks(@RequestBody List<TaskBatchItem> items) {
+        return service.createTasks(items);
+    }
+
+    /**
+     * Обновляет несколько задач одним запросом в одной транзакции. В каждом элементе должен быть указан
+     * идентификатор задачи.
+     *
+     * @param items Список задач с идентификатором и новыми значениями полей.
+     * @return Результаты по каждому элементу в порядке запроса.
+     */
+    @PutMapping("/batch")
+    public List<BatchItemResult> updateTasks(@RequestBody List<TaskBatchItem> items) {
+        return service.updateTasks(items);
+    }
+
+    /**
+     * Удаляет несколько задач одним запросом в одной транзакции.
+     *
+     * @param ids Список идентификаторов удаляемых задач.
+     * @return Результаты по каждому идентификатору в порядке запроса.
+     */
+    @DeleteMapping("/batch")
+    public List<BatchItemResult> deleteTasks(@RequestBody List<Long> ids) {
+        return service.deleteTasks(ids);
+    }
+
     /**
      * Экспортирует задачу в формате ZIP, содержащем файлы задачи и её JSON представление.
      *
@@ -232,7 +511,8 @@ public class APIController {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json; charset=UTF-8");
 
-        try (ZipOutputStream zippedOut = new ZipOutputStream(response.getOutputStream())){
+        // Имена записей берутся из имен файлов при загрузке и могут совпадать, поэтому повторы получают суффикс
+        try (ZipOutputStream zippedOut = new UniqueEntryZipOutputStream(response.getOutputStream())){
             // Создание записи для JSON файла задачи
             ZipEntry jsonEntry = new ZipEntry(task.getTitle() + ".json");
             zippedOut.putNextEntry(jsonEntry);
@@ -246,12 +526,14 @@ public class APIController {
             for (File fileEntiti: files){
                 // Пропускаем PDF файлы, так как они не должны быть включены в экспорт(переводим PDF в фото)
                 if(Objects.equals(fileEntiti.getFileType(), "application/pdf")){
+                    // Страницы PDF, отрисовываемые по запросу, не сохранены как файлы задачи
+                    fileSystemStorage.writeRenderedPdfPages(fileEntiti, null, zippedOut);
                     continue;
                 }
 
                 // Добавляем файлы к ZIP
                 Path file = Paths.get(fileEntiti.getFilePath());
-                ZipEntry entry = new ZipEntry(file.getFileName().toString());
+                ZipEntry entry = new ZipEntry(fileEntiti.displayName());
                 zippedOut.putNextEntry(entry);
 
                 Files.copy(file, zippedOut);
@@ -265,28 +547,107 @@ public class APIController {
 
     /**
      * Обрабатывает запрос на скачивание файла по его идентификатору. Поддерживает обычные файлы и PDF.
-     * Для PDF файлов возвращает ZIP архив, для остальных - файл в исходном формате.
+     * Для PDF файлов возвращает ZIP архив, для остальных - файл в исходном формате с поддержкой
+     * запросов диапазонов (Range, If-Range) для докачки больших файлов. Пока страницы PDF отрисовываются
+     * в очереди, возвращает статус 409. Для PDF клиент может выбрать уровень качества изображений страниц.
+     *
+     * Если файл не изменился с момента, указанного клиентом в If-None-Match или If-Modified-Since,
+     * возвращает статус 304 без чтения файла.
      *
      * @param fileId Идентификатор файла для скачивания.
-     * @param response Объект HttpServletResponse, используемый для установки заголовков ответа.
-     * @return ResponseEntity, содержащий ресурс файла и статус ответа.
-     * @throws MalformedURLException В случае ошибки формирования URL для файла.
+     * @param tier Уровень качества изображений страниц PDF (thumbnail, preview, full); необязательный.
+     * @param request Текущий запрос, из которого берутся условные заголовки и заголовки диапазонов.
+     * @param response Объект HttpServletResponse, в который записывается файл.
+     * @return ResponseEntity со статусом ответа (404, если файл не найден); тело файла записывается
+     *         непосредственно в response.
+     * @throws IOException В случае ошибки чтения или передачи файла.
      */
     @GetMapping("/files/download/{fileId}")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long fileId, HttpServletResponse response) throws MalformedURLException {
+    public ResponseEntity<Resource> downloadFile(@PathVariable Long fileId,
+                                                 @RequestParam(value = "tier", required = false) String tier,
+                                                 HttpServletRequest request,
+                                                 HttpServletResponse response) throws IOException {
         // Получение сущности файла по идентификатору
         File fileEntity = fileSystemStorage.findFileById(fileId);
+        if (fileEntity == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String eTag = fileETag(fileEntity);
+
+        // Валидаторы строятся по метаданным файла из базы, содержимое файла для этого не читается
+        if (request != null && new ServletWebRequest(request, response)
+                .checkNotModified(eTag, toTimestamp(fileEntity.getLastModified()))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
 
         // Проверка типа файла и выбор метода для его скачивания
         if (fileEntity.getFileType().equals("application/pdf")) {
+            // Страницы PDF еще отрисовываются: ход отрисовки доступен через /api/conversions/file/{fileId}
+            if (fileEntity.getConversionStatus() != null
+                    && fileEntity.getConversionStatus() != PdfConversionStatus.DONE) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            }
+
             // Для PDF файлов: конвертация в ZIP перед скачиванием
-            return fileSystemStorage.downloadPdfAsZip(fileEntity, response);
+            return fileSystemStorage.downloadPdfAsZip(fileEntity, tier, response);
         } else {
-            // Для всех остальных типов файлов: скачивание в исходном формат
-            return fileSystemStorage.downloadRegularFile(fileEntity);
+            // Для всех остальных типов файлов: передача файла (или его диапазонов) непосредственно в ответ
+            fileSystemStorage.sendRegularFile(fileEntity, eTag, request, response);
+            return null;
         }
     }
 
+    /**
+     * Возвращает изображение одной страницы PDF в заданном уровне качества: уровни отличаются разрешением
+     * и форматом (PNG или JPEG). Если страница не сохранена в этом уровне, она отрисовывается при первом
+     * обращении и затем отдается из кэша отрисованных страниц.
+     * Изображение страницы не меняется, пока не изменилась запись о PDF, поэтому запрос с совпадающим
+     * If-None-Match завершается статусом 304.
+     *
+     * @param fileId Идентификатор PDF-файла.
+     * @param pageIndex Номер страницы, начиная с нуля.
+     * @param tier Уровень качества изображения (thumbnail, preview, full); по умолчанию - уровень сохраненных страниц.
+     * @return Изображение страницы, статус 'Не найдено' для файла, не являющегося PDF, или 409, пока
+     *         PDF обрабатывается в очереди.
+     * @throws IOException Если страницу не удалось прочитать или отрисовать.
+     */
+    @GetMapping("/files/{fileId}/pages/{pageIndex}")
+    public ResponseEntity<byte[]> getPdfPage(@PathVariable Long fileId, @PathVariable int pageIndex,
+                                             @RequestParam(value = "tier", required = false) String tier,
+                                             HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        File fileEntity = fileSystemStorage.findFileById(fileId);
+        if (fileEntity == null || !"application/pdf".equals(fileEntity.getFileType())) {
+            return ResponseEntity.notFound().build();
+        }
+        if (fileEntity.getConversionStatus() != null && fileEntity.getConversionStatus() != PdfConversionStatus.DONE) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        String eTag = "\"page-" + fileEntity.getId() + "-" + toTimestamp(fileEntity.getLastModified()) + "-"
+                + pageIndex + (tier == null ? "" : "-" + tier) + "\"";
+        if (request != null && new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+        FileSystemStorage.PageImage page = fileSystemStorage.getPdfPage(fileEntity, pageIndex, tier);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(page.contentType())).eTag(eTag)
+                .body(page.content());
+    }
+
+    // Версия задачи увеличивается при каждом изменении задачи и ее списка файлов
+    private static String taskETag(Task task) {
+        return "\"task-" + task.getId() + "-" + (task.getVersion() == null ? 0 : task.getVersion()) + "\"";
+    }
+
+    // Содержимое файла по идентификатору не перезаписывается, поэтому достаточно идентификатора и времени записи
+    private static String fileETag(File file) {
+        return "\"file-" + file.getId() + "-" + toTimestamp(file.getLastModified()) + "\"";
+    }
+
+    private static long toTimestamp(Date date) {
+        return date == null ? -1 : date.getTime();
+    }
+
     /**
      * Принимает ZIP-файл, содержащий JSON файл с информацией о задаче и связанные файлы.
      * Извлекает и сохраняет информацию о задаче и файлы в соответствующих сервисах.
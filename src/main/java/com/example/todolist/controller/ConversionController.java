@@ -0,0 +1,39 @@
+package com.example.todolist.controller;
+
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/conversions/")
+public class ConversionController {
+
+    private final PdfConversionQueue conversionQueue;
+
+    public ConversionController(PdfConversionQueue conversionQueue) {
+        this.conversionQueue = conversionQueue;
+    }
+
+    /**
+     * Возвращает состояние задания отрисовки страниц PDF: статус, число попыток, общее число страниц
+     * и число уже отрисованных страниц, а также последнюю ошибку.
+     *
+     * @param id Идентификатор задания, полученный в заголовке ответа на загрузку файла.
+     * @return Задание отрисовки.
+     */
+    @GetMapping("/{id}")
+    public PdfConversionJob getJob(@PathVariable Long id) {
+        return conversionQueue.findJob(id);
+    }
+
+    /**
+     * Возвращает последнее задание отрисовки страниц заданного PDF-файла.
+     *
+     * @param fileId Идентификатор записи PDF-файла.
+     * @return Задание отрисовки.
+     */
+    @GetMapping("/file/{fileId}")
+    public PdfConversionJob getJobForFile(@PathVariable Long fileId) {
+        return conversionQueue.findJobForFile(fileId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.todolist.controller;
+
+import com.example.todolist.model.StorageGcStatus;
+import com.example.todolist.model.StorageMigrationStatus;
+import com.example.todolist.servicetask.StorageGarbageCollector;
+import com.example.todolist.servicetask.StorageMigrationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/storage/")
+public class StorageController {
+
+    private final StorageMigrationService migrationService;
+
+    private final StorageGarbageCollector garbageCollector;
+
+    public StorageController(StorageMigrationService migrationService, StorageGarbageCollector garbageCollector) {
+        this.migrationService = migrationService;
+        this.garbageCollector = garbageCollector;
+    }
+
+    /**
+     * Запускает перенос ранее сохраненных файлов в раскладку хранилища по хэшу. Перенос выполняется в фоне
+     * на работающем приложении; за ходом переноса можно следить через состояние переноса.
+     *
+     * @return Состояние переноса и статус 'Accepted', либо 'Conflict', если перенос уже выполняется.
+     */
+    @PostMapping("/migration")
+    public ResponseEntity<StorageMigrationStatus> startMigration() {
+        if (migrationService.start()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(migrationService.status());
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(migrationService.status());
+        }
+    }
+
+    /**
+     * Возвращает состояние переноса файлов: количество просмотренных, перенесенных, отсутствующих на диске
+     * и не перенесенных из-за ошибок записей.
+     *
+     * @return Состояние переноса.
+     */
+    @GetMapping("/migration")
+    public StorageMigrationStatus getMigrationStatus() {
+        return migrationService.status();
+    }
+
+    /**
+     * Запускает очистку хранилища от файлов, на которые не ссылается ни одна запись, вне расписания.
+     * В режиме dry-run файлы только подсчитываются, что позволяет оценить объем очистки перед ее включением.
+     *
+     * @param dryRun true, если файлы не нужно удалять.
+     * @return Состояние очистки и статус 'Accepted', либо 'Conflict', если очистка уже выполняется.
+     */
+    @PostMapping("/gc")
+    public ResponseEntity<StorageGcStatus> startGc(@RequestParam(value = "dryRun", defaultValue = "false")
+                                                   boolean dryRun) {
+        if (garbageCollector.start(dryRun)) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(garbageCollector.status());
+        } else {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(garbageCollector.status());
+        }
+    }
+
+    /**
+     * Возвращает показатели очистки хранилища: количество просмотренных файлов, найденных файлов без ссылок,
+     * удаленных файлов и освобожденных байтов за последний запуск и за все время работы приложения.
+     *
+     * @return Состояние очистки.
+     */
+    @GetMapping("/gc")
+    public StorageGcStatus getGcStatus() {
+        return garbageCollector.status();
+    }
+}
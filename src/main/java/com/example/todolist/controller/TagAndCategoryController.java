@@ -1,13 +1,20 @@
 package com.example.todolist.controller;
 
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.Tag;
+import com.example.todolist.model.TaskCounts;
 import com.example.todolist.servicetask.ServiceCategory;
 import com.example.todolist.servicetask.ServiceTag;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.TaskCounterService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/cat/")
 public class TagAndCategoryController {
@@ -16,9 +23,16 @@ public class TagAndCategoryController {
 
     private final ServiceTag serviceTag;
 
-    public TagAndCategoryController(ServiceCategory serviceCategory, ServiceTag serviceTag){
+    private final TaskCounterService counterService;
+
+    private final ServiceTask serviceTask;
+
+    public TagAndCategoryController(ServiceCategory serviceCategory, ServiceTag serviceTag,
+                                    TaskCounterService counterService, ServiceTask serviceTask){
         this.serviceCategory = serviceCategory;
         this.serviceTag = serviceTag;
+        this.counterService = counterService;
+        this.serviceTask = serviceTask;
     }
 
     /**
@@ -94,8 +108,8 @@ public class TagAndCategoryController {
         // Поиск категории по идентификатору
         Category category = serviceCategory.findTaskById(id);
         if (category != null) {
-            // Удаление категории, если она найдена
-            serviceCategory.deleteTask(id);
+            // Удаление категории вместе с ее задачами; сервис задач обновляет для них счетчики, индекс и кэш
+            serviceTask.deleteCategory(id);
 
             // Возврат успешного статуса
             return ResponseEntity.ok().build();
@@ -118,8 +132,8 @@ public class TagAndCategoryController {
         // Поиск тэга по идентификатору
         Tag tag = serviceTag.findTaskById(id);
         if (tag != null) {
-            // Удаление тэга, если он найден
-            serviceTag.deleteTask(id);
+            // Удаление тэга вместе с его задачами; сервис задач обновляет для них счетчики, индекс и кэш
+            serviceTask.deleteTag(id);
 
             // Возврат успешного статуса
             return ResponseEntity.ok().build();
@@ -128,4 +142,29 @@ public class TagAndCategoryController {
             return ResponseEntity.notFound().build();
         }
     }
+
+    /**
+     * Возвращает количество задач по каждому тэгу и каждой категории. Значения берутся из счетчиков в памяти,
+     * поэтому запрос не обращается к таблице задач.
+     *
+     * @return Количество задач по идентификаторам тэгов и категорий.
+     */
+    @GetMapping("/counts")
+    public TaskCounts getTaskCounts() {
+        return counterService.counts();
+    }
+
+    /**
+     * Возвращает статистику кэшей категорий и тэгов: количество попаданий, промахов, вытеснений,
+     * инвалидаций, текущий размер и долю попаданий.
+     *
+     * @return Статистика по каждому кэшу справочников.
+     */
+    @GetMapping("/cacheStats")
+    public Map<String, CacheStats> getCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.putAll(serviceCategory.cacheStats());
+        stats.putAll(serviceTag.cacheStats());
+        return stats;
+    }
 }
@@ -0,0 +1,98 @@
+package com.example.todolist.controller;
+
+import com.example.todolist.model.File;
+import com.example.todolist.model.UploadSessionInfo;
+import com.example.todolist.servicetask.UploadSessionService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/uploads/")
+public class UploadController {
+
+    private final UploadSessionService uploadService;
+
+    public UploadController(UploadSessionService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    /**
+     * Создает сессию загрузки файла по частям. В ответе возвращаются идентификатор сессии, размер части
+     * и количество частей; часть с номером i отправляется со смещением i * chunkSize.
+     *
+     * @param taskId Идентификатор задачи, к которой будет прикреплен файл.
+     * @param fileName Имя файла.
+     * @param contentType Тип содержимого файла (необязательный).
+     * @param size Размер файла в байтах.
+     * @param chunkSize Размер части в байтах (необязательный).
+     * @return Состояние созданной сессии и статус 'Created'.
+     */
+    @PostMapping("/")
+    public ResponseEntity<UploadSessionInfo> createSession(@RequestParam Long taskId,
+                                                           @RequestParam String fileName,
+                                                           @RequestParam(required = false) String contentType,
+                                                           @RequestParam Long size,
+                                                           @RequestParam(required = false) Integer chunkSize) {
+        UploadSessionInfo session = uploadService.createSession(taskId, fileName, contentType, size, chunkSize);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session);
+    }
+
+    /**
+     * Возвращает состояние сессии со списком принятых частей; после обрыва соединения клиент досылает
+     * только отсутствующие в нем части.
+     *
+     * @param id Идентификатор сессии.
+     * @return Состояние сессии.
+     */
+    @GetMapping("/{id}")
+    public UploadSessionInfo getSession(@PathVariable String id) {
+        return uploadService.getSession(id);
+    }
+
+    /**
+     * Принимает часть файла. Тело запроса - данные части без какой-либо обертки; части могут отправляться
+     * параллельно и в любом порядке.
+     *
+     * @param id Идентификатор сессии.
+     * @param offset Смещение части в файле.
+     * @param checksum SHA-256 данных части в шестнадцатеричном виде.
+     * @param request Запрос, из тела которого читаются данные.
+     * @return Статус 'No Content' после записи части.
+     * @throws IOException Если данные не удалось прочитать или записать.
+     */
+    @PutMapping("/{id}")
+    public ResponseEntity<Void> uploadChunk(@PathVariable String id, @RequestParam long offset,
+                                            @RequestHeader("X-Checksum-SHA256") String checksum,
+                                            HttpServletRequest request) throws IOException {
+        uploadService.writeChunk(id, offset, checksum, request.getInputStream());
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Завершает загрузку и прикрепляет файл к задаче.
+     *
+     * @param id Идентификатор сессии.
+     * @param checksum SHA-256 всего файла для проверки (необязательный).
+     * @return Запись о сохраненном файле.
+     */
+    @PostMapping("/{id}/commit")
+    public File commit(@PathVariable String id, @RequestParam(required = false) String checksum) {
+        return uploadService.commit(id, checksum);
+    }
+
+    /**
+     * Отменяет загрузку и удаляет принятые части.
+     *
+     * @param id Идентификатор сессии.
+     * @return Статус 'No Content'.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable String id) {
+        uploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
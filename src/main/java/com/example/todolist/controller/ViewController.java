@@ -1,12 +1,17 @@
 package com.example.todolist.controller;
 
+import com.example.todolist.model.TaskFilter;
+import com.example.todolist.repository.TaskListVersion;
 import com.example.todolist.servicetask.ServiceTask;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import com.example.todolist.model.Task;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.Date;
 import java.util.List;
 
 @Controller
@@ -23,15 +28,21 @@ public class ViewController {
      * и добавляет его в модель представления, которая передается в шаблон страницы задач.
      *
      * @param model Модель представления, используемая для передачи данных задач в шаблон.
+     * @param webRequest Текущий запрос, из которого берутся условные заголовки.
      * @return Имя шаблона страницы задач, используемое для отображения списка задач.
      */
     @GetMapping("/tasks")
-    public String showTasks(Model model){
-        // Получение списка всех задач из сервиса
-        List<Task> tasks = service.findAllTasks();
+    public String showTasks(Model model, WebRequest webRequest){
+        // Если задачи не менялись с прошлого запроса клиента, страница не строится заново
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+
+        // Получение списка всех задач вместе с файлами, категорией и тэгом одним запросом
+        List<Task> tasks = service.findTasksForView();
 
         // Добавление списка задач в модель представления
-        model.addAttribute("tasks", service.findAllTasks());
+        model.addAttribute("tasks", tasks);
 
         // Возвращение имени шаблона страницы задач для отображения
         return "taskpage";
@@ -42,10 +53,15 @@ public class ViewController {
      * из сервиса и добавляет его в модель представления, которая передается в шаблон страницы задач.
      *
      * @param model Модель представления, используемая для передачи отсортированных данных задач в шаблон.
+     * @param webRequest Текущий запрос, из которого берутся условные заголовки.
      * @return Имя шаблона страницы задач, используемое для отображения списка отсортированных задач.
      */
     @GetMapping("/tasks/sortedByDate")
-    public String getTasksSortedByDate(Model model) {
+    public String getTasksSortedByDate(Model model, WebRequest webRequest) {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+
         // Получение отсортированного списка задач по дате
         List<Task> tasks = service.findAllTasksSortedByDate();
 
@@ -61,10 +77,15 @@ public class ViewController {
      * из сервиса и добавляет его в модель представления, которая передается в шаблон страницы задач.
      *
      * @param model Модель представления, используемая для передачи отсортированных данных задач в шаблон.
+     * @param webRequest Текущий запрос, из которого берутся условные заголовки.
      * @return Имя шаблона страницы задач, используемое для отображения списка отсортированных задач.
      */
     @GetMapping("/tasks/sortedByTitle")
-    public String getTasksSortedByTitle(Model model) {
+    public String getTasksSortedByTitle(Model model, WebRequest webRequest) {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+
         // Получение отсортированного списка задач по названию
         List<Task> tasks = service.findAllTasksSortedByTitle();
 
@@ -80,19 +101,23 @@ public class ViewController {
      * с возможностью фильтрации по тэгу.
      *
      * @param model Модель представления для передачи атрибутов в шаблон.
+     * @param webRequest Текущий запрос, из которого берутся условные заголовки.
      * @param tagId Опциональный параметр для фильтрации задач по идентификатору тэга.
      * @return Имя шаблона страницы с задачами для отображения.
      */
     @GetMapping("/tasks/filterByTagId")
-    public String getTasksFilteredAndSorted(Model model,
+    public String getTasksFilteredAndSorted(Model model, WebRequest webRequest,
                                             @RequestParam(value = "tagId", required = false) Long tagId) {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
 
         // Получение и фильтрация задач по идентификатору тэга
         List<Task> tasks;
         if (tagId != null) {
             tasks = service.findTasksByTagId(tagId); // Метод для получения задач по ID тэга
         } else {
-            tasks = service.findAllTasks(); // Получение всех задач, если тэг не указан
+            tasks = service.findTasksForView(); // Получение всех задач, если тэг не указан
         }
 
         // Добавление списка задач в модель представления
@@ -102,4 +127,69 @@ public class ViewController {
         return "taskpage"; // имя вашего шаблона списка задач
     }
 
+    /**
+     * Возвращает страницу задач, отфильтрованных по любой комбинации тэга, категории, префикса названия,
+     * диапазона дат создания и наличия вложений, и отсортированных по выбранному полю. В отличие от
+     * отдельных страниц сортировки и фильтрации, все условия применяются одновременно одним запросом к базе.
+     *
+     * @param model Модель представления для передачи атрибутов в шаблон.
+     * @param webRequest Текущий запрос, из которого берутся условные заголовки.
+     * @param tagId Идентификатор тэга (необязательный).
+     * @param categoryId Идентификатор категории (необязательный).
+     * @param titlePrefix Начало названия задачи (необязательный).
+     * @param createdFrom Нижняя граница даты создания (необязательный).
+     * @param createdTo Верхняя граница даты создания (необязательный).
+     * @param hasAttachments Отбор задач с вложениями или без них (необязательный).
+     * @param sort Поле сортировки.
+     * @param direction Направление сортировки.
+     * @return Имя шаблона страницы с задачами для отображения.
+     */
+    @GetMapping("/tasks/filter")
+    public String getTasksByFilter(Model model, WebRequest webRequest,
+                                   @RequestParam(value = "tagId", required = false) Long tagId,
+                                   @RequestParam(value = "categoryId", required = false) Long categoryId,
+                                   @RequestParam(value = "titlePrefix", required = false) String titlePrefix,
+                                   @RequestParam(value = "createdFrom", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdFrom,
+                                   @RequestParam(value = "createdTo", required = false)
+                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date createdTo,
+                                   @RequestParam(value = "hasAttachments", required = false) Boolean hasAttachments,
+                                   @RequestParam(value = "sort", required = false) String sort,
+                                   @RequestParam(value = "direction", required = false) String direction) {
+        if (isNotModified(webRequest)) {
+            return null;
+        }
+
+        // Получение задач, удовлетворяющих всем заданным условиям
+        TaskFilter filter = new TaskFilter(tagId, categoryId, titlePrefix, createdFrom, createdTo, hasAttachments);
+        List<Task> tasks = service.findTasks(filter, sort, direction, null);
+
+        // Добавление списка задач в модель представления
+        model.addAttribute("tasks", tasks);
+
+        // Возвращение имени шаблона страницы задач для отображения
+        return "taskpage";
+    }
+
+    /**
+     * Сравнивает условные заголовки запроса с версией списка задач. Все страницы списка строятся из одних
+     * и тех же задач, поэтому валидатор общий: количество задач и время последнего изменения любой из них,
+     * а также количество и время последнего изменения тэгов и категорий, имена которых выводятся на страницах.
+     * Если страница у клиента актуальна, ответ уже переведен в статус 304 и обработчик должен вернуть null.
+     */
+    private boolean isNotModified(WebRequest webRequest) {
+        TaskListVersion version = service.findTaskListVersion();
+        long tasksModified = toTimestamp(version.getLastModified());
+        long tagsModified = toTimestamp(version.getTagsModified());
+        long categoriesModified = toTimestamp(version.getCategoriesModified());
+        String etag = "\"tasks-" + version.getCount() + "-" + tasksModified
+                + "-tags-" + version.getTagCount() + "-" + tagsModified
+                + "-categories-" + version.getCategoryCount() + "-" + categoriesModified + "\"";
+        long lastModified = Math.max(tasksModified, Math.max(tagsModified, categoriesModified));
+        return webRequest.checkNotModified(etag, lastModified);
+    }
+
+    private static long toTimestamp(Date date) {
+        return date == null ? -1 : date.getTime();
+    }
 }
@@ -26,4 +26,94 @@ public class FileExceptionAdvice extends ResponseEntityExceptionHandler{
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(FileStorageException.class)
+    public ResponseEntity<Object> handleFileStorageException(FileStorageException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Could not store file", details);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Object> handleInvalidCursorException(InvalidCursorException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Invalid page cursor", details);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(InvalidTaskQueryException.class)
+    public ResponseEntity<Object> handleInvalidTaskQueryException(InvalidTaskQueryException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Invalid task query", details);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(InvalidBatchException.class)
+    public ResponseEntity<Object> handleInvalidBatchException(InvalidBatchException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Invalid batch", details);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<Object> handleInvalidUploadException(InvalidUploadException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Invalid upload", details);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(UploadSessionNotFoundException.class)
+    public ResponseEntity<Object> handleUploadSessionNotFoundException(UploadSessionNotFoundException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Upload session not found", details);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    @ExceptionHandler(ConversionJobNotFoundException.class)
+    public ResponseEntity<Object> handleConversionJobNotFoundException(ConversionJobNotFoundException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Conversion job not found", details);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    @ExceptionHandler(InvalidPageTierException.class)
+    public ResponseEntity<Object> handleInvalidPageTierException(InvalidPageTierException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Invalid page tier", details);
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
+    @ExceptionHandler(PageTooLargeException.class)
+    public ResponseEntity<Object> handlePageTooLargeException(PageTooLargeException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Page too large to render", details);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(RenderQueueFullException.class)
+    public ResponseEntity<Object> handleRenderQueueFullException(RenderQueueFullException exception)
+    {
+        List<String> details = new ArrayList<String>();
+        details.add(exception.getMessage());
+        ResponseError error = new ResponseError(LocalDateTime.now(), "Rendering is busy", details);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
  }
@@ -9,4 +9,9 @@ import lombok.Setter;
 @AllArgsConstructor
 public class FileStorageException extends RuntimeException{
     private String message;
+
+    public FileStorageException(String message, Throwable cause) {
+        super(message, cause);
+        this.message = message;
+    }
 }
@@ -0,0 +1,12 @@
+package com.example.todolist.exception;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class InvalidPageTierException extends RuntimeException{
+    private String message;
+}
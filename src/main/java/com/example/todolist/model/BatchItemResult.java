@@ -0,0 +1,13 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private Long id;
+    private BatchItemStatus status;
+    private String message;
+}
@@ -0,0 +1,9 @@
+package com.example.todolist.model;
+
+public enum BatchItemStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    INVALID
+}
@@ -1,12 +1,14 @@
 package com.example.todolist.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.util.Date;
 import java.util.List;
 
 @Getter
@@ -26,6 +28,19 @@ public class Category {
     @Column(length = 500)
     private String description;
 
+    // Время создания или изменения; входит в валидатор страниц со списком задач, где выводятся имена
+    @JsonIgnore
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModified;
+
+    // Экземпляры кэшируются вне сессии Hibernate, поэтому ленивый список задач не сериализуется
+    @JsonIgnore
     @OneToMany(mappedBy = "category", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Task> tasks;
+
+    @PrePersist
+    @PreUpdate
+    protected void onChange() {
+        lastModified = new Date();
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.todolist.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
@@ -7,19 +8,25 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.nio.file.Path;
+import java.util.Date;
 
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_file_content_hash", columnList = "content_hash"),
+        @Index(name = "idx_file_path", columnList = "file_path")
+})
 public class File {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "file_seq")
+    @SequenceGenerator(name = "file_seq", sequenceName = "file_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false)
+    @Column(name = "file_path", nullable = false)
     private String filePath;
 
     @Column(nullable = false)
@@ -27,10 +34,61 @@ public class File {
 
     private Long originalFieldID;
 
+    // Имя файла при загрузке; путь указывает на содержимое в хранилище по хэшу и имени не содержит
+    private String fileName;
+
+    // SHA-256 содержимого; записи с одинаковым хэшем ссылаются на один файл хранилища
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "file_size")
+    private Long size;
+
+    // Состояние отрисовки страниц PDF; null у остальных файлов и у PDF, отрисованных до появления очереди
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private PdfConversionStatus conversionStatus;
+
+    // Последнее задание отрисовки PDF, по которому клиент следит за ходом отрисовки
+    private Long conversionJobId;
+
+    // Количество страниц PDF и число уже отрисованных страниц
+    private Integer pageCount;
+
+    private Integer convertedPages;
+
+    // Номер страницы у изображения страницы PDF; по нему повторная отрисовка пропускает готовые страницы
+    private Integer pageIndex;
+
+    // Время записи файла; содержимое по идентификатору не меняется, поэтому валидаторы кэша строятся без чтения файла
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModified;
+
+    // Обратная ссылка на задачу не сериализуется: файлы отдаются в составе задачи, а кэшированные
+    // экземпляры файлов используются вне сессии Hibernate
+    @JsonIgnore
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "task_id", nullable = false)
     private Task task;
 
+    /**
+     * Имя файла для отдачи клиенту; у файлов, сохраненных до появления хранилища по хэшу, оно совпадает
+     * с именем на диске.
+     */
+    public String displayName() {
+        if (fileName != null) {
+            return fileName;
+        }
+        return Path.of(filePath).getFileName().toString();
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (this.lastModified == null) {
+            this.lastModified = new Date();
+        }
+    }
+
     @PostPersist
     public void setOriginalFieldID() {
         if (this.originalFieldID == null) {
@@ -0,0 +1,75 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+/**
+ * Задание на отрисовку страниц PDF-файла. Задания хранятся в базе, поэтому очередь переживает перезапуск
+ * приложения и разбирается обработчиками всех запущенных экземпляров.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "pdf_conversion_job", indexes = {
+        @Index(name = "idx_pdf_conversion_job_queue", columnList = "status, priority, next_attempt_at"),
+        @Index(name = "idx_pdf_conversion_job_file", columnList = "file_id")
+})
+public class PdfConversionJob {
+
+    // Загрузки пользователя отрисовываются раньше файлов, импортированных из архивов
+    public static final int PRIORITY_INTERACTIVE = 10;
+    public static final int PRIORITY_BULK = 0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pdf_conversion_job_seq")
+    @SequenceGenerator(name = "pdf_conversion_job_seq", sequenceName = "pdf_conversion_job_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private PdfConversionStatus status;
+
+    @Column(nullable = false)
+    private Integer priority;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    // Задание не выбирается раньше этого времени; при повторе после ошибки время сдвигается с экспоненциальной задержкой
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "next_attempt_at", nullable = false)
+    private Date nextAttemptAt;
+
+    private Integer pageCount;
+
+    private Integer pagesDone;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createdAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date startedAt;
+
+    // Обновляется после каждой страницы; по нему находятся задания, обработчик которых остановился
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date heartbeatAt;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date finishedAt;
+}
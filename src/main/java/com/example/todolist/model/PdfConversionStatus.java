@@ -0,0 +1,9 @@
+package com.example.todolist.model;
+
+public enum PdfConversionStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED,
+    CANCELLED
+}
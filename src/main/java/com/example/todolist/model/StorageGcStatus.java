@@ -0,0 +1,24 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class StorageGcStatus {
+    private boolean running;
+    private boolean dryRun;
+    private long scanned;
+    private long orphaned;
+    private long deleted;
+    private long reclaimedBytes;
+    private long tempDeleted;
+    private long failed;
+    private Date startedAt;
+    private Date finishedAt;
+    private long totalDeleted;
+    private long totalReclaimedBytes;
+    private long runs;
+}
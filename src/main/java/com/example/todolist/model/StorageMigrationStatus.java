@@ -0,0 +1,19 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class StorageMigrationStatus {
+    private boolean running;
+    private long scanned;
+    private long migrated;
+    private long missing;
+    private long failed;
+    private Long lastFileId;
+    private Date startedAt;
+    private Date finishedAt;
+}
@@ -1,5 +1,6 @@
 package com.example.todolist.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.util.Date;
 import lombok.Getter;
@@ -7,6 +8,7 @@ import lombok.Setter;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
 
 
 import java.util.List;
@@ -17,10 +19,18 @@ import java.util.List;
 @AllArgsConstructor
 @ToString
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_tag", columnList = "tag_id"),
+        @Index(name = "idx_task_category", columnList = "category_id"),
+        @Index(name = "idx_task_creation_date", columnList = "creation_date"),
+        @Index(name = "idx_task_title", columnList = "title")
+})
 public class Task {
 
+    // Идентификаторы выдаются из последовательности блоками по 50, что позволяет Hibernate объединять вставки в JDBC-пакеты
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_seq")
+    @SequenceGenerator(name = "task_seq", sequenceName = "task_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 100)
@@ -33,7 +43,17 @@ public class Task {
     @Column(nullable = false, updatable = false)
     private Date creationDate;
 
+    // Номер версии и время последнего изменения задачи или ее списка файлов; из них строятся ETag и Last-Modified.
+    // Версия увеличивается только запросом к базе, поэтому сохранение устаревшего экземпляра задачи
+    // не может записать прежнее значение
+    @Column(updatable = false)
+    private Long version;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date lastModified;
+
     @OneToMany(mappedBy = "task", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
     private List<File> files;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -50,9 +70,35 @@ public class Task {
         description = descriptionHere;
     }
 
+    // Тэг и категория на момент последней загрузки или сохранения; нужны для пересчета счетчиков при изменении задачи
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    private Long loadedTagId;
+
+    @Transient
+    @JsonIgnore
+    @ToString.Exclude
+    private Long loadedCategoryId;
+
     @PrePersist
     protected void onCreate(){
         creationDate = new Date();
+        lastModified = creationDate;
+        version = 1L;
+    }
+
+    @PreUpdate
+    protected void onUpdate(){
+        lastModified = new Date();
+    }
+
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    protected void rememberLoadedState(){
+        loadedTagId = tag == null ? null : tag.getId();
+        loadedCategoryId = category == null ? null : category.getId();
     }
 
 
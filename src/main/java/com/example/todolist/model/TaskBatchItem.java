@@ -0,0 +1,16 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskBatchItem {
+    private Long id;
+    private String title;
+    private String description;
+    private Long categoryId;
+    private Long tagId;
+}
@@ -0,0 +1,13 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class TaskCounts {
+    private Map<Long, Long> tags;
+    private Map<Long, Long> categories;
+}
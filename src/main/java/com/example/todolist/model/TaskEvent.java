@@ -0,0 +1,17 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskEvent {
+    private String id;
+    private TaskEventType type;
+    private Long taskId;
+    private Date timestamp;
+}
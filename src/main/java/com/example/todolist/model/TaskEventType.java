@@ -0,0 +1,7 @@
+package com.example.todolist.model;
+
+public enum TaskEventType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
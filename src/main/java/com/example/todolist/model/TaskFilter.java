@@ -0,0 +1,19 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskFilter {
+    private Long tagId;
+    private Long categoryId;
+    private String titlePrefix;
+    private Date createdFrom;
+    private Date createdTo;
+    private Boolean hasAttachments;
+}
@@ -0,0 +1,36 @@
+package com.example.todolist.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class TaskListItem {
+    private Long id;
+    private String title;
+    private Date creationDate;
+    private String tagName;
+    private String categoryName;
+    private Long attachmentCount;
+
+    // Тяжелые поля заполняются только по запросу (?expand=description,files)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String description;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<File> files;
+
+    public TaskListItem(Long id, String title, Date creationDate, String tagName, String categoryName,
+                        Long attachmentCount) {
+        this.id = id;
+        this.title = title;
+        this.creationDate = creationDate;
+        this.tagName = tagName;
+        this.categoryName = categoryName;
+        this.attachmentCount = attachmentCount;
+    }
+}
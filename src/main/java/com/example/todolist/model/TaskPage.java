@@ -0,0 +1,13 @@
+package com.example.todolist.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class TaskPage<T> {
+    private List<T> items;
+    private String nextCursor;
+}
@@ -0,0 +1,34 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_upload_chunk", columnNames = {"session_id", "chunk_index"}))
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "upload_chunk_seq")
+    @SequenceGenerator(name = "upload_chunk_seq", sequenceName = "upload_chunk_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "session_id", nullable = false, length = 36)
+    private String sessionId;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(nullable = false)
+    private Integer size;
+
+    // SHA-256 принятой части, проверенный при записи
+    @Column(nullable = false, length = 64)
+    private String checksum;
+}
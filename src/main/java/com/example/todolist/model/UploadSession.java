@@ -0,0 +1,63 @@
+package com.example.todolist.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.Date;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(nullable = false)
+    private Long taskId;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer chunkSize;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false, updatable = false)
+    private Date creationDate;
+
+    // Время последней принятой части; по нему удаляются брошенные сессии
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(nullable = false)
+    private Date lastActivityAt;
+
+    // Сессия завершается: новые части не принимаются
+    @Column(nullable = false)
+    private boolean committing;
+
+    // Число запросов, которые сейчас пишут части; сессию можно завершить, только когда их нет
+    @Column(nullable = false)
+    private int activeWriters;
+
+    @PrePersist
+    protected void onCreate(){
+        creationDate = new Date();
+        lastActivityAt = creationDate;
+    }
+
+    public int getChunkCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+}
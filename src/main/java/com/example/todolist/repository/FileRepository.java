@@ -1,10 +1,20 @@
 package com.example.todolist.repository;
 
 import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionStatus;
 import com.example.todolist.model.Task;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface FileRepository extends JpaRepository<File, Long>{
     List<File> findByTaskId(Long id);
@@ -12,4 +22,57 @@ public interface FileRepository extends JpaRepository<File, Long>{
     File findFileById(Long id);
 
     List<File> findByOriginalFieldID(Long pdfId);
+
+    // Количество ссылок на содержимое в хранилище
+    long countByContentHash(String contentHash);
+
+    // Другие записи того же PDF, страницы которых уже отрисованы (записи без состояния отрисованы до появления очереди)
+    @Query("select f from File f where f.contentHash = :hash and f.fileType = :type and f.id <> :id " +
+            "and (f.conversionStatus is null or f.conversionStatus = :done) order by f.id")
+    List<File> findConvertedCopies(@Param("hash") String contentHash, @Param("type") String fileType,
+                                   @Param("id") Long id, @Param("done") PdfConversionStatus done);
+
+    List<File> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<File> findByFilePath(String filePath);
+
+    // Хэши из переданных, на которые ссылается хотя бы одна запись; одна проверка на пачку файлов хранилища
+    @Query("select distinct f.contentHash from File f where f.contentHash in :hashes")
+    Set<String> findReferencedHashes(@Param("hashes") Collection<String> hashes);
+
+    // Пути из переданных, на которые ссылается хотя бы одна запись; одна проверка на пачку файлов директории загрузок
+    @Query("select distinct f.filePath from File f where f.filePath in :paths")
+    Set<String> findReferencedPaths(@Param("paths") Collection<String> paths);
+
+    // Все записи, ссылающиеся на один файл, переводятся на новый путь одним запросом
+    @Transactional
+    @Modifying
+    @Query("update File f set f.filePath = :newPath, f.contentHash = :hash, f.size = :size where f.filePath = :oldPath")
+    int relocate(@Param("oldPath") String oldPath, @Param("newPath") String newPath,
+                 @Param("hash") String hash, @Param("size") Long size);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.conversionStatus = :status, f.lastModified = :now where f.id = :id")
+    int updateConversionStatus(@Param("id") Long id, @Param("status") PdfConversionStatus status,
+                               @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update File f set f.pageCount = :pageCount, f.convertedPages = :convertedPages where f.id = :id")
+    int updateConversionProgress(@Param("id") Long id, @Param("pageCount") Integer pageCount,
+                                 @Param("convertedPages") Integer convertedPages);
+
+    // Задание ставится в очередь после сохранения записи; обновляется только ссылка на задание, чтобы не затереть
+    // состояние, которое к этому моменту мог записать поток отрисовки
+    @Transactional
+    @Modifying
+    @Query("update File f set f.conversionJobId = :jobId where f.id = :id")
+    int updateConversionJobId(@Param("id") Long id, @Param("jobId") Long jobId);
+
+    // Список файлов входит в представление задачи, поэтому при его изменении версия задачи увеличивается
+    @Transactional
+    @Modifying
+    @Query("update Task t set t.version = coalesce(t.version, 0) + 1, t.lastModified = :now where t.id = :taskId")
+    int touchTask(@Param("taskId") Long taskId, @Param("now") Date now);
 }
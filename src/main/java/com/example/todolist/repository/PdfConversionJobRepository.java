@@ -0,0 +1,71 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+
+public interface PdfConversionJobRepository extends JpaRepository<PdfConversionJob, Long> {
+
+    // Следующее готовое к выполнению задание с наибольшим приоритетом. Строки, захваченные другими обработчиками
+    // (в том числе других экземпляров приложения), пропускаются без ожидания блокировки
+    @Query(value = "select * from pdf_conversion_job where status = 'QUEUED' and next_attempt_at <= :now " +
+            "order by priority desc, id asc limit 1 for update skip locked", nativeQuery = true)
+    Optional<PdfConversionJob> findNextForUpdate(@Param("now") Date now);
+
+    Optional<PdfConversionJob> findFirstByFileIdOrderByIdDesc(Long fileId);
+
+    // Обновления выполняющегося задания применяются, только пока задание принадлежит захватившему его обработчику:
+    // после возврата в очередь или отмены статус или номер попытки другие, и обновление не затрагивает ни одной строки
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.heartbeatAt = :now " +
+            "where j.id = :id and j.status = :running and j.attempts = :attempt")
+    int heartbeat(@Param("id") Long id, @Param("attempt") Integer attempt,
+                  @Param("running") PdfConversionStatus running, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.pageCount = :pageCount, j.pagesDone = :pagesDone, j.heartbeatAt = :now " +
+            "where j.id = :id and j.status = :running and j.attempts = :attempt")
+    int updateProgress(@Param("id") Long id, @Param("attempt") Integer attempt,
+                       @Param("running") PdfConversionStatus running, @Param("pageCount") Integer pageCount,
+                       @Param("pagesDone") Integer pagesDone, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.status = :status, j.lastError = :error, j.finishedAt = :now " +
+            "where j.id = :id and j.status = :running and j.attempts = :attempt")
+    int finish(@Param("id") Long id, @Param("attempt") Integer attempt, @Param("running") PdfConversionStatus running,
+               @Param("status") PdfConversionStatus status, @Param("error") String error, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.status = :queued, j.lastError = :error, j.nextAttemptAt = :nextAttemptAt " +
+            "where j.id = :id and j.status = :running and j.attempts = :attempt")
+    int requeue(@Param("id") Long id, @Param("attempt") Integer attempt, @Param("running") PdfConversionStatus running,
+                @Param("queued") PdfConversionStatus queued, @Param("error") String error,
+                @Param("nextAttemptAt") Date nextAttemptAt);
+
+    // Задания, обработчик которых перестал отмечаться (остановка экземпляра приложения), возвращаются в очередь
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.status = :queued, j.nextAttemptAt = :now " +
+            "where j.status = :running and j.heartbeatAt < :stalledBefore")
+    int requeueStalled(@Param("queued") PdfConversionStatus queued, @Param("running") PdfConversionStatus running,
+                       @Param("stalledBefore") Date stalledBefore, @Param("now") Date now);
+
+    @Transactional
+    @Modifying
+    @Query("update PdfConversionJob j set j.status = :cancelled, j.finishedAt = :now " +
+            "where j.fileId in :fileIds and j.status in :active")
+    int cancelForFiles(@Param("fileIds") Collection<Long> fileIds, @Param("active") Collection<PdfConversionStatus> active,
+                       @Param("cancelled") PdfConversionStatus cancelled, @Param("now") Date now);
+}
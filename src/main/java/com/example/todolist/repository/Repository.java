@@ -1,15 +1,90 @@
 package com.example.todolist.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import jakarta.persistence.QueryHint;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskListItem;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface Repository extends JpaRepository<Task, Long>{
+public interface Repository extends JpaRepository<Task, Long>, JpaSpecificationExecutor<Task>, TaskQueryRepository {
     List<Task> findByTitle(String title);
 
+    // Задача для кэша: все ассоциации загружаются сразу, так как экземпляр используется вне сессии Hibernate
+    @EntityGraph(attributePaths = {"files", "category", "tag"})
+    Optional<Task> findWithAssociationsById(Long id);
+
+    // Запросы для страницы задач: файлы, категория и тэг загружаются тем же запросом, что и задачи
+    @EntityGraph(attributePaths = {"files", "category", "tag"})
+    @Query("select t from Task t order by t.id")
+    List<Task> findAllForView();
+
+    @EntityGraph(attributePaths = {"files", "category", "tag"})
     List<Task> findAllByOrderByCreationDate();
 
+    @EntityGraph(attributePaths = {"files", "category", "tag"})
     List<Task> findAllByOrderByTitleAsc();
 
+    @EntityGraph(attributePaths = {"files", "category", "tag"})
     List<Task> findByTagId(Long id);
+
+    // Постраничная выборка: категория и тэг соединяются в запросе, файлы догружаются пакетами (@BatchSize)
+    @EntityGraph(attributePaths = {"category", "tag"})
+    List<Task> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    // Облегченная постраничная выборка для списков: только нужные столбцы и количество вложений подзапросом.
+    // Вложениями считаются исходные файлы, без изображений страниц, полученных из PDF
+    @Query("select new com.example.todolist.model.TaskListItem(t.id, t.title, t.creationDate, tg.name, c.name, " +
+            "(select count(f) from File f where f.task = t and (f.originalFieldID is null or f.originalFieldID = f.id))) " +
+            "from Task t join t.tag tg join t.category c where t.id > :afterId order by t.id")
+    List<TaskListItem> findListItemsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Однонаправленный курсор по всем задачам: строки читаются из базы порциями по fetchSize
+    @EntityGraph(attributePaths = {"category", "tag"})
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("select t from Task t order by t.id")
+    Stream<Task> streamAllBy();
+
+    // Общий валидатор для страниц со списком задач: меняется при создании, изменении и удалении любой задачи,
+    // а также тэга или категории, имена которых выводятся на этих страницах
+    @Query("select count(t) as count, max(coalesce(t.lastModified, t.creationDate)) as lastModified, " +
+            "(select count(g) from Tag g) as tagCount, (select max(g.lastModified) from Tag g) as tagsModified, " +
+            "(select count(c) from Category c) as categoryCount, " +
+            "(select max(c.lastModified) from Category c) as categoriesModified from Task t")
+    TaskListVersion findListVersion();
+
+    @Query("select t.tag.id as id, count(t) as count from Task t group by t.tag.id")
+    List<TaskCount> countTasksByTag();
+
+    @Query("select t.category.id as id, count(t) as count from Task t group by t.category.id")
+    List<TaskCount> countTasksByCategory();
+
+    // Версия увеличивается от значения в базе, а не от значения в сохраняемом экземпляре задачи
+    @Modifying
+    @Query("update Task t set t.version = coalesce(t.version, 0) + 1, t.lastModified = :now where t.id in :ids")
+    int bumpVersion(@Param("ids") Collection<Long> ids, @Param("now") Date now);
+
+    // Задачи, которые будут удалены каскадно вместе с тэгом или категорией
+    @Query("select t.id as id, t.tag.id as tagId, t.category.id as categoryId from Task t where t.tag.id = :tagId")
+    List<TaskRef> findRefsByTagId(@Param("tagId") Long tagId);
+
+    @Query("select t.id as id, t.tag.id as tagId, t.category.id as categoryId from Task t where t.category.id = :categoryId")
+    List<TaskRef> findRefsByCategoryId(@Param("categoryId") Long categoryId);
+
+    // Идентификаторы всех файлов задач, включая изображения страниц PDF
+    @Query("select f.id from File f where f.task.id in :taskIds")
+    List<Long> findFileIdsByTaskIds(@Param("taskIds") Collection<Long> taskIds);
 }
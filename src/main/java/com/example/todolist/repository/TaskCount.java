@@ -0,0 +1,7 @@
+package com.example.todolist.repository;
+
+public interface TaskCount {
+    Long getId();
+
+    long getCount();
+}
@@ -0,0 +1,17 @@
+package com.example.todolist.repository;
+
+import java.util.Date;
+
+public interface TaskListVersion {
+    long getCount();
+
+    Date getLastModified();
+
+    long getTagCount();
+
+    Date getTagsModified();
+
+    long getCategoryCount();
+
+    Date getCategoriesModified();
+}
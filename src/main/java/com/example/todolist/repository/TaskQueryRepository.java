@@ -0,0 +1,14 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskListItem;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface TaskQueryRepository {
+    List<Task> findTasks(Specification<Task> specification, Sort sort, int limit);
+
+    List<TaskListItem> findTaskListItems(Specification<Task> specification, Sort sort, int limit);
+}
@@ -0,0 +1,91 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.File;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskListItem;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+public class TaskQueryRepositoryImpl implements TaskQueryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Выполняет выборку задач по спецификации с сортировкой и ограничением количества строк одним SQL-запросом.
+     * В отличие от findAll(Specification, Pageable) не выполняет дополнительный count-запрос.
+     *
+     * @param specification Условия отбора задач.
+     * @param sort Порядок сортировки.
+     * @param limit Максимальное количество возвращаемых задач.
+     * @return Список задач, удовлетворяющих условиям.
+     */
+    @Override
+    public List<Task> findTasks(Specification<Task> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Task> query = cb.createQuery(Task.class);
+        Root<Task> root = query.from(Task.class);
+
+        // Категория и тэг загружаются тем же запросом, файлы догружаются пакетами через @BatchSize
+        root.fetch("category");
+        root.fetch("tag");
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(root).orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Выполняет ту же выборку, что и {@link #findTasks(Specification, Sort, int)}, но возвращает облегченное
+     * представление задач: выбираются только столбцы, нужные для списка, а количество вложений считается подзапросом.
+     *
+     * @param specification Условия отбора задач.
+     * @param sort Порядок сортировки.
+     * @param limit Максимальное количество возвращаемых задач.
+     * @return Список облегченных представлений задач.
+     */
+    @Override
+    public List<TaskListItem> findTaskListItems(Specification<Task> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskListItem> query = cb.createQuery(TaskListItem.class);
+        Root<Task> root = query.from(Task.class);
+        Join<Object, Object> tag = root.join("tag");
+        Join<Object, Object> category = root.join("category");
+
+        // Исходные файлы задачи, без изображений страниц, полученных из PDF
+        Subquery<Long> attachments = query.subquery(Long.class);
+        Root<File> file = attachments.from(File.class);
+        attachments.select(cb.count(file)).where(
+                cb.equal(file.get("task"), root),
+                cb.or(cb.isNull(file.get("originalFieldID")), cb.equal(file.get("originalFieldID"), file.get("id"))));
+
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(cb.construct(TaskListItem.class, root.get("id"), root.get("title"), root.get("creationDate"),
+                        tag.get("name"), category.get("name"), attachments))
+                .orderBy(QueryUtils.toOrders(sort, root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.todolist.repository;
+
+public interface TaskRef {
+    Long getId();
+
+    Long getTagId();
+
+    Long getCategoryId();
+}
@@ -0,0 +1,76 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.File;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskFilter;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Date;
+
+/**
+ * Набор условий для выборки задач. Каждое условие добавляется в запрос только если соответствующий
+ * параметр фильтра задан, поэтому любая комбинация фильтров превращается в один SQL-запрос.
+ */
+public final class TaskSpecifications {
+
+    private TaskSpecifications() {
+    }
+
+    public static Specification<Task> fromFilter(TaskFilter filter) {
+        return Specification.where(hasTag(filter.getTagId()))
+                .and(hasCategory(filter.getCategoryId()))
+                .and(titleStartsWith(filter.getTitlePrefix()))
+                .and(createdFrom(filter.getCreatedFrom()))
+                .and(createdTo(filter.getCreatedTo()))
+                .and(hasAttachments(filter.getHasAttachments()));
+    }
+
+    public static Specification<Task> hasTag(Long tagId) {
+        return (root, query, cb) -> tagId == null ? null : cb.equal(root.get("tag").get("id"), tagId);
+    }
+
+    public static Specification<Task> hasCategory(Long categoryId) {
+        return (root, query, cb) -> categoryId == null ? null : cb.equal(root.get("category").get("id"), categoryId);
+    }
+
+    /**
+     * Поиск по началу названия. Используется LIKE с фиксированным префиксом, чтобы запрос мог идти по индексу
+     * idx_task_title_pattern (см. {@link com.example.todolist.config.TitleIndexInitializer}); спецсимволы LIKE
+     * во входной строке экранируются.
+     */
+    public static Specification<Task> titleStartsWith(String prefix) {
+        return (root, query, cb) -> {
+            if (prefix == null || prefix.isEmpty()) {
+                return null;
+            }
+            String escaped = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+            return cb.like(root.get("title"), escaped + "%", '\\');
+        };
+    }
+
+    public static Specification<Task> createdFrom(Date from) {
+        return (root, query, cb) -> from == null ? null : cb.greaterThanOrEqualTo(root.get("creationDate"), from);
+    }
+
+    public static Specification<Task> createdTo(Date to) {
+        return (root, query, cb) -> to == null ? null : cb.lessThan(root.get("creationDate"), to);
+    }
+
+    /**
+     * Наличие вложений проверяется коррелированным подзапросом EXISTS по file.task_id, а не соединением,
+     * чтобы задачи с несколькими файлами не дублировались в результате.
+     */
+    public static Specification<Task> hasAttachments(Boolean hasAttachments) {
+        return (root, query, cb) -> {
+            if (hasAttachments == null) {
+                return null;
+            }
+            Subquery<Long> files = query.subquery(Long.class);
+            Root<File> file = files.from(File.class);
+            files.select(file.get("id")).where(cb.equal(file.get("task"), root));
+            return hasAttachments ? cb.exists(files) : cb.not(cb.exists(files));
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+    List<UploadChunk> findBySessionIdOrderByChunkIndexAsc(String sessionId);
+
+    Optional<UploadChunk> findBySessionIdAndChunkIndex(String sessionId, Integer chunkIndex);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UploadChunk c where c.sessionId = :sessionId and c.chunkIndex = :chunkIndex")
+    int deleteBySessionIdAndChunkIndex(@Param("sessionId") String sessionId, @Param("chunkIndex") Integer chunkIndex);
+
+    @Transactional
+    @Modifying
+    @Query("delete from UploadChunk c where c.sessionId = :sessionId")
+    int deleteBySessionId(@Param("sessionId") String sessionId);
+}
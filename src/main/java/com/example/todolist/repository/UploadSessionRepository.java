@@ -0,0 +1,44 @@
+package com.example.todolist.repository;
+
+import com.example.todolist.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByLastActivityAtBefore(Date date);
+
+    // Запись части начинается, только пока сессия не завершается; 0 - сессия завершается или удалена
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.activeWriters = s.activeWriters + 1, s.lastActivityAt = :date " +
+            "where s.id = :id and s.committing = false")
+    int startWrite(@Param("id") String id, @Param("date") Date date);
+
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.activeWriters = s.activeWriters - 1 where s.id = :id")
+    int finishWrite(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.lastActivityAt = :date where s.id = :id")
+    int touch(@Param("id") String id, @Param("date") Date date);
+
+    // Завершение начинается, только когда ни одна часть не пишется и сессия еще не завершается
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.committing = true, s.lastActivityAt = :date " +
+            "where s.id = :id and s.committing = false and s.activeWriters = 0")
+    int startCommit(@Param("id") String id, @Param("date") Date date);
+
+    @Transactional
+    @Modifying
+    @Query("update UploadSession s set s.committing = false where s.id = :id")
+    int cancelCommit(@Param("id") String id);
+}
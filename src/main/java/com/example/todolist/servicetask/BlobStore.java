@@ -0,0 +1,241 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.exception.FileStorageException;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Хранилище содержимого файлов, адресуемое по SHA-256. Файл с одинаковым содержимым хранится на диске один раз,
+ * сколько бы записей {@link com.example.todolist.model.File} на него ни ссылалось; количество ссылок на содержимое
+ * определяется числом таких записей с тем же хэшем. Содержимое под хэшем никогда не перезаписывается,
+ * поэтому одноименные файлы разных задач не затирают друг друга.
+ */
+@Service
+public class BlobStore {
+
+    private static final String BLOB_DIRECTORY = "blobs";
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path blobDirectory;
+    private final Path tempDirectory;
+
+    public BlobStore(StorageProperties storageProperties) {
+        Path root = Paths.get(storageProperties.getLocation()).toAbsolutePath().normalize();
+        this.blobDirectory = root.resolve(BLOB_DIRECTORY);
+        this.tempDirectory = root.resolve(TEMP_DIRECTORY);
+        try {
+            Files.createDirectories(blobDirectory);
+            Files.createDirectories(tempDirectory);
+        } catch (IOException exception) {
+            throw new FileStorageException("Could not create blob store dir!");
+        }
+    }
+
+    /**
+     * Сохраняет содержимое источника. Сначала содержимое читается потоком для вычисления хэша, и если такое
+     * содержимое уже есть в хранилище, запись на диск не выполняется. Новое содержимое копируется во временный
+     * файл и атомарно переименовывается в путь по хэшу, поэтому читатели никогда не видят частично записанный файл.
+     *
+     * @param source Источник содержимого, который можно прочитать повторно (загруженный файл, файл на диске).
+     * @return Хэш, размер и путь сохраненного содержимого.
+     * @throws IOException Если содержимое не удалось прочитать или записать.
+     */
+    public StoredBlob store(InputStreamSource source) throws IOException {
+        StoredBlob content = digest(source.getInputStream(), null);
+        String hash = content.hash();
+        long size = content.size();
+        Path target = resolve(hash);
+
+        // Повторная загрузка того же содержимого: достаточно новой ссылки на уже сохраненный файл
+        if (touch(target)) {
+            return new StoredBlob(hash, size, target, content.contentType());
+        }
+
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(tempDirectory, hash, ".part");
+        try {
+            try (InputStream in = source.getInputStream()) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException exception) {
+            // То же содержимое одновременно сохранено другим запросом. В Linux переименование молча заменяет
+            // файл с тем же содержимым, а в Windows перемещение с ATOMIC_MOVE на существующий файл завершается
+            // этим исключением, поэтому обработка остается ради переносимости
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return new StoredBlob(hash, size, target, content.contentType());
+    }
+
+    /**
+     * Помещает в хранилище файл, уже записанный во временную директорию хранилища, переименованием без копирования.
+     * Если такое содержимое уже есть, исходный файл удаляется. Хэш и тип содержимого вычисляются за одно чтение
+     * файла, которое обычно обслуживается из страничного кэша, так как файл только что записан.
+     *
+     * @param file Файл во временной директории хранилища; после вызова по исходному пути не существует.
+     * @return Хэш, размер и путь сохраненного содержимого.
+     * @throws IOException Если файл не удалось прочитать или перенести.
+     */
+    public StoredBlob storeFile(Path file) throws IOException {
+        StoredBlob content = hash(file);
+        Path target = resolve(content.hash());
+        if (touch(target)) {
+            Files.delete(file);
+        } else {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException exception) {
+                // То же содержимое одновременно сохранено другим запросом. В Linux переименование молча заменяет
+                // файл с тем же содержимым, а в Windows перемещение с ATOMIC_MOVE на существующий файл завершается
+                // этим исключением, поэтому обработка остается ради переносимости
+                Files.deleteIfExists(file);
+            }
+        }
+        return new StoredBlob(content.hash(), content.size(), target, content.contentType());
+    }
+
+    /**
+     * Возвращает путь содержимого в двухуровневой раскладке blobs/ab/cd/abcd...: первые два байта хэша задают
+     * 65536 директорий с равномерным распределением, поэтому размер каждой директории и стоимость поиска в ней
+     * не растут с общим количеством файлов.
+     *
+     * @param hash SHA-256 содержимого в шестнадцатеричном виде.
+     * @return Путь файла в хранилище.
+     */
+    public Path resolve(String hash) {
+        return blobDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    /**
+     * Проверяет, лежит ли файл записи уже в раскладке хранилища.
+     */
+    public boolean isInLayout(String filePath, String hash) {
+        return hash != null && Paths.get(filePath).toAbsolutePath().normalize().equals(resolve(hash));
+    }
+
+    /**
+     * Вычисляет SHA-256 файла потоковым чтением и распознает тип содержимого по первым байтам.
+     */
+    public StoredBlob hash(Path file) throws IOException {
+        return digest(Files.newInputStream(file), file);
+    }
+
+    private static StoredBlob digest(InputStream source, Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] head = new byte[ContentTypeSniffer.HEAD_LENGTH];
+        int headLength = 0;
+        long size = 0;
+        try (InputStream in = source) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                // Первые байты сохраняются для распознавания сигнатуры без отдельного чтения файла
+                if (headLength < head.length) {
+                    int copied = Math.min(read, head.length - headLength);
+                    System.arraycopy(buffer, 0, head, headLength, copied);
+                    headLength += copied;
+                }
+                size += read;
+            }
+        }
+        return new StoredBlob(HexFormat.of().formatHex(digest.digest()), size, path,
+                ContentTypeSniffer.detect(head, headLength));
+    }
+
+    /**
+     * Переносит существующий файл в хранилище под заданным хэшем, не удаляя исходный файл: исходный путь
+     * остается доступным, пока ссылающиеся на него записи не переведены на новый путь. На том же разделе
+     * создается жесткая ссылка без копирования данных; если это невозможно, файл копируется.
+     *
+     * @param source Существующий файл.
+     * @param hash SHA-256 содержимого файла.
+     * @return Путь файла в хранилище.
+     */
+    public Path adopt(Path source, String hash) throws IOException {
+        Path target = resolve(hash);
+        if (touch(target)) {
+            return target;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(tempDirectory, hash, ".part");
+        try {
+            Files.delete(temp);
+            try {
+                Files.createLink(temp, source);
+            } catch (IOException | UnsupportedOperationException exception) {
+                Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException exception) {
+            // То же содержимое одновременно перенесено другим потоком. В Linux переименование молча заменяет
+            // файл с тем же содержимым, а в Windows перемещение с ATOMIC_MOVE на существующий файл завершается
+            // этим исключением, поэтому обработка остается ради переносимости
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return target;
+    }
+
+    // Новая ссылка на существующее содержимое продлевает его срок: очистка не удаляет недавно измененные файлы,
+    // поэтому содержимое не будет удалено, пока ссылающаяся на него запись еще не сохранена
+    // Продлевает срок хранения существующего файла; false, если файла нет, в том числе если очистка хранилища
+    // только что перенесла его в корзину: тогда содержимое записывается заново
+    private static boolean touch(Path target) throws IOException {
+        try {
+            Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+            return true;
+        } catch (NoSuchFileException exception) {
+            return false;
+        }
+    }
+
+    public boolean exists(String hash) {
+        return Files.exists(resolve(hash));
+    }
+
+    public Path blobDirectory() {
+        return blobDirectory;
+    }
+
+    /**
+     * Директория для промежуточных файлов на том же разделе, что и хранилище; файлы из нее переносятся
+     * в хранилище переименованием без копирования.
+     */
+    public Path tempDirectory() {
+        return tempDirectory;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Сохраненное содержимое: хэш, размер, путь в хранилище и тип, распознанный по сигнатуре (null, если
+     * сигнатура не распознана).
+     */
+    public record StoredBlob(String hash, long size, Path path, String contentType) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.todolist.servicetask;
+
+import java.util.Arrays;
+
+/**
+ * Определяет тип содержимого файла по сигнатуре в первых байтах. Тип, присланный клиентом, может не совпадать
+ * с содержимым, а от типа зависит обработка файла (PDF отрисовывается постранично), поэтому для форматов
+ * с однозначной сигнатурой решает содержимое, а не заголовок запроса.
+ */
+public final class ContentTypeSniffer {
+
+    /**
+     * Количество первых байтов содержимого, достаточное для распознавания всех известных сигнатур. Сигнатуру PDF
+     * читатели ищут в первом килобайте файла, а не только в самом начале.
+     */
+    public static final int HEAD_LENGTH = 1024;
+
+    private static final byte[] PDF_SIGNATURE = {'%', 'P', 'D', 'F', '-'};
+
+    public static final String PDF = "application/pdf";
+    public static final String OCTET_STREAM = "application/octet-stream";
+    private static final String ZIP = "application/zip";
+
+    private ContentTypeSniffer() {
+    }
+
+    /**
+     * Распознает тип содержимого по его первым байтам.
+     *
+     * @param head Первые байты содержимого.
+     * @param length Количество прочитанных байтов (может быть меньше длины массива для коротких файлов).
+     * @return Тип содержимого или null, если сигнатура не распознана.
+     */
+    public static String detect(byte[] head, int length) {
+        // Перед заголовком PDF может стоять мусор (например, заголовок почтового вложения или BOM)
+        if (contains(head, length, PDF_SIGNATURE)) {
+            return PDF;
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n')) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 'P', 'K', 0x03, 0x04)) {
+            return ZIP;
+        }
+        return null;
+    }
+
+    /**
+     * Выбирает тип, под которым будет сохранен файл. Распознанная сигнатура PDF или изображения важнее типа
+     * из запроса. ZIP-сигнатура есть и у документов офисных форматов, поэтому она используется, только если
+     * клиент не указал конкретный тип. Файл, объявленный как PDF без сигнатуры PDF, сохраняется как двоичный,
+     * чтобы его не пытались отрисовать.
+     *
+     * @param declared Тип из запроса или определенный по расширению, может быть null.
+     * @param detected Тип, распознанный {@link #detect(byte[], int)}, может быть null.
+     * @return Тип содержимого для записи о файле.
+     */
+    public static String resolve(String declared, String detected) {
+        boolean declaredGeneric = declared == null || declared.isBlank() || OCTET_STREAM.equals(declared);
+        if (detected != null && (!ZIP.equals(detected) || declaredGeneric)) {
+            return detected;
+        }
+        if (declaredGeneric || PDF.equals(declared)) {
+            return OCTET_STREAM;
+        }
+        return declared;
+    }
+
+    private static boolean contains(byte[] head, int length, byte[] signature) {
+        for (int start = 0; start + signature.length <= length; start++) {
+            if (Arrays.equals(head, start, start + signature.length, signature, 0, signature.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
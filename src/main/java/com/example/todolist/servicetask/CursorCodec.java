@@ -0,0 +1,50 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Кодирует и декодирует токен продолжения для постраничной выдачи задач. Токен содержит идентификатор
+ * последней отданной задачи, поэтому следующая страница начинается строго после него и не зависит
+ * от вставок и удалений, произошедших между запросами.
+ */
+public final class CursorCodec {
+
+    private static final String PREFIX = "id:";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(Long lastId) {
+        String raw = PREFIX + lastId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Возвращает идентификатор, после которого начинается страница. Пустой токен означает первую страницу.
+     *
+     * @param cursor Токен продолжения, полученный клиентом из предыдущей страницы.
+     * @return Идентификатор последней отданной задачи или 0 для первой страницы.
+     * @throws InvalidCursorException Если токен поврежден или создан не этим сервисом.
+     */
+    public static long decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            long lastId = Long.parseLong(raw.substring(PREFIX.length()));
+            if (lastId < 0) {
+                throw new InvalidCursorException("Invalid cursor");
+            }
+            return lastId;
+        } catch (IllegalArgumentException exception) {
+            throw new InvalidCursorException("Invalid cursor");
+        }
+    }
+}
@@ -1,31 +1,67 @@
 package com.example.todolist.servicetask;
 
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.File;
 import com.example.todolist.model.Task;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 
 public interface FileSystemStorage{
+    // Изображение страницы PDF и его тип содержимого, зависящий от уровня качества
+    record PageImage(byte[] content, String contentType) {
+    }
+
+    // Содержимое файла запроса, уже сохраненное в хранилище, но еще не связанное с задачей
+    record StoredUpload(BlobStore.StoredBlob blob, String fileName, String declaredType) {
+    }
+
     void init();
-    String saveFile(MultipartFile file, Task task);
+    File saveFile(MultipartFile file, Task task);
+
+    StoredUpload storeUpload(MultipartFile file);
+
+    File attachUpload(StoredUpload upload, Task task);
+
     Resource loadFile(String fileName);
     List<File> getFilesByTaskId(Long taskId);
 
     File findFileById(Long id);
 
-    ResponseEntity<Resource> downloadRegularFile(File fileEntity) throws MalformedURLException;
+    CacheStats fileCacheStats();
+
+    Map<String, CacheStats> pageCacheStats();
+
+    void sendRegularFile(File fileEntity, String eTag, HttpServletRequest request, HttpServletResponse response)
+            throws IOException;
 
-    ResponseEntity<Resource> downloadPdfAsZip(File fileEntity, HttpServletResponse response);
+    ResponseEntity<Resource> downloadPdfAsZip(File fileEntity, String tier, HttpServletResponse response);
 
     java.io.File saveZipEntryToFile(ZipInputStream zipIn, String fileName) throws IOException;
 
     void saveFromZipFile(java.io.File file, Task task);
+
+    File saveUploadedFile(Path file, String fileName, String contentType, Task task);
+
+    PageImage getPdfPage(File pdfEntity, int pageIndex, String tier) throws IOException;
+
+    void writeRenderedPdfPages(File pdfEntity, String tier, ZipOutputStream zippedOut) throws IOException;
+
+    void convertPdfPages(File pdfEntity, BiConsumer<Integer, Integer> progress) throws IOException;
+
+    void discardFiles(Collection<File> files);
+
+    void evictFiles(Collection<Long> fileIds);
 }
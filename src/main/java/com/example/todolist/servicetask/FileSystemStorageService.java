@@ -1,34 +1,52 @@
 package com.example.todolist.servicetask;
 
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.Date;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import javax.annotation.PostConstruct;
 
+import com.example.todolist.cache.LruCache;
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.PdfConversionProperties;
 import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskEventType;
 import com.example.todolist.repository.FileRepository;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 import com.example.todolist.exception.FileNotFoundException;
 import com.example.todolist.exception.FileStorageException;
+import com.example.todolist.exception.InvalidPageTierException;
 
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -41,13 +59,45 @@ public class FileSystemStorageService implements FileSystemStorage {
 
     private final PDFService pdfService;
 
+    private final TaskCache taskCache;
+
+    private final TaskEventBroadcaster eventBroadcaster;
+
+    private final BlobStore blobStore;
+
+    private final PdfConversionQueue conversionQueue;
+
+    private final RenderedPageCache pageCache;
+
+    // Страницы PDF отрисовываются не при загрузке, а при первом обращении к ним
+    private final boolean lazyRendering;
+
+    // Уровни качества изображений страниц; страницы, сохраненные как файлы задачи, отрисованы в уровне по умолчанию
+    private final PageRenderProperties renderProperties;
+
+    // Метаданные файлов по идентификатору; инвалидируются при сохранении файлов
+    private final LruCache<Long, File> filesById;
+
     public FileSystemStorageService(StorageProperties storageProperties,
-                                    FileRepository fileRepository, PDFService pdfService) {
+                                    FileRepository fileRepository, PDFService pdfService,
+                                    TaskCache taskCache, CacheProperties cacheProperties,
+                                    TaskEventBroadcaster eventBroadcaster, BlobStore blobStore,
+                                    PdfConversionQueue conversionQueue, RenderedPageCache pageCache,
+                                    PdfConversionProperties conversionProperties,
+                                    PageRenderProperties renderProperties) {
         this.dirlocation = Paths.get(storageProperties.getLocation())
                 .toAbsolutePath()
                 .normalize();
         this.fileRepository = fileRepository;
         this.pdfService = pdfService;
+        this.taskCache = taskCache;
+        this.eventBroadcaster = eventBroadcaster;
+        this.blobStore = blobStore;
+        this.conversionQueue = conversionQueue;
+        this.pageCache = pageCache;
+        this.lazyRendering = conversionProperties.isLazy();
+        this.renderProperties = renderProperties;
+        this.filesById = new LruCache<>(cacheProperties.getFileMaxSize(), cacheProperties.getFileTtl());
     }
 
     @Override
@@ -62,63 +112,293 @@ public class FileSystemStorageService implements FileSystemStorage {
     }
 
     /**
-     * Сохраняет переданный файл и связывает его с заданной задачей. Если файл является PDF, конвертирует его страницы
-     * в изображения и сохраняет их как отдельные файлы. Все файлы регистрируются в репозитории файлов с ссылкой на их задачу.
-     * Возвращает имя сохраненного файла.
+     * Сохраняет переданный файл и связывает его с заданной задачей. Часть запроса, которую контейнер уже записал
+     * на диск, переносится в хранилище по хэшу переименованием, поэтому содержимое записывается на диск один раз;
+     * повторная загрузка того же файла не записывает его еще раз. Тип файла определяется по сигнатуре содержимого,
+     * а не только по заголовку запроса. Если файл является PDF,
+     * ставит отрисовку его страниц в очередь с высоким приоритетом и не ждет ее окончания; для PDF, содержимое
+     * которого уже было отрисовано, сразу используются готовые изображения. Все файлы регистрируются в репозитории
+     * файлов с ссылкой на их задачу. Возвращает сохраненную запись о файле.
      *
      * @param file Мультипарт-файл, полученный от клиента.
      * @param task Задача, с которой будет связан файл.
-     * @return Имя сохраненного файла.
+     * @return Сохраненная запись о файле.
      * @throws FileStorageException Если файл не может быть сохранен.
      */
     @Override
-    public String saveFile(MultipartFile file, Task task){
-        try{
-            // Очистка и получение имени файла, создание пути к файлу
+    public File saveFile(MultipartFile file, Task task){
+        StoredUpload upload = storeUpload(file);
+        try {
+            return attachUpload(upload, task);
+        } catch (RuntimeException exception) {
+            throw new FileStorageException("Could not upload file", exception);
+        }
+    }
+
+    /**
+     * Сохраняет содержимое переданного файла в хранилище, не создавая записей в базе. Часть запроса, которую
+     * контейнер уже записал на диск, переносится в хранилище по хэшу переименованием. Так содержимое всех файлов
+     * запроса сохраняется до создания или изменения задачи, а при ошибке в базе ничего не остается: содержимое
+     * без ссылок удаляется очисткой хранилища.
+     *
+     * @param file Мультипарт-файл, полученный от клиента.
+     * @return Сохраненное содержимое с именем и типом файла из запроса.
+     * @throws FileStorageException Если файл не может быть сохранен.
+     */
+    @Override
+    public StoredUpload storeUpload(MultipartFile file) {
+        try {
+            // Очистка и получение имени файла
             String fileName = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-            Path dirfile = this.dirlocation.resolve(Objects.requireNonNull(fileName));
 
-            // Создание сущности файла и сохранение его свойств
-            File fileEntity = new File();
-            fileEntity.setFilePath(dirfile.toString());
-            fileEntity.setFileType(file.getContentType());
-            fileEntity.setTask(task);
+            Path spooled = Files.createTempFile(blobStore.tempDirectory(), "upload", ".part");
+            try {
+                // Для части, записанной контейнером в директорию multipart-загрузок (она находится на разделе
+                // хранилища), transferTo(File) выполняет переименование, а не копирование
+                file.transferTo(spooled.toFile());
+                return new StoredUpload(blobStore.storeFile(spooled), fileName, file.getContentType());
+            } finally {
+                Files.deleteIfExists(spooled);
+            }
+        } catch (Exception exception) {
+            throw new FileStorageException("Could not upload file", exception);
+        }
+    }
 
+    /**
+     * Связывает с задачей содержимое, сохраненное {@link #storeUpload(MultipartFile)}. Тип файла определяется
+     * по сигнатуре содержимого, а не только по заголовку запроса. Если файл является PDF, ставит отрисовку его
+     * страниц в очередь с высоким приоритетом; для PDF, содержимое которого уже было отрисовано, сразу
+     * используются готовые изображения.
+     *
+     * @param upload Сохраненное содержимое файла.
+     * @param task Задача, с которой будет связан файл.
+     * @return Сохраненная запись о файле.
+     */
+    @Override
+    public File attachUpload(StoredUpload upload, Task task) {
+        File saved = attachContent(upload.blob(), upload.fileName(),
+                ContentTypeSniffer.resolve(upload.declaredType(), upload.blob().contentType()), task,
+                PdfConversionJob.PRIORITY_INTERACTIVE);
+        filesChanged(task.getId());
+        return saved;
+    }
 
-            fileRepository.save(fileEntity);
+    /**
+     * Переносит файл из временной директории в хранилище и создает запись о файле задачи, а для PDF - записи
+     * об изображениях страниц или задание на их отрисовку.
+     */
+    private File storeFile(Path file, String fileName, String declaredType, Task task, int conversionPriority)
+            throws IOException {
+        BlobStore.StoredBlob blob = blobStore.storeFile(file);
+        return attachContent(blob, fileName, ContentTypeSniffer.resolve(declaredType, blob.contentType()), task,
+                conversionPriority);
+    }
 
-            // Получение входного потока файла
-            InputStream inputStream = file.getInputStream();
-            if(Objects.equals(fileEntity.getFileType(), "application/pdf")){
-                String baseName = dirfile.toFile().getName().replaceFirst("[.][^.]+$", "");
+    /**
+     * Связывает с задачей файл, собранный из частей загрузки по сессии. Файл переносится в хранилище
+     * переименованием, поэтому даже файл размером в несколько гигабайт не копируется повторно.
+     *
+     * @param file Собранный файл во временной директории хранилища.
+     * @param fileName Имя файла при загрузке.
+     * @param contentType Тип содержимого файла.
+     * @param task Задача, с которой будет связан файл.
+     * @return Сохраненная запись о файле.
+     * @throws FileStorageException Если файл не может быть сохранен.
+     */
+    @Override
+    public File saveUploadedFile(Path file, String fileName, String contentType, Task task) {
+        try {
+            File saved = storeFile(file, fileName, contentType, task, PdfConversionJob.PRIORITY_INTERACTIVE);
+            filesChanged(task.getId());
+            return saved;
+        } catch (Exception exception) {
+            throw new FileStorageException("Could not upload file: " + fileName, exception);
+        }
+    }
 
-                // Конвертация PDF в изображения, если файл является PDF
-                List<Path> imagePaths = pdfService.convertPDFToImages(inputStream, this.dirlocation,baseName);
+    /**
+     * Учитывает изменение списка файлов задачи: версия задачи увеличивается в текущей транзакции, а закэшированная
+     * копия задачи сбрасывается и подписчики оповещаются только после ее фиксации.
+     */
+    private void filesChanged(Long taskId) {
+        fileRepository.touchTask(taskId, new Date());
+        TransactionCallbacks.afterCommit(() -> {
+            taskCache.invalidate(taskId);
+            eventBroadcaster.publish(TaskEventType.UPDATED, taskId);
+        });
+    }
 
-                // Сохранение каждого изображения как нового файла
-                for (Path imagePath : imagePaths){
-                    File imageEntity = new File();
-                    imageEntity.setFilePath(imagePath.toString());
-                    imageEntity.setFileType("image/png");
-                    imageEntity.setTask(task);
-                    imageEntity.setOriginalFieldID(fileEntity.getId());
+    private File attachContent(BlobStore.StoredBlob blob, String fileName, String contentType, Task task,
+                               int conversionPriority) {
+        // Создание сущности файла и сохранение его свойств
+        File fileEntity = newFileEntity(blob, fileName, contentType, task);
+        fileRepository.save(fileEntity);
+        filesById.invalidate(fileEntity.getId());
+
+        if (Objects.equals(fileEntity.getFileType(), ContentTypeSniffer.PDF)) {
+            try {
+                // Тот же PDF уже загружался: новые записи ссылаются на изображения, отрисованные для него раньше
+                if (copyRenderedPages(fileEntity)) {
+                    fileEntity.setConversionStatus(PdfConversionStatus.DONE);
+                    fileRepository.save(fileEntity);
+                } else {
+                    fileEntity.setConversionStatus(PdfConversionStatus.QUEUED);
+                    fileEntity.setConvertedPages(0);
+                    fileRepository.save(fileEntity);
+                    // После постановки в очередь запись принадлежит потоку отрисовки, который может успеть
+                    // записать в нее число страниц и состояние раньше, чем отсюда вернется управление
+                    PdfConversionJob job = conversionQueue.enqueue(fileEntity.getId(), task.getId(),
+                            conversionPriority);
+                    fileEntity.setConversionJobId(job.getId());
+                    fileRepository.updateConversionJobId(fileEntity.getId(), job.getId());
+                }
+                filesById.invalidate(fileEntity.getId());
+            } catch (RuntimeException exception) {
+                // PDF без изображений страниц и без задания на их отрисовку не остается у задачи
+                discardFiles(List.of(fileEntity));
+                throw exception;
+            }
+        }
+        return fileEntity;
+    }
 
-                    fileRepository.save(imageEntity);
+    /**
+     * Создает для PDF записи об изображениях страниц, уже отрисованных для другой записи с тем же содержимым.
+     * При отрисовке по запросу достаточно числа страниц другой записи.
+     *
+     * @return false, если готовых изображений нет и страницы нужно отрисовать.
+     */
+    private boolean copyRenderedPages(File pdfEntity) {
+        for (File copy : fileRepository.findConvertedCopies(pdfEntity.getContentHash(), ContentTypeSniffer.PDF,
+                pdfEntity.getId(), PdfConversionStatus.DONE)) {
+            List<File> renderedPages = getImagesForPdf(copy.getId());
+            if (renderedPages.isEmpty()) {
+                if (lazyRendering && copy.getPageCount() != null) {
+                    pdfEntity.setPageCount(copy.getPageCount());
+                    pdfEntity.setConvertedPages(0);
+                    return true;
                 }
+                continue;
             }
-            else {
+            renderedPages.stream()
+                    .sorted(Comparator.comparing(File::getId))
+                    .forEach(page -> savePageEntity(pdfEntity, page.getFileName(), page.getContentHash(),
+                            page.getFileType(), page.getSize(), currentPath(page), page.getPageIndex()));
+            pdfEntity.setPageCount(renderedPages.size());
+            pdfEntity.setConvertedPages(renderedPages.size());
+            return true;
+        }
+        return false;
+    }
 
-                // Прямое копирование файла, если он не является PDF
-                Files.copy(file.getInputStream(), dirfile, StandardCopyOption.REPLACE_EXISTING);
+    /**
+     * Отрисовывает страницы PDF, отрисовка которого поставлена в очередь. Страницы, сохраненные при предыдущей
+     * попытке, не отрисовываются повторно; каждая страница сохраняется сразу после отрисовки, и ход отрисовки
+     * записывается в запись о PDF. Если то же содержимое тем временем отрисовано для другой записи, используются
+     * готовые изображения. При отрисовке по запросу определяется только число страниц.
+     *
+     * @param pdfEntity Запись о PDF-файле.
+     * @param progress Получает число отрисованных страниц и общее число страниц после каждой страницы.
+     * @throws IOException Если PDF не удалось прочитать или отрисовать.
+     * @throws FileNotFoundException Если запись о PDF удалена во время отрисовки.
+     */
+    @Override
+    public void convertPdfPages(File pdfEntity, BiConsumer<Integer, Integer> progress) throws IOException {
+        Long pdfId = pdfEntity.getId();
+        fileRepository.updateConversionStatus(pdfId, PdfConversionStatus.RUNNING, new Date());
+        filesById.invalidate(pdfId);
+        try {
+            List<File> savedPages = getImagesForPdf(pdfId);
+            if (savedPages.isEmpty() && copyRenderedPages(pdfEntity)) {
+                fileRepository.updateConversionProgress(pdfId, pdfEntity.getPageCount(), pdfEntity.getConvertedPages());
+                progress.accept(pdfEntity.getConvertedPages(), pdfEntity.getPageCount());
+            } else if (lazyRendering) {
+                int pageCount = pdfService.countPages(Paths.get(pdfEntity.getFilePath()));
+                fileRepository.updateConversionProgress(pdfId, pageCount, savedPages.size());
+                progress.accept(savedPages.size(), pageCount);
+            } else {
+                renderPages(pdfEntity, savedPages, progress);
             }
+            fileRepository.updateConversionStatus(pdfId, PdfConversionStatus.DONE, new Date());
+        } finally {
+            filesById.invalidate(pdfId);
+            Long taskId = pdfEntity.getTask().getId();
+            fileRepository.touchTask(taskId, new Date());
+            taskCache.invalidate(taskId);
+            eventBroadcaster.publish(TaskEventType.UPDATED, taskId);
+        }
+    }
 
-            // Возврат имени сохраненного файл
-            return fileName;
-        } catch(Exception exception) {
+    private void renderPages(File pdfEntity, List<File> savedPages, BiConsumer<Integer, Integer> progress)
+            throws IOException {
+        Set<Integer> renderedIndexes = savedPages.stream()
+                .map(File::getPageIndex)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        AtomicInteger converted = new AtomicInteger(renderedIndexes.size());
+
+        String baseName = pdfEntity.displayName().replaceFirst("[.][^.]+$", "");
+        Path renderDirectory = Files.createTempDirectory(blobStore.tempDirectory(), "pages");
+        try {
+            // Конвертация PDF из файла хранилища во временную директорию; каждое изображение сразу переносится
+            // в хранилище и сохраняется как новый файл задачи
+            PageRenderProperties.Tier tier = resolveTier(null);
+            int pageCount = pdfService.convertPDFToImages(Paths.get(pdfEntity.getFilePath()), renderDirectory,
+                    baseName, renderedIndexes, tier, (pageIndex, count, imagePath) -> {
+                        // PDF удален во время отрисовки: изображения страниц больше не нужны
+                        if (!fileRepository.existsById(pdfEntity.getId())) {
+                            throw new FileNotFoundException("PDF was deleted during conversion");
+                        }
+                        BlobStore.StoredBlob image = blobStore.storeFile(imagePath);
+                        savePageEntity(pdfEntity, imagePath.getFileName().toString(), image.hash(),
+                                tier.contentType(), image.size(), image.path(), pageIndex);
+                        int done = converted.incrementAndGet();
+                        fileRepository.updateConversionProgress(pdfEntity.getId(), count, done);
+                        filesById.invalidate(pdfEntity.getId());
+                        progress.accept(done, count);
+                    });
+            fileRepository.updateConversionProgress(pdfEntity.getId(), pageCount, pageCount);
+            progress.accept(pageCount, pageCount);
+        } finally {
+            FileSystemUtils.deleteRecursively(renderDirectory);
+        }
+    }
 
-            // Выброс исключения при возникновении ошибки сохранения файла
-            throw new FileStorageException("Could not upload file");
+    // Путь в раскладке хранилища, если содержимое уже там: запись могла быть прочитана до переноса файла
+    // из старой раскладки, и копия не должна ссылаться на удаляемый перенесенный файл
+    private Path currentPath(File file) {
+        if (file.getContentHash() != null && blobStore.exists(file.getContentHash())) {
+            return blobStore.resolve(file.getContentHash());
         }
+        return Paths.get(file.getFilePath());
+    }
+
+    private void savePageEntity(File pdfEntity, String fileName, String contentHash, String fileType, Long size,
+                                Path path, Integer pageIndex) {
+        File imageEntity = new File();
+        imageEntity.setFilePath(path.toString());
+        imageEntity.setFileType(fileType);
+        imageEntity.setFileName(fileName);
+        imageEntity.setContentHash(contentHash);
+        imageEntity.setSize(size);
+        imageEntity.setTask(pdfEntity.getTask());
+        imageEntity.setOriginalFieldID(pdfEntity.getId());
+        imageEntity.setPageIndex(pageIndex);
+
+        fileRepository.save(imageEntity);
+        filesById.invalidate(imageEntity.getId());
+    }
+
+    private static File newFileEntity(BlobStore.StoredBlob blob, String fileName, String contentType, Task task) {
+        File fileEntity = new File();
+        fileEntity.setFilePath(blob.path().toString());
+        fileEntity.setFileType(contentType);
+        fileEntity.setFileName(fileName);
+        fileEntity.setContentHash(blob.hash());
+        fileEntity.setSize(blob.size());
+        fileEntity.setTask(task);
+        return fileEntity;
     }
 
     /**
@@ -164,28 +444,41 @@ public class FileSystemStorageService implements FileSystemStorage {
 
     public File findFileById(Long id)
     {
-        return fileRepository.findById(id).orElse(null);
+        return filesById.get(id, () -> fileRepository.findById(id).orElse(null));
+    }
+
+    public CacheStats fileCacheStats() {
+        return filesById.stats();
+    }
+
+    public Map<String, CacheStats> pageCacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("renderedPagesMemory", pageCache.memoryStats());
+        stats.put("renderedPagesDisk", pageCache.diskStats());
+        return stats;
     }
 
     /**
-     * Создает и возвращает ResponseEntity с ресурсом файла для загрузки. Устанавливает соответствующие заголовки
-     * для обеспечения того, чтобы клиент смог корректно скачать и сохранить файл. Подходит для загрузки
-     * обычных файлов, таких как текстовые файлы, изображения и другие, не требующие специальной обработки, в отличие от PDF.
+     * Отдает файл клиенту для загрузки. Поддерживает запросы диапазонов (Range, в том числе несколько диапазонов,
+     * и If-Range), поэтому прерванная загрузка большого файла может быть продолжена с места обрыва. Содержимое
+     * передается из файла в сокет средствами контейнера (sendfile) или через FileChannel.transferTo, не загружаясь
+     * в память приложения. Подходит для загрузки обычных файлов, не требующих специальной обработки, в отличие от PDF.
      *
      * @param fileEntity Сущность файла, содержащая информацию о пути и типе файла.
-     * @return ResponseEntity, содержащий ресурс файла и заголовки для его загрузки.
-     * @throws MalformedURLException Если путь файла не может быть преобразован в URL.
+     * @param eTag ETag файла, с которым сравнивается заголовок If-Range.
+     * @param request Запрос с заголовками Range и If-Range.
+     * @param response Ответ, в который записывается файл.
+     * @throws IOException Если файл не удалось прочитать или передать.
      */
-    public ResponseEntity<Resource> downloadRegularFile(File fileEntity) throws MalformedURLException {
-        // Преобразование пути файла в Path и создание ресурса URL из него
+    public void sendRegularFile(File fileEntity, String eTag, HttpServletRequest request,
+                                HttpServletResponse response) throws IOException {
         Path path = Paths.get(fileEntity.getFilePath());
-        Resource resource = new UrlResource(path.toUri());
-
-        // Создание и возврат ResponseEntity с ресурсом файла, типом контента и заголовками для загрузки
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(fileEntity.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + resource.getFilename() + "\"")
-                .body(resource);
+        if (!Files.isReadable(path)) {
+            throw new FileNotFoundException("Could not find file");
+        }
+        long lastModified = fileEntity.getLastModified() == null ? -1 : fileEntity.getLastModified().getTime();
+        RangeFileTransfer.send(path, fileEntity.getFileType(), fileEntity.displayName(), eTag, lastModified,
+                request, response);
     }
 
     /**
@@ -209,29 +502,34 @@ public class FileSystemStorageService implements FileSystemStorage {
     /**
      * Создает и отправляет клиенту ZIP-архив, содержащий изображения, связанные с указанным PDF файлом.
      * Устанавливает соответствующие заголовки ответа для загрузки файла и обрабатывает поток данных в ZIP-формат.
+     * Изображения страниц в уровне качества, отличном от уровня сохраненных страниц, берутся из кэша
+     * отрисованных страниц.
      *
      * @param pdfFile Объект файла PDF, для которого нужно получить связанные изображения.
+     * @param tier Уровень качества изображений или null для уровня по умолчанию.
      * @param response HttpServletResponse, используемый для установки статуса и заголовков ответа.
      * @return ResponseEntity, представляющий результат операции: успешное создание или внутреннюю ошибку сервера.
+     * @throws InvalidPageTierException Если такого уровня качества нет.
      */
-    public ResponseEntity<Resource> downloadPdfAsZip(File pdfFile, HttpServletResponse response) {
+    public ResponseEntity<Resource> downloadPdfAsZip(File pdfFile, String tier, HttpServletResponse response) {
         // Получение изображений, связанных с PDF файлом
-        List<File> imageFiles = this.getImagesForPdf(pdfFile.getId());
-        Path pdfPath = Paths.get(pdfFile.getFilePath());
+        List<File> imageFiles = isStoredTier(tier) ? this.getImagesForPdf(pdfFile.getId()) : List.of();
 
         // Определение имени ZIP-файла на основе имени PDF файла
-        String zipFilename = "converted-" +  pdfPath.getFileName().toString() + ".zip";
+        String zipFilename = "converted-" +  pdfFile.displayName() + ".zip";
 
         // Установка HTTP ответа для загрузки файла
         response.setStatus(HttpServletResponse.SC_OK);
         response.addHeader("Content-Disposition", "attachment; filename=\"" + zipFilename + "\"");
 
-        try (ZipOutputStream zippedOut = new ZipOutputStream(response.getOutputStream())) {
+        try (ZipOutputStream zippedOut = new UniqueEntryZipOutputStream(response.getOutputStream())) {
+            // Страницы не сохранены как файлы задачи: они отрисовываются по запросу
+            writeRenderedPdfPages(pdfFile, tier, zippedOut);
 
             // Добавление каждого изображения в ZIP-архив
             for (File imageFile : imageFiles) {
                 Path imagePath = Paths.get(imageFile.getFilePath());
-                ZipEntry imageEntry = new ZipEntry(imagePath.getFileName().toString());
+                ZipEntry imageEntry = new ZipEntry(imageFile.displayName());
                 zippedOut.putNextEntry(imageEntry);
                 Files.copy(imagePath, zippedOut);
                 zippedOut.closeEntry();
@@ -247,8 +545,108 @@ public class FileSystemStorageService implements FileSystemStorage {
     }
 
     /**
-     * Извлекает файл из потока ZipInputStream и сохраняет его во временный файл на диске.
-     * Создает директорию для хранения, если она не существует, и записывает данные файла из ZIP-архива.
+     * Возвращает изображение страницы PDF в заданном уровне качества. Страница, сохраненная при отрисовке
+     * всего PDF, читается из хранилища, иначе берется из кэша отрисованных страниц и при первом обращении
+     * отрисовывается.
+     *
+     * @param pdfEntity Запись о PDF-файле.
+     * @param pageIndex Номер страницы, начиная с нуля.
+     * @param tier Уровень качества изображения или null для уровня по умолчанию.
+     * @return Содержимое и тип изображения страницы.
+     * @throws FileNotFoundException Если такой страницы в PDF нет.
+     * @throws InvalidPageTierException Если такого уровня качества нет.
+     * @throws IOException Если страницу не удалось прочитать или отрисовать.
+     */
+    @Override
+    public PageImage getPdfPage(File pdfEntity, int pageIndex, String tier) throws IOException {
+        PageRenderProperties.Tier renderTier = resolveTier(tier);
+        if (isStoredTier(tier)) {
+            File stored = findStoredPage(pdfEntity, pageIndex);
+            if (stored != null) {
+                return new PageImage(Files.readAllBytes(Paths.get(stored.getFilePath())), stored.getFileType());
+            }
+        }
+
+        if (pdfEntity.getPageCount() == null || pageIndex < 0 || pageIndex >= pdfEntity.getPageCount()) {
+            throw new FileNotFoundException("Could not find page " + pageIndex);
+        }
+        byte[] content = pageCache.getPage(pageCacheKey(pdfEntity), Paths.get(pdfEntity.getFilePath()), pageIndex,
+                renderTier);
+        return new PageImage(content, renderTier.contentType());
+    }
+
+    private static String pageCacheKey(File pdfEntity) {
+        return pdfEntity.getContentHash() != null ? pdfEntity.getContentHash() : "file-" + pdfEntity.getId();
+    }
+
+    private File findStoredPage(File pdfEntity, int pageIndex) {
+        List<File> storedPages = getImagesForPdf(pdfEntity.getId());
+        for (File page : storedPages) {
+            if (Objects.equals(page.getPageIndex(), pageIndex)) {
+                return page;
+            }
+        }
+        // У страниц, сохраненных до появления номеров страниц, номер определяется порядком сохранения
+        if (pdfEntity.getPageCount() == null && pageIndex >= 0 && pageIndex < storedPages.size()
+                && storedPages.stream().allMatch(page -> page.getPageIndex() == null)) {
+            return storedPages.stream().sorted(Comparator.comparing(File::getId)).toList().get(pageIndex);
+        }
+        return null;
+    }
+
+    /**
+     * Записывает в ZIP-архив изображения страниц PDF, которые не сохранены как файлы задачи: страницы PDF,
+     * отрисовываемого по запросу, или страницы в уровне качества, отличном от уровня сохраненных страниц.
+     * Сохраненные страницы добавляются в архив вместе с остальными файлами.
+     *
+     * @param pdfEntity Запись о PDF-файле.
+     * @param tier Уровень качества изображений или null для уровня по умолчанию.
+     * @param zippedOut Поток ZIP-архива.
+     * @throws IOException Если страницу не удалось отрисовать или записать.
+     */
+    @Override
+    public void writeRenderedPdfPages(File pdfEntity, String tier, ZipOutputStream zippedOut) throws IOException {
+        if (pdfEntity.getPageCount() == null
+                || isStoredTier(tier) && !getImagesForPdf(pdfEntity.getId()).isEmpty()) {
+            return;
+        }
+        String baseName = pdfEntity.displayName().replaceFirst("[.][^.]+$", "");
+        PageRenderProperties.Tier renderTier = resolveTier(tier);
+        // Недостающие в кэше страницы отрисовываются за один проход по документу
+        pageCache.forEachPage(pageCacheKey(pdfEntity), Paths.get(pdfEntity.getFilePath()), pdfEntity.getPageCount(),
+                renderTier, (pageIndex, content) -> {
+                    zippedOut.putNextEntry(new ZipEntry(
+                            baseName + String.format("-page-%d.%s", pageIndex, renderTier.extension())));
+                    zippedOut.write(content);
+                    zippedOut.closeEntry();
+                });
+    }
+
+    /**
+     * Возвращает настройки уровня качества изображений страниц.
+     *
+     * @param tier Имя уровня или null для уровня по умолчанию.
+     * @throws InvalidPageTierException Если такого уровня нет.
+     */
+    private PageRenderProperties.Tier resolveTier(String tier) {
+        String name = tier == null || tier.isBlank() ? renderProperties.getDefaultTier() : tier;
+        PageRenderProperties.Tier settings = renderProperties.getTiers().get(name);
+        if (settings == null) {
+            throw new InvalidPageTierException("Unknown page tier: " + name + ", expected one of "
+                    + renderProperties.getTiers().keySet());
+        }
+        return settings;
+    }
+
+    // Страницы, сохраненные как файлы задачи, отрисованы в уровне по умолчанию
+    private boolean isStoredTier(String tier) {
+        return tier == null || tier.isBlank() || tier.equals(renderProperties.getDefaultTier());
+    }
+
+    /**
+     * Извлекает файл из потока ZipInputStream и сохраняет его во временный файл на диске. Каждый файл получает
+     * отдельную временную директорию внутри хранилища: имя файла сохраняется, а одноименные файлы разных
+     * архивов не перезаписывают друг друга и не попадают в директории с содержимым.
      *
      * @param zipIn Поток ZipInputStream, из которого извлекается файл.
      * @param fileName Имя файла для сохранения из ZIP-архива.
@@ -256,18 +654,13 @@ public class FileSystemStorageService implements FileSystemStorage {
      * @throws IOException Если возникнут ошибки при чтении из потока или записи в файл.
      */
     public java.io.File saveZipEntryToFile(ZipInputStream zipIn, String fileName) throws IOException {
-        // Создание директории для временных файлов, если она не существует
-        java.io.File tempDir = new java.io.File(String.valueOf(this.dirlocation));
-        if (!tempDir.exists()) {
-            tempDir.mkdirs();
-        }
-
-        // Создание временного файла для сохранения данных из ZIP-архива
-        java.io.File tempFile = new java.io.File(tempDir, fileName);
+        // Создание временной директории для файла; из имени элемента архива берется только имя файла без пути
+        Path tempDir = Files.createTempDirectory(blobStore.tempDirectory(), "zip");
+        java.io.File tempFile = tempDir.resolve(Paths.get(fileName).getFileName().toString()).toFile();
 
         // Чтение данных из ZipInputStream и их запись во временный файл
         try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[8192];
             int length;
             while ((length = zipIn.read(buffer)) > 0) {
                 fos.write(buffer, 0, length);
@@ -279,9 +672,10 @@ public class FileSystemStorageService implements FileSystemStorage {
     }
 
     /**
-     * Сохраняет файл из ZIP-архива и связывает его с задачей. Если файл является PDF, конвертирует его страницы
-     * в изображения и также сохраняет их как связанные файлы. Устанавливает тип файла и связывает его с задачей
-     * в базе данных через репозиторий.
+     * Сохраняет файл из ZIP-архива и связывает его с задачей. Содержимое помещается в хранилище по хэшу так же,
+     * как при обычной загрузке; файл, извлеченный во временную директорию хранилища, переносится переименованием.
+     * Если файл является PDF, ставит отрисовку его страниц в очередь с низким приоритетом, чтобы импорт архива
+     * не задерживал отрисовку файлов, загруженных пользователями. Устанавливает тип файла и связывает его с задачей в базе данных через репозиторий.
      *
      * @param file Файл из ZIP-архива для сохранения.
      * @param task Задача, с которой будет связан файл.
@@ -289,41 +683,67 @@ public class FileSystemStorageService implements FileSystemStorage {
      */
     public void saveFromZipFile(java.io.File file, Task task) {
         try {
-            // Определение имени и пути для сохраняемого файла
+            // Определение имени и типа сохраняемого файла
             String fileName = file.getName();
-            Path dirfile = this.dirlocation.resolve(fileName);
-
-            // Создание и сохранение основной сущности файла
-            File fileEntity = new File();
-            fileEntity.setFilePath(dirfile.toString());
-            fileEntity.setFileType(Files.probeContentType(dirfile));
-            fileEntity.setTask(task);
-
-            fileRepository.save(fileEntity);
-
-            try (InputStream inputStream = new FileInputStream(file)) {
-                if (Objects.equals(fileEntity.getFileType(), "application/pdf")) {
-                    // Конвертация PDF в изображения и сохранение каждого из них
-                    List<Path> imagePaths = pdfService.convertPDFToImages(inputStream, this.dirlocation, fileName);
-
-                    for (Path imagePath : imagePaths){
-                        File imageEntity = new File();
-                        imageEntity.setFilePath(imagePath.toString());
-                        imageEntity.setFileType("image/png");
-                        imageEntity.setTask(task);
-                        imageEntity.setOriginalFieldID(fileEntity.getId());
-
-                        fileRepository.save(imageEntity);
-                    }
-                } else {
-                    // Копирование файла в целевую директорию, если это не PDF
-                    Files.copy(inputStream, dirfile, StandardCopyOption.REPLACE_EXISTING);
-                }
+            String contentType = Files.probeContentType(file.toPath());
+
+            Path path = file.toPath().toAbsolutePath().normalize();
+            if (path.startsWith(blobStore.tempDirectory())) {
+                storeFile(path, fileName, contentType, task, PdfConversionJob.PRIORITY_BULK);
+            } else {
+                BlobStore.StoredBlob blob = blobStore.store(new FileSystemResource(file));
+                attachContent(blob, fileName, ContentTypeSniffer.resolve(contentType, blob.contentType()), task,
+                        PdfConversionJob.PRIORITY_BULK);
             }
-
+            filesChanged(task.getId());
         } catch (Exception exception) {
             // Логирование и выброс исключения в случае ошибок
             throw new FileStorageException("Could not upload file: " + exception.getMessage());
+        } finally {
+            deleteZipTempFile(file);
         }
     }
+
+    // Содержимое уже в хранилище; временный файл и его директория больше не нужны
+    private void deleteZipTempFile(java.io.File file) {
+        Path path = file.toPath().toAbsolutePath().normalize();
+        if (!path.startsWith(blobStore.tempDirectory())) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(path.getParent());
+        } catch (IOException exception) {
+            // Временный файл будет удален при следующей очистке временной директории
+        }
+    }
+
+    /**
+     * Удаляет записи о файлах, сохраненных в рамках запроса, который не удалось выполнить целиком, вместе
+     * с записями об изображениях страниц PDF, и отменяет незавершенную отрисовку этих PDF. Содержимое в хранилище не удаляется: то же содержимое могло быть
+     * одновременно загружено другим запросом, а содержимое без ссылок удаляется очисткой хранилища.
+     *
+     * @param files Записи о файлах, возвращенные {@link #saveFile(MultipartFile, Task)}.
+     */
+    @Override
+    public void discardFiles(Collection<File> files) {
+        conversionQueue.cancelForFiles(files.stream().map(File::getId).toList());
+        Set<Long> taskIds = new HashSet<>();
+        for (File file : files) {
+            List<File> pages = fileRepository.findByOriginalFieldID(file.getId());
+            fileRepository.deleteAll(pages);
+            fileRepository.delete(file);
+            pages.forEach(page -> filesById.invalidate(page.getId()));
+            filesById.invalidate(file.getId());
+            if (file.getTask() != null) {
+                taskIds.add(file.getTask().getId());
+            }
+        }
+        taskIds.forEach(this::filesChanged);
+    }
+
+    @Override
+    public void evictFiles(Collection<Long> fileIds) {
+        fileIds.forEach(filesById::invalidate);
+    }
 }
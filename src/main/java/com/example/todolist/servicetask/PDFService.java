@@ -2,70 +2,564 @@ package com.example.todolist.servicetask;
 
 import com.spire.pdf.PdfDocument;
 import com.spire.pdf.graphics.PdfImageType;
+import com.example.todolist.config.ExecutionProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.exception.PageTooLargeException;
+import com.example.todolist.exception.RenderQueueFullException;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.geom.Dimension2D;
 import java.awt.image.BufferedImage;
-import java.io.*;
-
-
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 @Service
 public class PDFService {
 
+    // Меньше страниц на поток не выделяется: загрузка отдельной копии документа дороже отрисовки пары страниц
+    private static final int MIN_PAGES_PER_WORKER = 4;
+
+    // Отрисовка страниц занимает процессор, поэтому выполняется на пуле потоков платформы размером с число ядер,
+    // а не на потоках запросов: при виртуальных потоках их число не ограничено. Очередь пула ограничена,
+    // чтобы при наплыве запросов страниц задачи не накапливались в памяти без предела
+    private final ThreadPoolExecutor renderExecutor;
+
+    // Кодирование изображений выполняется в отдельном пуле, пока потоки отрисовки растеризуют следующие страницы.
+    // Задачи кодирования ставят только потоки отрисовки, и каждая отрисовка ограничивает число своих
+    // некодированных страниц, поэтому очередь этого пула ограничена и без явного предела
+    private final ExecutorService encodeExecutor;
+
+    private final int renderParallelism;
+
+    private final RenderMemoryBudget memoryBudget;
+
+    // Копии документов, загруженные сейчас; каждая копия держит в памяти весь разобранный документ
+    private final AtomicInteger openDocuments = new AtomicInteger();
+
+    public PDFService(ExecutionProperties executionProperties, RenderMemoryBudget memoryBudget) {
+        this.memoryBudget = memoryBudget;
+        this.renderExecutor = newPool("pdf-render-", executionProperties.getRenderThreads(),
+                new ArrayBlockingQueue<>(Math.max(1, executionProperties.getRenderQueueSize())));
+        this.encodeExecutor = newPool("pdf-encode-", executionProperties.getEncodeThreads(),
+                new LinkedBlockingQueue<>());
+        this.renderParallelism = Math.max(1, Math.min(executionProperties.getRenderParallelism(),
+                executionProperties.getRenderThreads()));
+    }
+
+    private static ThreadPoolExecutor newPool(String namePrefix, int threads, BlockingQueue<Runnable> queue) {
+        AtomicInteger counter = new AtomicInteger();
+        int size = Math.max(1, threads);
+        return new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     /**
-     * Конвертирует каждую страницу PDF-документа, полученного из входного потока, в изображение формата PNG.
-     * Сохраняет изображения в заданной директории с базовым именем файла и маркировкой страницы. Возвращает
-     * список путей к созданным изображениям.
+     * Число копий PDF-документов, загруженных для отрисовки в данный момент.
+     */
+    public int openDocuments() {
+        return openDocuments.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+        encodeExecutor.shutdownNow();
+    }
+
+    /**
+     * Обработчик отрисованной страницы. Вызывается сразу после записи изображения страницы, чтобы страницы
+     * становились доступны по мере отрисовки, а не после обработки всего документа. Вызовы обработчика
+     * не пересекаются по времени, но страницы могут приходить не по порядку.
+     */
+    @FunctionalInterface
+    public interface PageHandler {
+        void accept(int pageIndex, int pageCount, Path image) throws IOException;
+    }
+
+    /**
+     * Конвертирует каждую страницу PDF-документа в изображение с разрешением и форматом заданного уровня
+     * качества. Документ читается прямо из файла
+     * в хранилище, без промежуточной копии. Страницы делятся на непрерывные диапазоны, которые отрисовываются
+     * параллельно несколькими потоками; у каждого потока своя копия документа, так как документ Spire
+     * не потокобезопасен. Изображения сохраняются в заданной директории с базовым именем файла и маркировкой
+     * страницы и передаются обработчику по одному. Память под несжатые изображения берется из общего бюджета
+     * {@link RenderMemoryBudget}: при исчерпании бюджета отрисовка ждет, пока другие страницы будут записаны.
+     * Каждая копия документа перед загрузкой резервирует оценку своего размера в бюджете документов.
      *
-     * @param pdfInputStream Входной поток PDF-документа для конвертации.
+     * @param pdfFile Файл PDF-документа для конвертации.
      * @param outputDir Директория, в которую будут сохранены изображения.
      * @param baseName Базовое имя для сохраняемых изображений (обычно имя исходного PDF-файла).
-     * @return Список путей к созданным изображениям.
+     * @param skipPages Номера страниц, уже отрисованных при предыдущей попытке; они не отрисовываются повторно.
+     * @param tier Разрешение и формат изображений.
+     * @param handler Обработчик каждой отрисованной страницы.
+     * @return Количество страниц в документе.
+     * @throws PageTooLargeException Если изображение страницы больше всего бюджета памяти отрисовки.
      */
-    public List<Path> convertPDFToImages(InputStream pdfInputStream, Path outputDir, String baseName) throws IOException {
-        // Список для хранения путей созданных изображений
-        List<Path> imagePaths = new ArrayList<>();
+    public int convertPDFToImages(Path pdfFile, Path outputDir, String baseName, Set<Integer> skipPages,
+                                  PageRenderProperties.Tier tier, PageHandler handler) throws IOException {
+        // Отрисовка выполняется в ограниченных пулах потоков платформы; вызывающий поток (в том числе виртуальный)
+        // только ожидает результата
+        // При ошибке и прерывании управление возвращается только после остановки всех задач отрисовки,
+        // поэтому вызывающий может сразу удалять директорию изображений
+        Rendering rendering = new Rendering(pdfFile, outputDir, baseName, skipPages, tier, handler);
+        try {
+            return rendering.run();
+        } catch (InterruptedException e) {
+            rendering.cancel();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PDF rendering interrupted");
+        } catch (ExecutionException e) {
+            rendering.cancel();
+            throw unwrap(e);
+        }
+    }
 
-        // Создание временного файла из InputStream
-        java.io.File tempPdfFile = java.io.File.createTempFile("pdf_to_convert", ".pdf");
-        tempPdfFile.deleteOnExit();
+    /**
+     * Определяет число страниц PDF-документа без отрисовки страниц.
+     *
+     * @param pdfFile Файл PDF-документа.
+     * @return Количество страниц в документе.
+     */
+    public int countPages(Path pdfFile) throws IOException {
+        return await(new RenderTask<>(renderExecutor, () -> {
+            Document document = load(pdfFile);
+            try {
+                return document.pdf().getPages().getCount();
+            } finally {
+                close(document);
+            }
+        }));
+    }
 
-        try (FileOutputStream out = new FileOutputStream(tempPdfFile)) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = pdfInputStream.read(buffer)) != -1) {
-                out.write(buffer, 0, bytesRead);
+    /**
+     * Отрисовывает одну страницу PDF-документа в изображение с разрешением и форматом заданного уровня качества.
+     *
+     * @param pdfFile Файл PDF-документа.
+     * @param pageIndex Номер страницы, начиная с нуля.
+     * @param tier Разрешение и формат изображения.
+     * @param imagePath Файл, в который записывается изображение.
+     * @throws PageTooLargeException Если изображение страницы больше всего бюджета памяти отрисовки.
+     */
+    public void renderPage(Path pdfFile, int pageIndex, PageRenderProperties.Tier tier, Path imagePath)
+            throws IOException {
+        await(new RenderTask<>(renderExecutor, () -> {
+            Document document = load(pdfFile);
+            try {
+                PdfDocument pdf = document.pdf();
+                if (pageIndex < 0 || pageIndex >= pdf.getPages().getCount()) {
+                    throw new IOException("PDF has no page " + pageIndex);
+                }
+                RenderMemoryBudget.Reservation memory = reservePage(pdf, pageIndex, tier);
+                try {
+                    BufferedImage image = pdf.saveAsImage(pageIndex, PdfImageType.Bitmap, tier.getDpi(), tier.getDpi());
+                    writeImage(image, tier, imagePath);
+                } finally {
+                    memory.close();
+                }
+                return null;
+            } finally {
+                close(document);
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        }));
+    }
 
-        // Загрузка PDF документа из временного файла
+    /**
+     * Загружает копию документа. Память под разобранный документ резервируется по размеру файла до загрузки,
+     * поэтому одновременные отрисовки больших документов ждут друг друга, а не исчерпывают память JVM.
+     */
+    private Document load(Path pdfFile) throws IOException, InterruptedException {
+        RenderMemoryBudget.Reservation memory = memoryBudget.reserveDocument(Files.size(pdfFile));
         PdfDocument pdf = new PdfDocument();
-        pdf.loadFromFile(tempPdfFile.getAbsolutePath());
+        Document document = new Document(pdf, memory);
+        openDocuments.incrementAndGet();
+        try {
+            pdf.loadFromFile(pdfFile.toAbsolutePath().toString());
+            return document;
+        } catch (RuntimeException exception) {
+            close(document);
+            throw exception;
+        }
+    }
+
+    private void close(Document document) {
+        try {
+            document.pdf().close();
+        } finally {
+            document.memory().close();
+            openDocuments.decrementAndGet();
+        }
+    }
 
-        // Конвертация каждой страницы в изображение
-        for (int i = 0; i < pdf.getPages().getCount(); i++) {
-            BufferedImage image = pdf.saveAsImage(i, PdfImageType.Bitmap, 500, 500);
+    // Загруженная копия документа и память, зарезервированная под нее
+    private record Document(PdfDocument pdf, RenderMemoryBudget.Reservation memory) {
+    }
 
-            // Определение пути и имени файла
-            Path imagePath = outputDir.resolve(String.format(baseName + "-page-%d.png", i));
+    /**
+     * Резервирует в бюджете память под изображение страницы. Размер оценивается по размеру страницы
+     * и разрешению до растеризации, поэтому страница, которая не поместится даже в весь бюджет,
+     * отклоняется сразу, без попытки выделить под нее память.
+     */
+    private RenderMemoryBudget.Reservation reservePage(PdfDocument pdf, int pageIndex, PageRenderProperties.Tier tier)
+            throws InterruptedException {
+        long bytes = imageBytes(pdf.getPages().get(pageIndex).getSize(), tier);
+        if (!memoryBudget.fits(bytes)) {
+            throw new PageTooLargeException(String.format(
+                    "Page %d needs %d MB to render at %d DPI, more than the render memory budget of %d MB",
+                    pageIndex, bytes >> 20, tier.getDpi(), memoryBudget.totalBytes() >> 20));
+        }
+        return memoryBudget.reserve(bytes);
+    }
+
+    // Размер страницы задан в пунктах (1/72 дюйма); растр Spire занимает 4 байта на пиксель, а для JPEG
+    // учитывается копия изображения на белом фоне
+    private static long imageBytes(Dimension2D pageSize, PageRenderProperties.Tier tier) {
+        double scale = tier.getDpi() / 72.0;
+        long pixels = (long) Math.ceil(pageSize.getWidth() * scale) * (long) Math.ceil(pageSize.getHeight() * scale);
+        return pixels * (tier.isJpeg() ? 8 : 4);
+    }
 
-            // Сохранение изображения
+    /**
+     * Записывает изображение в формате уровня качества. JPEG записывается с заданным качеством; прозрачность
+     * в JPEG не поддерживается, поэтому такое изображение сначала накладывается на белый фон.
+     */
+    private static void writeImage(BufferedImage image, PageRenderProperties.Tier tier, Path imagePath) throws IOException {
+        if (!tier.isJpeg()) {
             ImageIO.write(image, "PNG", imagePath.toFile());
-            imagePaths.add(imagePath);
+            return;
+        }
+        BufferedImage rgb = image;
+        if (image.getColorModel().hasAlpha()) {
+            rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = rgb.createGraphics();
+            try {
+                graphics.drawImage(image, 0, 0, Color.WHITE, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(imagePath.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.clamp(tier.getQuality(), 0f, 1f));
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
         }
+    }
 
-        // Освобождение ресурсов PDF документа
-        pdf.close();
+    // Ожидание задачи пула отрисовки; прерывание ожидания отменяет задачу и дожидается ее остановки
+    private static <T> T await(RenderTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancelAndWait();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("PDF rendering interrupted");
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Задача пула отрисовки, остановки которой можно дождаться. Future.cancel(true) только прерывает поток
+     * и сразу возвращает управление, а поток в это время еще читает PDF и пишет изображение; вызывающий,
+     * удалив файлы сразу после отмены, удалил бы их из-под работающей задачи.
+     */
+    private static final class RenderTask<T> {
+
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final Future<T> future;
+
+        RenderTask(ExecutorService executor, Callable<T> work) {
+            try {
+                this.future = executor.submit(() -> {
+                    // Задача, отмененная до запуска, не выполняется
+                    if (!started.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        return work.call();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                throw new RenderQueueFullException("Too many PDF pages are waiting to be rendered, retry later");
+            }
+        }
+
+        T get() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        void cancelAndWait() {
+            if (started.compareAndSet(false, true)) {
+                future.cancel(false);
+                return;
+            }
+            future.cancel(true);
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    finished.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Ошибка ввода-вывода и отказ из-за размера страницы передаются как есть, остальные - как ошибка отрисовки
+    private static IOException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof PageTooLargeException tooLarge) {
+            throw tooLarge;
+        }
+        if (e.getCause() instanceof IOException ioException) {
+            return ioException;
+        }
+        return new IOException("Could not render PDF", e.getCause());
+    }
+
+    /**
+     * Отрисовка одного документа. Первый поток загружает документ, определяет число страниц, запускает
+     * отрисовку остальных диапазонов и отрисовывает первый диапазон сам. Растеризованная страница передается
+     * на кодирование; число страниц, ожидающих кодирования, ограничено, чтобы несжатые изображения
+     * не накапливались в памяти, если кодирование отстает. Кроме того, каждая страница до растеризации
+     * резервирует память в общем бюджете и возвращает ее сразу после записи изображения.
+     */
+    private final class Rendering {
+
+        private final Path pdfFile;
+        private final Path outputDir;
+        private final String baseName;
+        private final Set<Integer> skipPages;
+        private final PageRenderProperties.Tier tier;
+        private final PageHandler handler;
+
+        // Задачи отрисовки диапазонов и кодирования страниц; пополняются, пока идет отрисовка
+        private final List<RenderTask<?>> rangeTasks = new CopyOnWriteArrayList<>();
+        private final List<Future<?>> encodeTasks = new CopyOnWriteArrayList<>();
+        private final Semaphore pendingImages = new Semaphore(2 * renderParallelism);
+        private final Object handlerLock = new Object();
+        // Первая ошибка: после нее остальные потоки прекращают работу, и их ошибки прерывания не скрывают причину
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
 
-        return imagePaths;
+        Rendering(Path pdfFile, Path outputDir, String baseName, Set<Integer> skipPages,
+                  PageRenderProperties.Tier tier, PageHandler handler) {
+            this.pdfFile = pdfFile;
+            this.outputDir = outputDir;
+            this.baseName = baseName;
+            this.skipPages = skipPages;
+            this.tier = tier;
+            this.handler = handler;
+        }
+
+        int run() throws InterruptedException, ExecutionException {
+            RenderTask<Integer> first = new RenderTask<>(renderExecutor, this::renderFirstRange);
+            rangeTasks.add(first);
+            try {
+                int pageCount = first.get();
+                // Задачи диапазонов добавлены до завершения первой задачи, задачи кодирования - до завершения
+                // своего диапазона, поэтому к концу обхода в списках нет незавершенных задач
+                for (int i = 0; i < rangeTasks.size(); i++) {
+                    rangeTasks.get(i).get();
+                }
+                for (int i = 0; i < encodeTasks.size(); i++) {
+                    encodeTasks.get(i).get();
+                }
+                return pageCount;
+            } catch (ExecutionException e) {
+                Exception cause = failure.get();
+                throw cause != null ? new ExecutionException(cause) : e;
+            }
+        }
+
+        private void fail(Exception exception) {
+            failure.compareAndSet(null, exception);
+            cancelled = true;
+        }
+
+        // Останавливает отрисовку и ждет, пока все ее задачи завершатся. Задачи кодирования не отменяются:
+        // отмененная до запуска задача не вернула бы память страницы в бюджет. Каждая из них, увидев отмену,
+        // только освобождает память
+        void cancel() {
+            cancelled = true;
+            for (int i = 0; i < rangeTasks.size(); i++) {
+                rangeTasks.get(i).cancelAndWait();
+            }
+            boolean interrupted = false;
+            for (Future<?> task : encodeTasks) {
+                while (true) {
+                    try {
+                        task.get();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (ExecutionException e) {
+                        break;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private int renderFirstRange() throws IOException, InterruptedException {
+            // Загрузка PDF документа из файла хранилища
+            Document document;
+            try {
+                document = load(pdfFile);
+            } catch (IOException | RuntimeException exception) {
+                fail(exception);
+                throw exception;
+            }
+            try {
+                int pageCount = document.pdf().getPages().getCount();
+                List<List<Integer>> ranges = splitPages(pageCount);
+                for (List<Integer> range : ranges.subList(Math.min(1, ranges.size()), ranges.size())) {
+                    rangeTasks.add(new RenderTask<>(renderExecutor, () -> renderRange(null, range, pageCount)));
+                }
+                if (!ranges.isEmpty()) {
+                    renderRange(document, ranges.getFirst(), pageCount);
+                }
+                return pageCount;
+            } finally {
+                // Освобождение ресурсов PDF документа
+                close(document);
+            }
+        }
+
+        // Неотрисованные страницы делятся на непрерывные диапазоны примерно равной длины, по одному на поток
+        private List<List<Integer>> splitPages(int pageCount) {
+            List<Integer> pages = new ArrayList<>(pageCount);
+            for (int i = 0; i < pageCount; i++) {
+                if (!skipPages.contains(i)) {
+                    pages.add(i);
+                }
+            }
+            // Диапазонов не больше, чем свободных потоков пула (первый диапазон отрисовывает текущий поток):
+            // когда пул занят другими документами, дополнительные копии документа только ждали бы в очереди
+            int idleThreads = Math.max(0, renderExecutor.getMaximumPoolSize() - renderExecutor.getActiveCount());
+            int workers = Math.max(1, Math.min(Math.min(renderParallelism, 1 + idleThreads),
+                    (pages.size() + MIN_PAGES_PER_WORKER - 1) / MIN_PAGES_PER_WORKER));
+            List<List<Integer>> ranges = new ArrayList<>(workers);
+            for (int worker = 0; worker < workers; worker++) {
+                List<Integer> range = pages.subList(pages.size() * worker / workers,
+                        pages.size() * (worker + 1) / workers);
+                if (!range.isEmpty()) {
+                    ranges.add(range);
+                }
+            }
+            return ranges;
+        }
+
+        private Void renderRange(Document shared, List<Integer> pages, int pageCount)
+                throws IOException, InterruptedException {
+            Document document = null;
+            try {
+                document = shared != null ? shared : load(pdfFile);
+                PdfDocument pdf = document.pdf();
+                for (int pageIndex : pages) {
+                    if (cancelled || Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("PDF rendering interrupted");
+                    }
+                    pendingImages.acquire();
+                    RenderMemoryBudget.Reservation memory = null;
+                    try {
+                        memory = reservePage(pdf, pageIndex, tier);
+                        BufferedImage image = pdf.saveAsImage(pageIndex, PdfImageType.Bitmap, tier.getDpi(), tier.getDpi());
+                        RenderMemoryBudget.Reservation imageMemory = memory;
+                        encodeTasks.add(encodeExecutor.submit(() -> encode(image, imageMemory, pageIndex, pageCount)));
+                    } catch (InterruptedException | RuntimeException exception) {
+                        if (memory != null) {
+                            memory.close();
+                        }
+                        pendingImages.release();
+                        throw exception;
+                    }
+                }
+            } catch (IOException | RuntimeException exception) {
+                fail(exception);
+                throw exception;
+            } finally {
+                if (shared == null && document != null) {
+                    close(document);
+                }
+            }
+            return null;
+        }
+
+        private Void encode(BufferedImage image, RenderMemoryBudget.Reservation memory, int pageIndex, int pageCount)
+                throws IOException {
+            try {
+                // Определение пути и имени файла
+                Path imagePath = outputDir.resolve(baseName + String.format("-page-%d.%s", pageIndex, tier.extension()));
+
+                // Сохранение изображения; память изображения возвращается в бюджет до вызова обработчика,
+                // который может ждать завершения обработки других страниц
+                try {
+                    if (cancelled) {
+                        throw new InterruptedIOException("PDF rendering interrupted");
+                    }
+                    writeImage(image, tier, imagePath);
+                } finally {
+                    memory.close();
+                    pendingImages.release();
+                }
+                synchronized (handlerLock) {
+                    if (cancelled) {
+                        throw new InterruptedIOException("PDF rendering interrupted");
+                    }
+                    handler.accept(pageIndex, pageCount, imagePath);
+                }
+            } catch (IOException | RuntimeException exception) {
+                fail(exception);
+                throw exception;
+            }
+            return null;
+        }
     }
 
 }
@@ -0,0 +1,213 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.exception.ConversionJobNotFoundException;
+import com.example.todolist.exception.PageTooLargeException;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import com.example.todolist.repository.PdfConversionJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static com.example.todolist.servicetask.TransactionCallbacks.afterCommit;
+
+/**
+ * Очередь заданий на отрисовку страниц PDF, хранящаяся в таблице pdf_conversion_job. Задание выбирается
+ * обработчиком в транзакции через SELECT ... FOR UPDATE SKIP LOCKED, поэтому несколько обработчиков
+ * (и несколько экземпляров приложения) разбирают очередь параллельно, не получая одно задание дважды.
+ * Задания с большим приоритетом выбираются первыми, упавшие задания повторяются с экспоненциальной задержкой.
+ * Обновления выполняющегося задания проверяют его состояние и номер попытки: обработчик, задание которого
+ * уже возвращено в очередь как зависшее или отменено, не может его завершить и узнает об этом по результату.
+ */
+@Service
+public class PdfConversionQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfConversionQueue.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private static final List<PdfConversionStatus> ACTIVE = List.of(PdfConversionStatus.QUEUED,
+            PdfConversionStatus.RUNNING);
+
+    private final PdfConversionJobRepository jobRepository;
+
+    private final PdfConversionProperties properties;
+
+    // Сигнал обработчикам этого экземпляра о новом задании, чтобы не ждать следующего опроса таблицы
+    private final Object signal = new Object();
+    private boolean signalled;
+
+    public PdfConversionQueue(PdfConversionJobRepository jobRepository, PdfConversionProperties properties) {
+        this.jobRepository = jobRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Ставит в очередь отрисовку страниц PDF-файла.
+     *
+     * @param fileId Идентификатор записи PDF-файла.
+     * @param taskId Идентификатор задачи файла.
+     * @param priority Приоритет задания; задания с большим приоритетом выполняются раньше.
+     * @return Сохраненное задание.
+     */
+    public PdfConversionJob enqueue(Long fileId, Long taskId, int priority) {
+        Date now = new Date();
+        PdfConversionJob job = new PdfConversionJob();
+        job.setFileId(fileId);
+        job.setTaskId(taskId);
+        job.setStatus(PdfConversionStatus.QUEUED);
+        job.setPriority(priority);
+        job.setAttempts(0);
+        job.setNextAttemptAt(now);
+        job.setCreatedAt(now);
+        PdfConversionJob saved = jobRepository.save(job);
+        // Задание, поставленное в транзакции, исполнители увидят только после ее фиксации
+        afterCommit(this::wakeUp);
+        return saved;
+    }
+
+    /**
+     * Захватывает следующее готовое к выполнению задание и переводит его в состояние RUNNING.
+     *
+     * @return Захваченное задание или пустой результат, если очередь пуста.
+     */
+    @Transactional
+    public Optional<PdfConversionJob> claimNext() {
+        Date now = new Date();
+        return jobRepository.findNextForUpdate(now).map(job -> {
+            job.setStatus(PdfConversionStatus.RUNNING);
+            job.setAttempts(job.getAttempts() + 1);
+            job.setStartedAt(now);
+            job.setHeartbeatAt(now);
+            job.setLastError(null);
+            return job;
+        });
+    }
+
+    /**
+     * Отмечает, что обработчик задания продолжает работу.
+     *
+     * @param job Задание, захваченное обработчиком.
+     * @return false, если задание больше не принадлежит обработчику (возвращено в очередь или отменено).
+     */
+    public boolean heartbeat(PdfConversionJob job) {
+        return jobRepository.heartbeat(job.getId(), job.getAttempts(), PdfConversionStatus.RUNNING, new Date()) > 0;
+    }
+
+    /**
+     * Отмечает ход выполнения задания после каждой отрисованной страницы.
+     *
+     * @return false, если задание больше не принадлежит обработчику.
+     */
+    public boolean progress(PdfConversionJob job, int pagesDone, int pageCount) {
+        return jobRepository.updateProgress(job.getId(), job.getAttempts(), PdfConversionStatus.RUNNING, pageCount,
+                pagesDone, new Date()) > 0;
+    }
+
+    /**
+     * @return false, если задание больше не принадлежит обработчику.
+     */
+    public boolean complete(PdfConversionJob job) {
+        return finish(job, PdfConversionStatus.DONE, null);
+    }
+
+    /**
+     * @return false, если задание больше не принадлежит обработчику.
+     */
+    public boolean cancel(PdfConversionJob job) {
+        return finish(job, PdfConversionStatus.CANCELLED, null);
+    }
+
+    /**
+     * Отменяет незавершенные задания файлов, удаленных до окончания отрисовки.
+     */
+    public void cancelForFiles(Collection<Long> fileIds) {
+        if (!fileIds.isEmpty()) {
+            jobRepository.cancelForFiles(fileIds, ACTIVE, PdfConversionStatus.CANCELLED, new Date());
+        }
+    }
+
+    /**
+     * Обрабатывает ошибку задания: если попытки не исчерпаны, задание возвращается в очередь с задержкой,
+     * удваивающейся с каждой попыткой, иначе переводится в состояние FAILED. Страница, не помещающаяся
+     * в бюджет памяти отрисовки, не поместится и при повторе, поэтому такое задание завершается сразу.
+     *
+     * @param job Задание, захваченное обработчиком.
+     * @param error Ошибка отрисовки.
+     * @return Новое состояние задания (FAILED или QUEUED) или пустой результат, если задание больше
+     * не принадлежит обработчику.
+     */
+    public Optional<PdfConversionStatus> fail(PdfConversionJob job, Throwable error) {
+        String message = String.valueOf(error.getMessage());
+        String lastError = message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+
+        if (job.getAttempts() >= properties.getMaxAttempts() || error instanceof PageTooLargeException) {
+            return finish(job, PdfConversionStatus.FAILED, lastError)
+                    ? Optional.of(PdfConversionStatus.FAILED) : Optional.empty();
+        }
+        Duration delay = properties.getRetryDelay().multipliedBy(1L << Math.min(job.getAttempts() - 1, 16));
+        Date nextAttemptAt = new Date(System.currentTimeMillis() + delay.toMillis());
+        int updated = jobRepository.requeue(job.getId(), job.getAttempts(), PdfConversionStatus.RUNNING,
+                PdfConversionStatus.QUEUED, lastError, nextAttemptAt);
+        return updated > 0 ? Optional.of(PdfConversionStatus.QUEUED) : Optional.empty();
+    }
+
+    /**
+     * Возвращает в очередь задания, обработчик которых не отмечался дольше допустимого (экземпляр приложения
+     * остановлен во время отрисовки). Уже отрисованные страницы при повторе не отрисовываются заново.
+     */
+    @Scheduled(fixedDelayString = "${pdf.conversion.stall-check-interval:PT1M}")
+    public void requeueStalled() {
+        Date now = new Date();
+        Date stalledBefore = new Date(now.getTime() - properties.getStallTimeout().toMillis());
+        int requeued = jobRepository.requeueStalled(PdfConversionStatus.QUEUED, PdfConversionStatus.RUNNING,
+                stalledBefore, now);
+        if (requeued > 0) {
+            log.warn("Requeued {} stalled PDF conversion jobs", requeued);
+            wakeUp();
+        }
+    }
+
+    public PdfConversionJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new ConversionJobNotFoundException("Could not find conversion job " + jobId));
+    }
+
+    public PdfConversionJob findJobForFile(Long fileId) {
+        return jobRepository.findFirstByFileIdOrderByIdDesc(fileId)
+                .orElseThrow(() -> new ConversionJobNotFoundException("No conversion job for file " + fileId));
+    }
+
+    /**
+     * Ожидает сигнала о новом задании не дольше заданного времени.
+     */
+    void awaitWork(Duration timeout) throws InterruptedException {
+        synchronized (signal) {
+            if (!signalled) {
+                signal.wait(Math.max(1, timeout.toMillis()));
+            }
+            signalled = false;
+        }
+    }
+
+    private boolean finish(PdfConversionJob job, PdfConversionStatus status, String error) {
+        return jobRepository.finish(job.getId(), job.getAttempts(), PdfConversionStatus.RUNNING, status, error,
+                new Date()) > 0;
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+}
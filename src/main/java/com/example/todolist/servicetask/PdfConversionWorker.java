@@ -0,0 +1,216 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import com.example.todolist.repository.FileRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обработчики очереди отрисовки PDF. Каждый обработчик - отдельный поток, который забирает из очереди задание
+ * и отрисовывает страницы PDF, сохраняя их по одной. Число обработчиков ограничивает число одновременно
+ * отрисовываемых документов, поэтому всплеск загрузок PDF не занимает потоки запросов и не исчерпывает память:
+ * лишние документы ждут в очереди. Обработчики запускаются после старта приложения.
+ * Пока задание выполняется, таймер отмечает его с интервалом heartbeat-interval, поэтому долго отрисовываемая
+ * страница не делает задание зависшим. Если отметка, ход выполнения или завершение не обновили ни одной строки,
+ * задание уже возвращено в очередь или отменено: обработчик прекращает отрисовку и не меняет состояние задания.
+ */
+@Service
+public class PdfConversionWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfConversionWorker.class);
+
+    private final FileSystemStorage fileSystemStorage;
+
+    private final PdfConversionQueue queue;
+
+    private final FileRepository fileRepository;
+
+    private final PdfConversionProperties properties;
+
+    private final List<Thread> workers = new ArrayList<>();
+
+    // Поток таймера создается при первой отметке
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pdf-conversion-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean stopped;
+
+    public PdfConversionWorker(FileSystemStorage fileSystemStorage, PdfConversionQueue queue,
+                               FileRepository fileRepository, PdfConversionProperties properties) {
+        this.fileSystemStorage = fileSystemStorage;
+        this.queue = queue;
+        this.fileRepository = fileRepository;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        for (int i = 1; i <= Math.max(0, properties.getWorkers()); i++) {
+            Thread worker = new Thread(this::run, "pdf-conversion-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        stopped = true;
+        workers.forEach(Thread::interrupt);
+        workers.clear();
+        heartbeats.shutdownNow();
+    }
+
+    private void run() {
+        while (!stopped) {
+            try {
+                Optional<PdfConversionJob> job = queue.claimNext();
+                if (job.isPresent()) {
+                    process(job.get());
+                } else {
+                    queue.awaitWork(properties.getPollInterval());
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException exception) {
+                // Ошибка доступа к очереди (например, база недоступна): повтор после паузы
+                log.warn("PDF conversion worker failed to poll the queue", exception);
+                try {
+                    Thread.sleep(properties.getPollInterval().toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет одно задание. При ошибке задание возвращается в очередь для повтора, а после исчерпания
+     * попыток PDF получает состояние FAILED. Задание, потерянное обработчиком во время отрисовки,
+     * оставляется новому владельцу.
+     */
+    public void process(PdfConversionJob job) {
+        File pdf = fileRepository.findById(job.getFileId()).orElse(null);
+        if (pdf == null) {
+            // Файл удален до начала отрисовки
+            queue.cancel(job);
+            return;
+        }
+        Heartbeat heartbeat = new Heartbeat(job);
+        try {
+            try {
+                fileSystemStorage.convertPdfPages(pdf, (done, count) -> {
+                    if (!queue.progress(job, done, count)) {
+                        throw heartbeat.lose();
+                    }
+                });
+            } finally {
+                heartbeat.stop();
+            }
+            if (!queue.complete(job)) {
+                log.warn("PDF conversion job {} was taken over before it completed", job.getId());
+            }
+        } catch (Exception exception) {
+            if (heartbeat.isLost()) {
+                log.warn("PDF conversion job {} was requeued or cancelled, stopped rendering file {}", job.getId(),
+                        pdf.getId());
+                return;
+            }
+            if (!fileRepository.existsById(pdf.getId())) {
+                queue.cancel(job);
+                return;
+            }
+            Optional<PdfConversionStatus> status = queue.fail(job, exception);
+            if (status.isEmpty()) {
+                log.warn("PDF conversion job {} for file {} failed after it was taken over", job.getId(),
+                        pdf.getId(), exception);
+                return;
+            }
+            boolean failed = status.get() == PdfConversionStatus.FAILED;
+            log.warn("PDF conversion job {} for file {} failed{}", job.getId(), pdf.getId(),
+                    failed ? "" : ", will retry", exception);
+            fileRepository.updateConversionStatus(pdf.getId(), status.get(), new Date());
+            fileSystemStorage.evictFiles(List.of(pdf.getId()));
+        }
+    }
+
+    /**
+     * Отметки задания по таймеру на время отрисовки. Если отметка не обновила строку задания, поток обработчика
+     * прерывается, и отрисовка останавливается.
+     */
+    private class Heartbeat {
+
+        private final PdfConversionJob job;
+
+        private final Thread owner = Thread.currentThread();
+
+        private final ScheduledFuture<?> timer;
+
+        private boolean lost;
+
+        private boolean stopped;
+
+        Heartbeat(PdfConversionJob job) {
+            this.job = job;
+            long interval = Math.max(1, properties.getHeartbeatInterval().toMillis());
+            this.timer = heartbeats.scheduleAtFixedRate(this::beat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void beat() {
+            if (stopped || lost) {
+                return;
+            }
+            try {
+                if (!queue.heartbeat(job)) {
+                    lose();
+                }
+            } catch (RuntimeException exception) {
+                // База недоступна: задание остается у обработчика, пока не будет возвращено в очередь как зависшее
+                log.warn("Could not record heartbeat of PDF conversion job {}", job.getId(), exception);
+            }
+        }
+
+        synchronized CancellationException lose() {
+            if (!lost && !stopped) {
+                lost = true;
+                owner.interrupt();
+            }
+            return new CancellationException("PDF conversion job " + job.getId() + " is no longer owned by this worker");
+        }
+
+        synchronized boolean isLost() {
+            return lost;
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            timer.cancel(false);
+            // Прерывание относилось только к отрисовке потерянного задания, обработчик продолжает разбирать очередь
+            if (lost && !PdfConversionWorker.this.stopped) {
+                Thread.interrupted();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.todolist.servicetask;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Отдает файл с диска с поддержкой запросов диапазонов (Range, If-Range), в том числе нескольких диапазонов
+ * в ответе multipart/byteranges. Если контейнер поддерживает sendfile (Tomcat NIO), передача файла или одного
+ * диапазона поручается ему и данные идут из файла в сокет без копирования через память приложения. Иначе, как и для
+ * multipart/byteranges, данные пишутся в поток ответа через FileChannel.transferTo: канал поверх
+ * ServletOutputStream не поддерживает передачу без копирования, поэтому файл копируется небольшими блоками
+ * через буфер, но целиком в память не загружается.
+ * Пересекающиеся и соседние диапазоны объединяются, а запрос, в сумме превышающий длину файла, отклоняется,
+ * чтобы заголовок из множества перекрывающихся диапазонов не заставлял отдавать файл многократно.
+ */
+final class RangeFileTransfer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangeFileTransfer() {
+    }
+
+    /**
+     * Записывает в ответ файл целиком (200), запрошенные диапазоны (206) или статус 416 для диапазонов, которые
+     * не пересекаются с файлом.
+     *
+     * @param path Путь к файлу.
+     * @param contentType Тип содержимого файла.
+     * @param fileName Имя файла для заголовка Content-Disposition.
+     * @param eTag Сильный ETag файла, с которым сравнивается If-Range.
+     * @param lastModified Время изменения файла или -1, если неизвестно.
+     */
+    static void send(Path path, String contentType, String fileName, String eTag, long lastModified,
+                     HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = Files.size(path);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        List<Span> ranges;
+        try {
+            ranges = coalesce(rangesToSend(request, eTag, lastModified), length);
+        } catch (IllegalArgumentException exception) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            return;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                transfer(path, 0, length, request, response);
+            }
+        } else if (ranges.size() == 1) {
+            long start = ranges.getFirst().start();
+            long end = ranges.getFirst().end();
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                transfer(path, start, end - start + 1, request, response);
+            }
+        } else {
+            String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+            if (!head) {
+                sendMultipart(path, contentType, length, ranges, boundary, response);
+            }
+        }
+    }
+
+    /**
+     * Возвращает запрошенные диапазоны или пустой список, если нужно отдать файл целиком: заголовка Range нет,
+     * он синтаксически некорректен (такой заголовок игнорируется) либо If-Range не совпадает с текущей версией
+     * файла (у клиента устаревшая часть файла).
+     */
+    private static List<HttpRange> rangesToSend(HttpServletRequest request, String eTag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(request, ifRange, eTag, lastModified)) {
+            return List.of();
+        }
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException exception) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Переводит запрошенные диапазоны в границы внутри файла, упорядочивает их и объединяет пересекающиеся
+     * и соседние диапазоны.
+     *
+     * @throws IllegalArgumentException Если диапазон не пересекается с файлом или запрошено в сумме больше
+     *                                  байтов, чем содержит файл.
+     */
+    private static List<Span> coalesce(List<HttpRange> ranges, long length) {
+        List<Span> spans = new ArrayList<>(ranges.size());
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            // Проверка, что диапазон пересекается с файлом: начало диапазона должно лежать внутри файла
+            if (start >= length || end < start) {
+                throw new IllegalArgumentException("Range does not overlap the file");
+            }
+            requested += end - start + 1;
+            spans.add(new Span(start, end));
+        }
+        if (requested > length) {
+            throw new IllegalArgumentException("Ranges exceed the file length");
+        }
+
+        spans.sort(Comparator.comparingLong(Span::start));
+        List<Span> merged = new ArrayList<>(spans.size());
+        for (Span span : spans) {
+            Span last = merged.isEmpty() ? null : merged.getLast();
+            if (last != null && span.start() <= last.end() + 1) {
+                merged.set(merged.size() - 1, new Span(last.start(), Math.max(last.end(), span.end())));
+            } else {
+                merged.add(span);
+            }
+        }
+        return merged;
+    }
+
+    private static boolean ifRangeMatches(HttpServletRequest request, String ifRange, String eTag,
+                                          long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Для If-Range допускается только сильное сравнение ETag
+            return ifRange.equals(eTag);
+        }
+        try {
+            long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+            return lastModified >= 0 && date >= 0 && lastModified / 1000 == date / 1000;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    private static void transfer(Path path, long position, long count, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        // Передача файла контейнером напрямую из файла в сокет (sendfile), без записи в поток ответа
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, position);
+            request.setAttribute(SENDFILE_END, position + count);
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            transfer(channel, position, count, Channels.newChannel(out));
+        }
+        out.flush();
+    }
+
+    private static void sendMultipart(Path path, String contentType, long length, List<Span> ranges,
+                                      String boundary, HttpServletResponse response) throws IOException {
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (Span range : ranges) {
+                long start = range.start();
+                long end = range.end();
+                out.write(("\r\n--" + boundary + "\r\n"
+                        + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                        + HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, length) + "\r\n\r\n")
+                        .getBytes(StandardCharsets.US_ASCII));
+                transfer(channel, start, end - start + 1, target);
+            }
+        }
+        out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void transfer(FileChannel channel, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long sent = 0;
+        while (sent < count) {
+            long written = channel.transferTo(position + sent, count - sent, target);
+            if (written <= 0) {
+                throw new IOException("File truncated during transfer");
+            }
+            sent += written;
+        }
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+
+    // Диапазон байтов файла; конец включается
+    private record Span(long start, long end) {
+    }
+}
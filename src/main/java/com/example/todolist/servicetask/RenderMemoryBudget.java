@@ -0,0 +1,127 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.PageRenderProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Общий для всех отрисовок PDF бюджет памяти под несжатые изображения страниц. Перед растеризацией страницы
+ * отрисовка резервирует под ее изображение оценку его размера и возвращает память в бюджет, как только
+ * изображение записано в файл. Когда бюджет исчерпан, отрисовка следующей страницы ждет, пока другие
+ * страницы будут записаны, поэтому одновременные конвертации замедляются, а не исчерпывают память JVM.
+ * Разобранные копии документов учитываются в отдельном бюджете: копия держится, пока отрисовывается ее
+ * диапазон страниц, и ждет памяти под изображения, поэтому в общем бюджете копии могли бы занять всю память
+ * и ни одна страница не получила бы резерва.
+ */
+@Service
+public class RenderMemoryBudget {
+
+    // Бюджет считается в килобайтах, чтобы размер больше 2 ГБ помещался в разрешения семафора
+    private static final long UNIT = 1024;
+
+    private final long totalUnits;
+
+    // Честная очередь: крупная страница не ждет бесконечно, пока бюджет занимают страницы поменьше
+    private final Semaphore units;
+
+    private final long documentUnits;
+
+    private final Semaphore documents;
+
+    private final int documentMemoryFactor;
+
+    public RenderMemoryBudget(PageRenderProperties properties) {
+        this.totalUnits = Math.clamp(properties.getMemoryBudget().toBytes() / UNIT, 1, Integer.MAX_VALUE);
+        this.units = new Semaphore((int) totalUnits, true);
+        this.documentUnits = Math.clamp(properties.getDocumentMemoryBudget().toBytes() / UNIT, 1, Integer.MAX_VALUE);
+        this.documents = new Semaphore((int) documentUnits, true);
+        this.documentMemoryFactor = Math.max(1, properties.getDocumentMemoryFactor());
+    }
+
+    /**
+     * Проверяет, поместится ли изображение заданного размера в бюджет, когда бюджет свободен.
+     */
+    public boolean fits(long bytes) {
+        return toUnits(bytes) <= totalUnits;
+    }
+
+    /**
+     * Резервирует память под изображение, ожидая, пока в бюджете освободится нужный объем.
+     *
+     * @param bytes Оценка размера изображения в байтах.
+     * @return Резерв, который нужно закрыть после записи изображения.
+     * @throws IllegalArgumentException Если изображение больше всего бюджета.
+     * @throws InterruptedException Если ожидание прервано.
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        if (!fits(bytes)) {
+            throw new IllegalArgumentException("Image of " + bytes + " bytes exceeds the render memory budget");
+        }
+        int reserved = (int) toUnits(bytes);
+        units.acquire(reserved);
+        return new Reservation(units, reserved);
+    }
+
+    /**
+     * Резервирует память под загружаемую копию документа, ожидая, пока другие копии будут закрыты. Размер копии
+     * оценивается по размеру файла документа. Копия больше всего бюджета документов занимает его целиком
+     * и загружается, когда других копий нет.
+     *
+     * @param fileBytes Размер файла документа в байтах.
+     * @return Резерв, который нужно закрыть после закрытия документа.
+     * @throws InterruptedException Если ожидание прервано.
+     */
+    public Reservation reserveDocument(long fileBytes) throws InterruptedException {
+        long bytes = fileBytes > Long.MAX_VALUE / documentMemoryFactor ? Long.MAX_VALUE : fileBytes * documentMemoryFactor;
+        int reserved = (int) Math.min(toUnits(bytes), documentUnits);
+        documents.acquire(reserved);
+        return new Reservation(documents, reserved);
+    }
+
+    public long totalBytes() {
+        return totalUnits * UNIT;
+    }
+
+    public long availableBytes() {
+        return units.availablePermits() * UNIT;
+    }
+
+    public long totalDocumentBytes() {
+        return documentUnits * UNIT;
+    }
+
+    public long availableDocumentBytes() {
+        return documents.availablePermits() * UNIT;
+    }
+
+    private static long toUnits(long bytes) {
+        return Math.max(1, (bytes + UNIT - 1) / UNIT);
+    }
+
+    /**
+     * Память, зарезервированная под одно изображение или копию документа. Повторное закрытие ничего не делает,
+     * поэтому резерв можно закрывать и после записи изображения, и при обработке ошибки.
+     */
+    public static final class Reservation implements AutoCloseable {
+
+        private final Semaphore budget;
+
+        private final int reserved;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(Semaphore budget, int reserved) {
+            this.budget = budget;
+            this.reserved = reserved;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                budget.release(reserved);
+            }
+        }
+    }
+}
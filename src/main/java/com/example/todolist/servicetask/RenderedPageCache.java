@@ -0,0 +1,351 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.PageCacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.exception.FileStorageException;
+import com.example.todolist.model.CacheStats;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Кэш изображений страниц PDF, отрисованных по запросу. Страницы хранятся на диске в директории page-cache
+ * хранилища и наиболее востребованные из них - в памяти; оба уровня ограничены суммарным размером и вытесняют
+ * давно не использованные страницы (LRU). Ключ страницы - хэш содержимого PDF, параметры уровня качества
+ * и номер страницы, поэтому одинаковые PDF разных задач используют одни и те же изображения, а изображение
+ * никогда не устаревает. Ключ совпадает с именем файла страницы на диске.
+ * Одновременные запросы одной и той же страницы отрисовывают ее один раз. Все страницы документа
+ * отдаются по порядку за один проход отрисовки, в котором документ загружается один раз.
+ */
+@Service
+public class RenderedPageCache {
+
+    private static final String CACHE_DIRECTORY = "page-cache";
+
+    // Временные директории отрисовки всех страниц документа; не входят в индекс кэша
+    private static final String RENDER_DIRECTORY_PREFIX = "render-";
+
+    private final PDFService pdfService;
+
+    private final Path cacheDirectory;
+
+    private final long memoryMaxBytes;
+    private final long memoryMaxEntryBytes;
+    private final long diskMaxBytes;
+
+    // Порядок доступа LinkedHashMap задает порядок вытеснения; оба индекса защищены блокировкой кэша
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final Map<String, CompletableFuture<byte[]>> rendering = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong memoryEvictions = new AtomicLong();
+    private final AtomicLong diskEvictions = new AtomicLong();
+
+    public RenderedPageCache(StorageProperties storageProperties, PageCacheProperties properties,
+                             PDFService pdfService) {
+        this.pdfService = pdfService;
+        this.cacheDirectory = Paths.get(storageProperties.getLocation()).toAbsolutePath().normalize()
+                .resolve(CACHE_DIRECTORY);
+        this.memoryMaxBytes = properties.getMemoryMaxSize().toBytes();
+        this.memoryMaxEntryBytes = Math.min(properties.getMemoryMaxEntrySize().toBytes(), memoryMaxBytes);
+        this.diskMaxBytes = properties.getDiskMaxSize().toBytes();
+        try {
+            Files.createDirectories(cacheDirectory);
+            loadDiskIndex();
+        } catch (IOException exception) {
+            throw new FileStorageException("Could not create page cache dir!");
+        }
+    }
+
+    /**
+     * Возвращает изображение страницы PDF из памяти, с диска или отрисовывает его.
+     *
+     * @param contentHash Хэш содержимого PDF.
+     * @param pdfFile Файл PDF в хранилище.
+     * @param pageIndex Номер страницы, начиная с нуля.
+     * @param tier Разрешение и формат изображения.
+     * @return Содержимое изображения страницы.
+     * @throws IOException Если страницу не удалось прочитать или отрисовать.
+     */
+    public byte[] getPage(String contentHash, Path pdfFile, int pageIndex, PageRenderProperties.Tier tier)
+            throws IOException {
+        String key = key(contentHash, pageIndex, tier);
+        byte[] cached = fromMemory(key);
+        if (cached != null) {
+            memoryHits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> inProgress = rendering.putIfAbsent(key, created);
+        if (inProgress != null) {
+            // Та же страница уже читается или отрисовывается другим запросом
+            return join(inProgress);
+        }
+        try {
+            byte[] page = load(key, pdfFile, pageIndex, tier);
+            created.complete(page);
+            return page;
+        } catch (IOException | RuntimeException exception) {
+            created.completeExceptionally(exception);
+            throw exception;
+        } finally {
+            rendering.remove(key);
+        }
+    }
+
+    /**
+     * Получатель изображения страницы.
+     */
+    @FunctionalInterface
+    public interface PageConsumer {
+        void accept(int pageIndex, byte[] content) throws IOException;
+    }
+
+    /**
+     * Передает изображения всех страниц PDF по порядку. Страницы, которых нет в кэше, отрисовываются одним
+     * проходом по документу, а не загрузкой документа для каждой страницы, и добавляются в кэш.
+     *
+     * @param contentHash Хэш содержимого PDF.
+     * @param pdfFile Файл PDF в хранилище.
+     * @param pageCount Число страниц PDF.
+     * @param tier Разрешение и формат изображений.
+     * @param consumer Получатель изображений страниц.
+     * @throws IOException Если страницы не удалось прочитать или отрисовать.
+     */
+    public void forEachPage(String contentHash, Path pdfFile, int pageCount, PageRenderProperties.Tier tier,
+                            PageConsumer consumer) throws IOException {
+        Set<Integer> cached = new HashSet<>();
+        synchronized (this) {
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                String key = key(contentHash, pageIndex, tier);
+                if (memory.containsKey(key) || disk.containsKey(key)) {
+                    cached.add(pageIndex);
+                }
+            }
+        }
+        if (cached.size() == pageCount) {
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                consumer.accept(pageIndex, getPage(contentHash, pdfFile, pageIndex, tier));
+            }
+            return;
+        }
+
+        Path renderDirectory = Files.createTempDirectory(cacheDirectory, RENDER_DIRECTORY_PREFIX);
+        try {
+            // Отрисованные изображения остаются во временной директории до передачи получателю, поэтому
+            // вытеснение с диска во время прохода не заставляет отрисовывать страницу повторно
+            Map<Integer, Path> rendered = new ConcurrentHashMap<>();
+            pdfService.convertPDFToImages(pdfFile, renderDirectory, "page", cached, tier,
+                    (pageIndex, count, image) -> rendered.put(pageIndex, image));
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                Path image = rendered.get(pageIndex);
+                if (image == null) {
+                    consumer.accept(pageIndex, getPage(contentHash, pdfFile, pageIndex, tier));
+                    continue;
+                }
+                misses.incrementAndGet();
+                String key = key(contentHash, pageIndex, tier);
+                byte[] page = Files.readAllBytes(image);
+                Files.move(image, cacheDirectory.resolve(key), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                toDisk(key, page.length);
+                toMemory(key, page);
+                consumer.accept(pageIndex, page);
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(renderDirectory);
+        }
+    }
+
+    public CacheStats memoryStats() {
+        synchronized (this) {
+            return stats(memoryHits.get(), memoryEvictions.get(), memory.size());
+        }
+    }
+
+    public CacheStats diskStats() {
+        synchronized (this) {
+            return stats(diskHits.get(), diskEvictions.get(), disk.size());
+        }
+    }
+
+    private CacheStats stats(long hits, long evictions, int size) {
+        long missCount = misses.get();
+        long total = hits + missCount;
+        return new CacheStats(hits, missCount, evictions, 0, size, total == 0 ? 0.0 : (double) hits / total);
+    }
+
+    private byte[] load(String key, Path pdfFile, int pageIndex, PageRenderProperties.Tier tier)
+            throws IOException {
+        Path cached = cacheDirectory.resolve(key);
+        boolean onDisk;
+        synchronized (this) {
+            onDisk = disk.get(key) != null;
+        }
+        if (onDisk) {
+            try {
+                byte[] page = Files.readAllBytes(cached);
+                diskHits.incrementAndGet();
+                toMemory(key, page);
+                return page;
+            } catch (NoSuchFileException exception) {
+                // Файл удален вне кэша: страница отрисовывается заново
+                synchronized (this) {
+                    Long size = disk.remove(key);
+                    diskBytes -= size == null ? 0 : size;
+                }
+            }
+        }
+
+        misses.incrementAndGet();
+        Path temp = Files.createTempFile(cacheDirectory, key, ".part");
+        try {
+            pdfService.renderPage(pdfFile, pageIndex, tier, temp);
+            Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        byte[] page = Files.readAllBytes(cached);
+        toDisk(key, page.length);
+        toMemory(key, page);
+        return page;
+    }
+
+    private static String key(String contentHash, int pageIndex, PageRenderProperties.Tier tier) {
+        return contentHash + "-" + tier.fingerprint() + "-" + pageIndex + "." + tier.extension();
+    }
+
+    private synchronized byte[] fromMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void toMemory(String key, byte[] page) {
+        if (page.length > memoryMaxEntryBytes) {
+            return;
+        }
+        byte[] previous = memory.put(key, page);
+        memoryBytes += page.length - (previous == null ? 0 : previous.length);
+        Iterator<Map.Entry<String, byte[]>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryMaxBytes && eldest.hasNext()) {
+            Map.Entry<String, byte[]> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            memoryBytes -= entry.getValue().length;
+            eldest.remove();
+            memoryEvictions.incrementAndGet();
+        }
+    }
+
+    private void toDisk(String key, long size) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = disk.put(key, size);
+            diskBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> eldest = disk.entrySet().iterator();
+            while (diskBytes > diskMaxBytes && eldest.hasNext()) {
+                Map.Entry<String, Long> entry = eldest.next();
+                if (entry.getKey().equals(key)) {
+                    continue;
+                }
+                diskBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        // Файлы удаляются вне блокировки; страница, вытесненная с диска, может остаться в памяти
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(cacheDirectory.resolve(evictedKey));
+                diskEvictions.incrementAndGet();
+            } catch (IOException exception) {
+                // Файл будет удален при следующем вытеснении или перезаписан при повторной отрисовке
+            }
+        }
+    }
+
+    // Страницы, отрисованные до перезапуска, остаются в кэше; порядок вытеснения восстанавливается по времени записи
+    private void loadDiskIndex() throws IOException {
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            files.map(path -> {
+                        try {
+                            return Map.entry(path, Files.readAttributes(path, BasicFileAttributes.class));
+                        } catch (IOException exception) {
+                            throw new UncheckedIOException(exception);
+                        }
+                    })
+                    .filter(entry -> {
+                        if (entry.getValue().isDirectory()
+                                && entry.getKey().getFileName().toString().startsWith(RENDER_DIRECTORY_PREFIX)) {
+                            // Отрисовка документа, прерванная остановкой приложения
+                            try {
+                                FileSystemUtils.deleteRecursively(entry.getKey());
+                            } catch (IOException exception) {
+                                // Директория будет удалена при следующем запуске
+                            }
+                        }
+                        return entry.getValue().isRegularFile();
+                    })
+                    .sorted(Comparator.comparing(entry -> entry.getValue().lastModifiedTime()))
+                    .forEach(entry -> {
+                        String name = entry.getKey().getFileName().toString();
+                        if (!name.endsWith(".part")) {
+                            disk.put(name, entry.getValue().size());
+                            diskBytes += entry.getValue().size();
+                        } else {
+                            // Часть страницы, отрисовка которой была прервана остановкой приложения
+                            try {
+                                Files.deleteIfExists(entry.getKey());
+                            } catch (IOException exception) {
+                                // Файл будет удален при следующем запуске
+                            }
+                        }
+                    });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private static byte[] join(CompletableFuture<byte[]> page) throws IOException {
+        try {
+            return page.join();
+        } catch (CompletionException exception) {
+            if (exception.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (exception.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw exception;
+        }
+    }
+}
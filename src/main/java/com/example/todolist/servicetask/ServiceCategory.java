@@ -1,35 +1,60 @@
 package com.example.todolist.servicetask;
 
+import com.example.todolist.cache.LruCache;
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.Category;
 import com.example.todolist.repository.CategoryRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Optional;
 
 @Service
 public class ServiceCategory {
     private final CategoryRepository categoryRepository;
 
-    public ServiceCategory(CategoryRepository repository){
+    // Категории меняются редко, поэтому кэшируются по идентификатору и по имени
+    private final LruCache<Long, Category> categoriesById;
+    private final LruCache<String, Long> idsByName;
+
+    public ServiceCategory(CategoryRepository repository, CacheProperties cacheProperties){
         this.categoryRepository = repository;
+        this.categoriesById = new LruCache<>(cacheProperties.getReferenceMaxSize());
+        this.idsByName = new LruCache<>(cacheProperties.getReferenceMaxSize());
     }
 
     public Category saveCategory(Category category) {
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        evict(savedCategory.getId());
+        return savedCategory;
     }
 
     public void deleteTask(Long id)
     {
         categoryRepository.deleteById(id);
+        evict(id);
     }
 
     public Category findTaskById(Long id)
     {
-        return categoryRepository.findById(id).orElse(null);
+        return categoriesById.get(id, () -> categoryRepository.findById(id).orElse(null));
     }
 
     public Long getIdByName(String name) {
-        Optional<Category> entity = categoryRepository.findByName(name);
-        return entity.map(Category::getId).orElse(null);
+        return idsByName.get(name, () -> {
+            Optional<Category> entity = categoryRepository.findByName(name);
+            return entity.map(Category::getId).orElse(null);
+        });
+    }
+
+    public Map<String, CacheStats> cacheStats() {
+        return Map.of("categoriesById", categoriesById.stats(), "categoryIdsByName", idsByName.stats());
+    }
+
+    private void evict(Long id) {
+        categoriesById.invalidate(id);
+        // Имя категории могло измениться, поэтому индекс по именам сбрасывается целиком
+        idsByName.clear();
     }
 }
@@ -1,9 +1,13 @@
 package com.example.todolist.servicetask;
 
+import com.example.todolist.cache.LruCache;
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.model.CacheStats;
 import com.example.todolist.model.Tag;
 import com.example.todolist.repository.TagRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -11,26 +15,47 @@ public class ServiceTag {
 
     private final TagRepository repository;
 
-    public ServiceTag(TagRepository repository){
+    // Тэги меняются редко, поэтому кэшируются по идентификатору и по имени
+    private final LruCache<Long, Tag> tagsById;
+    private final LruCache<String, Long> idsByName;
+
+    public ServiceTag(TagRepository repository, CacheProperties cacheProperties){
         this.repository = repository;
+        this.tagsById = new LruCache<>(cacheProperties.getReferenceMaxSize());
+        this.idsByName = new LruCache<>(cacheProperties.getReferenceMaxSize());
     }
 
     public Tag saveTag(Tag tag){
-        return repository.save(tag);
+        Tag savedTag = repository.save(tag);
+        evict(savedTag.getId());
+        return savedTag;
     }
 
     public void deleteTask(Long id)
     {
         repository.deleteById(id);
+        evict(id);
     }
 
     public Tag findTaskById(Long id)
     {
-        return repository.findById(id).orElse(null);
+        return tagsById.get(id, () -> repository.findById(id).orElse(null));
     }
 
     public Long getIdByName(String name) {
-        Optional<Tag> entity = repository.findByName(name);
-        return entity.map(Tag::getId).orElse(null);
+        return idsByName.get(name, () -> {
+            Optional<Tag> entity = repository.findByName(name);
+            return entity.map(Tag::getId).orElse(null);
+        });
+    }
+
+    public Map<String, CacheStats> cacheStats() {
+        return Map.of("tagsById", tagsById.stats(), "tagIdsByName", idsByName.stats());
+    }
+
+    private void evict(Long id) {
+        tagsById.invalidate(id);
+        // Имя тэга могло измениться, поэтому индекс по именам сбрасывается целиком
+        idsByName.clear();
     }
 }
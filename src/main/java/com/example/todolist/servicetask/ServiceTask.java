@@ -1,46 +1,634 @@
 package com.example.todolist.servicetask;
 
+import com.example.todolist.config.TaskBatchProperties;
+import com.example.todolist.config.TaskPageProperties;
+import com.example.todolist.exception.InvalidBatchException;
+import com.example.todolist.exception.InvalidTaskQueryException;
+import com.example.todolist.model.BatchItemResult;
+import com.example.todolist.model.BatchItemStatus;
+import com.example.todolist.model.CacheStats;
+import com.example.todolist.model.Category;
 import com.example.todolist.model.File;
+import com.example.todolist.model.Tag;
 import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskBatchItem;
+import com.example.todolist.model.TaskFilter;
+import com.example.todolist.model.TaskEventType;
+import com.example.todolist.model.TaskListItem;
+import com.example.todolist.model.TaskPage;
 import com.example.todolist.repository.Repository;
+import com.example.todolist.repository.TaskListVersion;
+import com.example.todolist.repository.TaskRef;
+import com.example.todolist.repository.TaskSpecifications;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.example.todolist.servicetask.TransactionCallbacks.afterCommit;
 
 
 @Service
 public class ServiceTask {
+    // Допустимые поля сортировки и соответствующие им пути атрибутов сущности Task
+    private static final Map<String, String> SORT_FIELDS = Map.of(
+            "id", "id",
+            "title", "title",
+            "creationDate", "creationDate",
+            "tag", "tag.name",
+            "category", "category.name");
+
+    // Дополнительные поля облегченного представления задачи
+    private static final String EXPAND_DESCRIPTION = "description";
+    private static final String EXPAND_FILES = "files";
+
+    // Количество задач, после записи которых накопленные данные отправляются клиенту
+    private static final int STREAM_FLUSH_INTERVAL = 100;
+
     private final Repository repository;
 
-    public ServiceTask(Repository repository){
+    private final TaskPageProperties pageProperties;
+
+    private final TaskSearchIndex searchIndex;
+
+    private final TaskCache taskCache;
+
+    private final ObjectMapper objectMapper;
+
+    private final TaskBatchProperties batchProperties;
+
+    private final ServiceCategory catService;
+
+    private final ServiceTag tagService;
+
+    private final TaskCounterService counterService;
+
+    private final TaskEventBroadcaster eventBroadcaster;
+
+    private final FileSystemStorage fileSystemStorage;
+
+    private final PdfConversionQueue conversionQueue;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ServiceTask(Repository repository, TaskPageProperties pageProperties, TaskSearchIndex searchIndex,
+                       TaskCache taskCache, ObjectMapper objectMapper, TaskBatchProperties batchProperties,
+                       ServiceCategory catService, ServiceTag tagService, TaskCounterService counterService,
+                       TaskEventBroadcaster eventBroadcaster, FileSystemStorage fileSystemStorage,
+                       PdfConversionQueue conversionQueue){
         this.repository = repository;
+        this.pageProperties = pageProperties;
+        this.searchIndex = searchIndex;
+        this.taskCache = taskCache;
+        this.objectMapper = objectMapper;
+        this.batchProperties = batchProperties;
+        this.catService = catService;
+        this.tagService = tagService;
+        this.counterService = counterService;
+        this.eventBroadcaster = eventBroadcaster;
+        this.fileSystemStorage = fileSystemStorage;
+        this.conversionQueue = conversionQueue;
     }
 
     public List<Task> findAllTasks(){
         return repository.findAll();
     }
 
+    /**
+     * Возвращает все задачи для отображения на странице задач. Файлы, категория и тэг каждой задачи загружаются
+     * тем же запросом, поэтому шаблон не выполняет отдельных запросов к базе для каждой задачи.
+     *
+     * @return Список задач с инициализированными файлами, категорией и тэгом.
+     */
+    public List<Task> findTasksForView() {
+        return repository.findAllForView();
+    }
+
+    /**
+     * Возвращает одну страницу задач, упорядоченных по идентификатору, начиная сразу после задачи,
+     * закодированной в токене продолжения. Выборка идет по первичному ключу (keyset), поэтому стоимость
+     * запроса и объем памяти не зависят от номера страницы и общего количества задач.
+     * По умолчанию задачи возвращаются в облегченном представлении, которое читается из базы проекцией
+     * без описания и списка файлов; эти поля добавляются только если они перечислены в expand.
+     *
+     * @param cursor Токен продолжения из предыдущей страницы или null для первой страницы.
+     * @param size Запрошенный размер страницы; если не указан, берется значение по умолчанию, и он не может превышать максимум.
+     * @param expand Дополнительные поля: description и/или files (может быть null).
+     * @return Страница задач и токен следующей страницы (null, если страница последняя).
+     * @throws InvalidTaskQueryException Если в expand указано неизвестное поле.
+     */
+    public TaskPage<TaskListItem> findTasksPage(String cursor, Integer size, Set<String> expand) {
+        long afterId = CursorCodec.decode(cursor);
+        int pageSize = resolvePageSize(size);
+        boolean expandDescription = isExpanded(expand, EXPAND_DESCRIPTION);
+        boolean expandFiles = isExpanded(expand, EXPAND_FILES);
+
+        // Запрашиваем на одну запись больше, чтобы без отдельного count-запроса узнать, есть ли следующая страница
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+        List<TaskListItem> items;
+        if (expandDescription || expandFiles) {
+            items = repository.findByIdGreaterThanOrderByIdAsc(afterId, limit).stream()
+                    .map(task -> toListItem(task, expandDescription, expandFiles))
+                    .toList();
+        } else {
+            items = repository.findListItemsAfter(afterId, limit);
+        }
+
+        if (items.size() <= pageSize) {
+            return new TaskPage<>(items, null);
+        }
+
+        List<TaskListItem> page = items.subList(0, pageSize);
+        return new TaskPage<>(page, CursorCodec.encode(page.getLast().getId()));
+    }
+
+    private boolean isExpanded(Set<String> expand, String field) {
+        if (expand == null) {
+            return false;
+        }
+        for (String value : expand) {
+            if (!value.equals(EXPAND_DESCRIPTION) && !value.equals(EXPAND_FILES)) {
+                throw new InvalidTaskQueryException("Unknown expand field: " + value);
+            }
+        }
+        return expand.contains(field);
+    }
+
+    private TaskListItem toListItem(Task task, boolean withDescription, boolean withFiles) {
+        List<File> files = task.getFiles() == null ? List.of() : task.getFiles();
+        long attachments = files.stream()
+                .filter(file -> file.getOriginalFieldID() == null || file.getOriginalFieldID().equals(file.getId()))
+                .count();
+
+        TaskListItem item = new TaskListItem(task.getId(), task.getTitle(), task.getCreationDate(),
+                task.getTag().getName(), task.getCategory().getName(), attachments);
+        if (withDescription) {
+            item.setDescription(task.getDescription() == null ? "" : task.getDescription());
+        }
+        if (withFiles) {
+            item.setFiles(files);
+        }
+        return item;
+    }
+
+    /**
+     * Выбирает задачи по произвольной комбинации фильтров (тэг, категория, префикс названия, диапазон дат создания,
+     * наличие вложений) и сортирует их по заданному полю. Все условия собираются в один SQL-запрос,
+     * размер результата ограничен максимальным размером страницы.
+     *
+     * @param filter Параметры фильтрации; незаданные поля не участвуют в запросе.
+     * @param sortBy Поле сортировки: id, title, creationDate, tag или category (по умолчанию id).
+     * @param direction Направление сортировки: asc или desc (по умолчанию asc).
+     * @param size Максимальное количество задач в ответе.
+     * @return Список задач, удовлетворяющих фильтру, в заданном порядке.
+     * @throws InvalidTaskQueryException Если указано неизвестное поле или направление сортировки.
+     */
+    public List<Task> findTasks(TaskFilter filter, String sortBy, String direction, Integer size) {
+        Sort sort = resolveSort(sortBy, direction);
+        return repository.findTasks(TaskSpecifications.fromFilter(filter), sort, resolvePageSize(size));
+    }
+
+    /**
+     * Та же выборка, что и {@link #findTasks(TaskFilter, String, String, Integer)}, но в облегченном представлении
+     * для списков: из базы читаются только нужные столбцы, количество вложений считается подзапросом.
+     */
+    public List<TaskListItem> findTaskListItems(TaskFilter filter, String sortBy, String direction, Integer size) {
+        Sort sort = resolveSort(sortBy, direction);
+        return repository.findTaskListItems(TaskSpecifications.fromFilter(filter), sort, resolvePageSize(size));
+    }
+
+    private Sort resolveSort(String sortBy, String direction) {
+        String field = sortBy == null || sortBy.isBlank() ? "id" : sortBy;
+        String property = SORT_FIELDS.get(field);
+        if (property == null) {
+            throw new InvalidTaskQueryException("Unknown sort field: " + field);
+        }
+
+        Sort.Direction sortDirection;
+        if (direction == null || direction.isBlank()) {
+            sortDirection = Sort.Direction.ASC;
+        } else {
+            sortDirection = Sort.Direction.fromOptionalString(direction)
+                    .orElseThrow(() -> new InvalidTaskQueryException("Unknown sort direction: " + direction));
+        }
+
+        // Идентификатор добавляется последним ключом, чтобы порядок задач с одинаковыми значениями был стабильным
+        Sort sort = Sort.by(sortDirection, property);
+        return property.equals("id") ? sort : sort.and(Sort.by(sortDirection, "id"));
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return Math.min(pageProperties.getDefaultSize(), pageProperties.getMaxSize());
+        }
+        return Math.min(size, pageProperties.getMaxSize());
+    }
+
+    /**
+     * Возвращает количество задач и время последнего изменения любой из них. Значение меняется при создании,
+     * изменении, удалении задачи и изменении ее файлов, поэтому используется как валидатор страниц со списком задач.
+     */
+    public TaskListVersion findTaskListVersion() {
+        return repository.findListVersion();
+    }
+
+    /**
+     * Возвращает задачу по идентификатору из кэша, при промахе загружает ее из базы вместе с файлами,
+     * категорией и тэгом. Запись кэша инвалидируется при сохранении и удалении задачи и при добавлении к ней файлов.
+     * Экземпляр общий для всех запросов и не должен изменяться; для изменения задачи используется
+     * {@link #findTaskForUpdate(Long)}.
+     *
+     * @param id Идентификатор задачи.
+     * @return Задача или null, если задача не найдена.
+     */
     public Task findTaskById(Long id){
-        return repository.findById(id).orElse(null);
+        return taskCache.get(id, () -> repository.findWithAssociationsById(id).orElse(null));
+    }
+
+    /**
+     * Загружает задачу из базы в обход кэша для изменения. Закэшированный экземпляр общий для всех запросов
+     * и не изменяется, поэтому читатели не видят частично внесенных правок, а неудачное сохранение
+     * не оставляет их в кэше.
+     *
+     * @param id Идентификатор задачи.
+     * @return Новый экземпляр задачи или null, если задача не найдена.
+     */
+    public Task findTaskForUpdate(Long id) {
+        return repository.findWithAssociationsById(id).orElse(null);
+    }
+
+    public CacheStats taskCacheStats() {
+        return taskCache.stats();
     }
 
     public List<Task> findTasksByTitle(String title) {
         return repository.findByTitle(title);
     }
 
+    /**
+     * Выполняет полнотекстовый поиск по названию и описанию задач через индекс в памяти и загружает найденные
+     * задачи одним запросом по первичному ключу, сохраняя порядок релевантности.
+     *
+     * @param query Поисковый запрос, может содержать несколько слов.
+     * @param limit Максимальное количество результатов.
+     * @return Найденные задачи в порядке убывания релевантности.
+     */
+    public List<Task> searchTasks(String query, Integer limit) {
+        List<Long> ids = searchIndex.search(query, resolvePageSize(limit));
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Task> tasksById = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+        return ids.stream()
+                .map(tasksById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
 
+    @Transactional
     public Task saveTask(Task task) {
-        return repository.save(task);
+        // Тэг и категория до изменения, для пересчета счетчиков
+        Long previousTagId = task.getLoadedTagId();
+        Long previousCategoryId = task.getLoadedCategoryId();
+        TaskEventType eventType = task.getId() == null ? TaskEventType.CREATED : TaskEventType.UPDATED;
+        try {
+            Task savedTask = repository.save(task);
+            if (eventType == TaskEventType.UPDATED) {
+                repository.bumpVersion(List.of(savedTask.getId()), new Date());
+            }
+            afterCommit(() -> onTaskSaved(savedTask, eventType, previousTagId, previousCategoryId));
+            return savedTask;
+        } finally {
+            // Инвалидация и при ошибке сохранения: задача могла быть изменена в базе до ошибки
+            taskCache.invalidate(task.getId());
+        }
     }
 
+    /**
+     * Сохраняет задачу и связывает с ней файлы запроса, содержимое которых уже сохранено в хранилище
+     * {@link FileSystemStorage#storeUpload}, в одной транзакции. Если какой-либо файл связать не удалось, уже
+     * связанные файлы удаляются, а транзакция откатывается: новая задача не создается, измененная остается прежней,
+     * и подписчики не получают событий о задаче.
+     *
+     * @param task Новая или измененная задача.
+     * @param uploads Сохраненное содержимое файлов запроса.
+     * @return Сохраненная задача и записи о ее новых файлах.
+     */
+    @Transactional
+    public TaskWithFiles saveTaskWithFiles(Task task, List<FileSystemStorage.StoredUpload> uploads) {
+        Task savedTask = saveTask(task);
+        List<File> files = new ArrayList<>(uploads.size());
+        try {
+            for (FileSystemStorage.StoredUpload upload : uploads) {
+                files.add(fileSystemStorage.attachUpload(upload, savedTask));
+            }
+        } catch (RuntimeException exception) {
+            fileSystemStorage.discardFiles(files);
+            throw exception;
+        }
+        return new TaskWithFiles(savedTask, files);
+    }
+
+    public record TaskWithFiles(Task task, List<File> files) {
+    }
+
+    @Transactional
     public void deleteTask(Long id) {
-        repository.deleteById(id);
+        try {
+            repository.findById(id).ifPresent(task -> {
+                Long tagId = tagIdOf(task);
+                Long categoryId = categoryIdOf(task);
+                List<Long> fileIds = discardTaskFiles(List.of(id));
+                repository.delete(task);
+                afterCommit(() -> {
+                    fileSystemStorage.evictFiles(fileIds);
+                    onTaskDeleted(id, tagId, categoryId);
+                });
+            });
+        } finally {
+            taskCache.invalidate(id);
+        }
+    }
+
+    /**
+     * Создает несколько задач в одной транзакции. Вставки объединяются Hibernate в JDBC-пакеты, а контекст
+     * персистентности периодически сбрасывается и очищается, чтобы не накапливать в нем все созданные задачи.
+     * Элементы с некорректными данными не сохраняются и получают статус INVALID, остальные сохраняются.
+     *
+     * @param items Данные создаваемых задач.
+     * @return Результат по каждому элементу в порядке запроса.
+     * @throws InvalidBatchException Если пакет пуст или превышает допустимый размер.
+     */
+    @Transactional
+    public List<BatchItemResult> createTasks(List<TaskBatchItem> items) {
+        checkBatch(items);
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<Task> created = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            TaskBatchItem item = items.get(i);
+            String error = validateBatchItem(item);
+            if (error != null) {
+                results.add(new BatchItemResult(i, null, BatchItemStatus.INVALID, error));
+                continue;
+            }
+
+            Task task = new Task();
+            applyBatchItem(task, item);
+            entityManager.persist(task);
+            created.add(task);
+            results.add(new BatchItemResult(i, task.getId(), BatchItemStatus.CREATED, null));
+
+            if (created.size() % batchProperties.getFlushSize() == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+
+        afterCommit(() -> created.forEach(task -> onTaskSaved(task, TaskEventType.CREATED, null, null)));
+        return results;
+    }
+
+    /**
+     * Обновляет несколько задач в одной транзакции. Задачи загружаются порциями одним запросом на порцию,
+     * изменения записываются пакетными UPDATE. Задачи, которых нет в базе, получают статус NOT_FOUND.
+     *
+     * @param items Новые данные задач, в каждом элементе должен быть указан идентификатор.
+     * @return Результат по каждому элементу в порядке запроса.
+     * @throws InvalidBatchException Если пакет пуст или превышает допустимый размер.
+     */
+    @Transactional
+    public List<BatchItemResult> updateTasks(List<TaskBatchItem> items) {
+        checkBatch(items);
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<Runnable> updated = new ArrayList<>();
+
+        int chunkSize = batchProperties.getFlushSize();
+        Date now = new Date();
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            List<TaskBatchItem> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+            Map<Long, Task> found = loadTasks(chunk.stream().map(TaskBatchItem::getId).toList());
+            List<Long> updatedIds = new ArrayList<>();
+
+            for (int i = 0; i < chunk.size(); i++) {
+                TaskBatchItem item = chunk.get(i);
+                int index = start + i;
+                String error = item.getId() == null ? "Task id is required" : validateBatchItem(item);
+                if (error != null) {
+                    results.add(new BatchItemResult(index, item.getId(), BatchItemStatus.INVALID, error));
+                    continue;
+                }
+
+                Task task = found.get(item.getId());
+                if (task == null) {
+                    results.add(new BatchItemResult(index, item.getId(), BatchItemStatus.NOT_FOUND, null));
+                    continue;
+                }
+                Long previousTagId = task.getLoadedTagId();
+                Long previousCategoryId = task.getLoadedCategoryId();
+                applyBatchItem(task, item);
+                updatedIds.add(task.getId());
+                updated.add(() -> onTaskSaved(task, TaskEventType.UPDATED, previousTagId, previousCategoryId));
+                results.add(new BatchItemResult(index, task.getId(), BatchItemStatus.UPDATED, null));
+            }
+
+            entityManager.flush();
+            if (!updatedIds.isEmpty()) {
+                repository.bumpVersion(updatedIds, now);
+            }
+            entityManager.clear();
+        }
+
+        afterCommit(() -> updated.forEach(Runnable::run));
+        return results;
+    }
+
+    /**
+     * Удаляет несколько задач вместе с их файлами в одной транзакции. Задачи, которых нет в базе,
+     * получают статус NOT_FOUND, повторы идентификатора в пакете - статус INVALID. Незавершенная отрисовка PDF
+     * удаляемых задач отменяется.
+     *
+     * @param ids Идентификаторы удаляемых задач.
+     * @return Результат по каждому идентификатору в порядке запроса.
+     * @throws InvalidBatchException Если пакет пуст или превышает допустимый размер.
+     */
+    @Transactional
+    public List<BatchItemResult> deleteTasks(List<Long> ids) {
+        checkBatch(ids);
+        List<BatchItemResult> results = new ArrayList<>(ids.size());
+        List<Runnable> deleted = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+
+        int chunkSize = batchProperties.getFlushSize();
+        for (int start = 0; start < ids.size(); start += chunkSize) {
+            List<Long> chunk = ids.subList(start, Math.min(start + chunkSize, ids.size()));
+            Map<Long, Task> found = loadTasks(chunk);
+            List<Long> fileIds = discardTaskFiles(found.keySet());
+            if (!fileIds.isEmpty()) {
+                deleted.add(() -> fileSystemStorage.evictFiles(fileIds));
+            }
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Long id = chunk.get(i);
+                if (id != null && !seen.add(id)) {
+                    results.add(new BatchItemResult(start + i, id, BatchItemStatus.INVALID, "Duplicate task id"));
+                    continue;
+                }
+                Task task = found.get(id);
+                if (task == null) {
+                    results.add(new BatchItemResult(start + i, id, BatchItemStatus.NOT_FOUND, null));
+                    continue;
+                }
+                Long tagId = tagIdOf(task);
+                Long categoryId = categoryIdOf(task);
+                entityManager.remove(task);
+                deleted.add(() -> onTaskDeleted(id, tagId, categoryId));
+                results.add(new BatchItemResult(start + i, id, BatchItemStatus.DELETED, null));
+            }
+
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        afterCommit(() -> deleted.forEach(Runnable::run));
+        return results;
+    }
+
+    /**
+     * Удаляет тэг вместе с его задачами. Задачи удаляются каскадно, поэтому перед удалением запоминается, какие
+     * задачи затронуты, и после фиксации для каждой из них обновляются счетчики, поисковый индекс, кэш
+     * и отправляется событие об удалении, как при удалении задачи через {@link #deleteTask(Long)}.
+     *
+     * @param tagId Идентификатор тэга.
+     */
+    @Transactional
+    public void deleteTag(Long tagId) {
+        List<TaskRef> tasks = repository.findRefsByTagId(tagId);
+        List<Long> fileIds = discardTaskFiles(tasks.stream().map(TaskRef::getId).toList());
+        tagService.deleteTask(tagId);
+        afterCommit(() -> onTasksCascadeDeleted(tasks, fileIds));
+    }
+
+    /**
+     * Удаляет категорию вместе с ее задачами, так же как {@link #deleteTag(Long)}.
+     *
+     * @param categoryId Идентификатор категории.
+     */
+    @Transactional
+    public void deleteCategory(Long categoryId) {
+        List<TaskRef> tasks = repository.findRefsByCategoryId(categoryId);
+        List<Long> fileIds = discardTaskFiles(tasks.stream().map(TaskRef::getId).toList());
+        catService.deleteTask(categoryId);
+        afterCommit(() -> onTasksCascadeDeleted(tasks, fileIds));
+    }
+
+    private void onTasksCascadeDeleted(List<TaskRef> tasks, List<Long> fileIds) {
+        fileSystemStorage.evictFiles(fileIds);
+        tasks.forEach(task -> onTaskDeleted(task.getId(), task.getTagId(), task.getCategoryId()));
+    }
+
+    /**
+     * Отменяет незавершенную отрисовку PDF удаляемых задач, как и {@link FileSystemStorage#discardFiles}.
+     *
+     * @return Идентификаторы файлов задач, которые после фиксации нужно убрать из кэша файлов.
+     */
+    private List<Long> discardTaskFiles(Collection<Long> taskIds) {
+        if (taskIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> fileIds = repository.findFileIdsByTaskIds(taskIds);
+        conversionQueue.cancelForFiles(fileIds);
+        return fileIds;
+    }
+
+    private void checkBatch(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new InvalidBatchException("Batch is empty");
+        }
+        if (items.size() > batchProperties.getMaxItems()) {
+            throw new InvalidBatchException("Batch exceeds " + batchProperties.getMaxItems() + " items");
+        }
+    }
+
+    private Map<Long, Task> loadTasks(List<Long> ids) {
+        List<Long> existingIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (existingIds.isEmpty()) {
+            return Map.of();
+        }
+        return repository.findAllById(existingIds).stream()
+                .collect(Collectors.toMap(Task::getId, Function.identity()));
+    }
+
+    private String validateBatchItem(TaskBatchItem item) {
+        if (item.getTitle() == null || item.getTitle().isBlank()) {
+            return "Title is required";
+        }
+        if (item.getTitle().length() > 100) {
+            return "Title is longer than 100 characters";
+        }
+        if (item.getDescription() != null && item.getDescription().length() > 500) {
+            return "Description is longer than 500 characters";
+        }
+        if (item.getCategoryId() == null || catService.findTaskById(item.getCategoryId()) == null) {
+            return "Unknown category";
+        }
+        if (item.getTagId() == null || tagService.findTaskById(item.getTagId()) == null) {
+            return "Unknown tag";
+        }
+        return null;
+    }
+
+    private void applyBatchItem(Task task, TaskBatchItem item) {
+        task.setTitle(item.getTitle());
+        task.setDescription(item.getDescription());
+        // Существование категории и тэга уже проверено через кэш, поэтому достаточно ссылок без загрузки сущностей
+        task.setCategory(entityManager.getReference(Category.class, item.getCategoryId()));
+        task.setTag(entityManager.getReference(Tag.class, item.getTagId()));
+    }
+
+    private void onTaskSaved(Task task, TaskEventType eventType, Long previousTagId, Long previousCategoryId) {
+        searchIndex.index(task);
+        taskCache.invalidate(task.getId());
+        counterService.taskSaved(previousTagId, previousCategoryId, tagIdOf(task), categoryIdOf(task));
+        eventBroadcaster.publish(eventType, task.getId());
+    }
+
+    private void onTaskDeleted(Long id, Long tagId, Long categoryId) {
+        searchIndex.remove(id);
+        taskCache.invalidate(id);
+        counterService.taskDeleted(tagId, categoryId);
+        eventBroadcaster.publish(TaskEventType.DELETED, id);
+    }
+
+    private static Long tagIdOf(Task task) {
+        return task.getTag() == null ? null : task.getTag().getId();
+    }
+
+    private static Long categoryIdOf(Task task) {
+        return task.getCategory() == null ? null : task.getCategory().getId();
     }
 
     public List<Task> findAllTasksSortedByTitle() {
@@ -93,7 +681,7 @@ public class ServiceTask {
 
             files.forEach(file -> {
                 ObjectNode fileNode = pdf.addObject();
-                fileNode.put("namePage", Paths.get(file.getFilePath()).getFileName().toString());
+                fileNode.put("namePage", file.displayName());
             });
 
             rootNode.set("pdfPages", pdf);
@@ -109,6 +697,68 @@ public class ServiceTask {
         }
     }
 
+    /**
+     * Записывает все задачи в поток в формате NDJSON: по одному JSON-объекту на строку. Задачи читаются из базы
+     * однонаправленным курсором и отсоединяются от контекста сразу после записи, поэтому расход памяти
+     * не зависит от количества задач, а первые байты уходят клиенту до окончания чтения таблицы.
+     *
+     * @param out Поток ответа.
+     * @throws IOException Если запись в поток не удалась (например, клиент разорвал соединение).
+     */
+    @Transactional(readOnly = true)
+    public void writeTasksAsNdjson(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<Task> tasks = repository.streamAllBy()) {
+            generator.setRootValueSeparator(null);
+            int written = 0;
+            for (Task task : (Iterable<Task>) tasks::iterator) {
+                writeTaskJson(generator, task);
+                generator.writeRaw('\n');
+                entityManager.detach(task);
+                if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает все задачи в поток одним JSON-массивом, элементы которого формируются по мере чтения из базы.
+     * Расход памяти и время до первого байта такие же, как у {@link #writeTasksAsNdjson(OutputStream)}.
+     *
+     * @param out Поток ответа.
+     * @throws IOException Если запись в поток не удалась.
+     */
+    @Transactional(readOnly = true)
+    public void writeTasksAsJsonArray(OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+             Stream<Task> tasks = repository.streamAllBy()) {
+            generator.writeStartArray();
+            int written = 0;
+            for (Task task : (Iterable<Task>) tasks::iterator) {
+                writeTaskJson(generator, task);
+                entityManager.detach(task);
+                if (++written % STREAM_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeTaskJson(JsonGenerator generator, Task task) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("id", task.getId());
+        generator.writeStringField("title", task.getTitle());
+        generator.writeStringField("description", task.getDescription());
+        generator.writeObjectField("creationDate", task.getCreationDate());
+        generator.writeNumberField("categoryId", task.getCategory().getId());
+        generator.writeStringField("categoryName", task.getCategory().getName());
+        generator.writeNumberField("tagId", task.getTag().getId());
+        generator.writeStringField("tagName", task.getTag().getName());
+        generator.writeEndObject();
+    }
+
     public List<Task> findTasksByTagId(Long tagId) {
         return repository.findByTagId(tagId);
     }
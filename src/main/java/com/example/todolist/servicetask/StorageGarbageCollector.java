@@ -0,0 +1,331 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.StorageGcProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.StorageGcStatus;
+import com.example.todolist.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Удаляет с диска содержимое, на которое не ссылается ни одна запись {@link com.example.todolist.model.File}:
+ * файлы удаленных задач и изображения их страниц, содержимое, оставшееся после отката загрузки, файлы плоской
+ * директории загрузок, сохраненные до появления хранилища по хэшу, и забытые временные файлы (извлеченные
+ * из ZIP-архивов, отрисованные страницы, части загрузок). Хранилище обходится потоком, файлы проверяются
+ * пачками одним запросом к базе, между пачками делается пауза, поэтому очистка не создает заметной нагрузки
+ * на диск и базу работающего приложения. Файлы без ссылок сначала переносятся в корзину, затем ссылки на них
+ * проверяются еще раз, и только после этого файлы удаляются; файлы, на которые за это время появились ссылки,
+ * возвращаются на место. В режиме dry-run (по умолчанию) файлы только подсчитываются.
+ */
+@Service
+public class StorageGarbageCollector {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageGarbageCollector.class);
+
+    // Директория частей загрузок по сессиям; ее очищает UploadSessionService по сроку жизни сессии
+    private static final String SESSION_DIRECTORY = "sessions";
+
+    // Корзина во временной директории хранилища, на том же разделе: файлы переносятся в нее переименованием
+    private static final String TRASH_DIRECTORY = "trash";
+
+    private final FileRepository fileRepository;
+
+    private final BlobStore blobStore;
+
+    private final StorageGcProperties gcProperties;
+
+    private final Path uploadDirectory;
+
+    private final Path blobTrash;
+
+    private final Path uploadTrash;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong orphaned = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private final AtomicLong tempDeleted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private final AtomicLong totalReclaimedBytes = new AtomicLong();
+    private final AtomicLong runs = new AtomicLong();
+    private volatile boolean dryRun;
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+
+    public StorageGarbageCollector(FileRepository fileRepository, BlobStore blobStore,
+                                   StorageProperties storageProperties, StorageGcProperties gcProperties) {
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.gcProperties = gcProperties;
+        this.uploadDirectory = Paths.get(storageProperties.getLocation()).toAbsolutePath().normalize();
+        Path trash = blobStore.tempDirectory().resolve(TRASH_DIRECTORY);
+        this.blobTrash = trash.resolve("blobs");
+        this.uploadTrash = trash.resolve("uploads");
+    }
+
+    /**
+     * Периодический запуск очистки. Сама очистка выполняется в отдельном потоке, чтобы не занимать поток
+     * планировщика, в котором выполняются остальные периодические задачи.
+     */
+    @Scheduled(fixedDelayString = "${file.upload.gc.interval:PT6H}",
+            initialDelayString = "${file.upload.gc.initial-delay:PT10M}")
+    public void scheduledCollect() {
+        if (gcProperties.isEnabled()) {
+            start(gcProperties.isDryRun());
+        }
+    }
+
+    /**
+     * Запускает очистку в фоновом потоке.
+     *
+     * @param dryRun true, если файлы нужно только найти и подсчитать, не удаляя.
+     * @return false, если очистка уже выполняется.
+     */
+    public boolean start(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        this.dryRun = dryRun;
+        scanned.set(0);
+        orphaned.set(0);
+        deleted.set(0);
+        reclaimedBytes.set(0);
+        tempDeleted.set(0);
+        failed.set(0);
+        startedAt = new Date();
+        finishedAt = null;
+
+        Thread worker = new Thread(this::run, "storage-gc");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public StorageGcStatus status() {
+        return new StorageGcStatus(running.get(), dryRun, scanned.get(), orphaned.get(), deleted.get(),
+                reclaimedBytes.get(), tempDeleted.get(), failed.get(), startedAt, finishedAt, totalDeleted.get(),
+                totalReclaimedBytes.get(), runs.get());
+    }
+
+    private void run() {
+        try {
+            Instant now = Instant.now();
+            restoreTrash();
+            collectBlobs(now.minus(gcProperties.getGracePeriod()));
+            collectLegacyFiles(now.minus(gcProperties.getGracePeriod()));
+            collectTempFiles(now.minus(gcProperties.getTempMaxAge()));
+            log.info("Storage GC finished{}: {} scanned, {} orphaned, {} deleted ({} bytes), {} temp entries deleted, "
+                            + "{} failed", dryRun ? " (dry run)" : "", scanned.get(), orphaned.get(), deleted.get(),
+                    reclaimedBytes.get(), tempDeleted.get(), failed.get());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException exception) {
+            log.error("Storage GC stopped", exception);
+        } finally {
+            runs.incrementAndGet();
+            finishedAt = new Date();
+            running.set(false);
+        }
+    }
+
+    /**
+     * Обходит хранилище по хэшу. Имя файла в хранилище - хэш его содержимого, поэтому наличие ссылок на пачку
+     * файлов проверяется одним запросом по хэшам.
+     */
+    private void collectBlobs(Instant modifiedBefore) throws IOException, InterruptedException {
+        int batchSize = Math.max(1, gcProperties.getBatchSize());
+        try (Stream<Path> blobs = Files.walk(blobStore.blobDirectory())) {
+            Iterator<Path> iterator = blobs.filter(Files::isRegularFile).iterator();
+            List<Path> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    scanned.addAndGet(batch.size());
+                    collect(batch, blobTrash, fileRepository::findReferencedHashes, modifiedBefore);
+                    batch.clear();
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Проверяет файлы, лежащие прямо в директории загрузок. Записи о них хранят полный путь к файлу, поэтому
+     * ссылки на пачку файлов проверяются одним запросом по точным путям.
+     */
+    private void collectLegacyFiles(Instant modifiedBefore) throws IOException, InterruptedException {
+        int batchSize = Math.max(1, gcProperties.getBatchSize());
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadDirectory, Files::isRegularFile)) {
+            Iterator<Path> iterator = files.iterator();
+            List<Path> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    scanned.addAndGet(batch.size());
+                    collect(batch, uploadTrash, fileRepository::findReferencedPaths, modifiedBefore);
+                    batch.clear();
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет временные файлы и директории, оставшиеся после прерванных загрузок и импортов.
+     */
+    private void collectTempFiles(Instant modifiedBefore) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(blobStore.tempDirectory())) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.equals(SESSION_DIRECTORY) || name.equals(TRASH_DIRECTORY)
+                        || !Files.getLastModifiedTime(entry).toInstant().isBefore(modifiedBefore)) {
+                    continue;
+                }
+                orphaned.incrementAndGet();
+                if (dryRun) {
+                    continue;
+                }
+                try {
+                    if (FileSystemUtils.deleteRecursively(entry)) {
+                        tempDeleted.incrementAndGet();
+                    }
+                } catch (IOException exception) {
+                    failed.incrementAndGet();
+                    log.warn("Could not delete temp entry {}", entry, exception);
+                }
+            }
+        }
+    }
+
+    /**
+     * Удаляет файлы пачки, на которые нет ссылок. Файлы без ссылок старше срока ожидания переносятся в корзину;
+     * пока файл в корзине, загрузка того же содержимого записывает его заново, а не ссылается на удаляемый файл.
+     * Затем ссылки на перенесенные файлы проверяются повторно: запись могла появиться между первой проверкой
+     * и переносом. Файлы, на которые появились ссылки или время изменения которых обновила загрузка, возвращаются
+     * на место, остальные удаляются.
+     *
+     * @param batch Файлы пачки.
+     * @param trash Директория корзины для файлов этого вида.
+     * @param referenced Возвращает ключи (имена файлов хранилища или пути), на которые есть ссылки.
+     */
+    private void collect(List<Path> batch, Path trash, Function<Collection<String>, Set<String>> referenced,
+                         Instant modifiedBefore) {
+        Set<String> keys = referenced.apply(batch.stream().map(this::key).toList());
+        Map<Path, Path> trashed = new LinkedHashMap<>();
+        for (Path file : batch) {
+            if (keys.contains(key(file))) {
+                continue;
+            }
+            try {
+                // Недавно записанный или повторно использованный файл может принадлежать загрузке, запись о которой
+                // еще не сохранена
+                if (!Files.getLastModifiedTime(file).toInstant().isBefore(modifiedBefore)) {
+                    continue;
+                }
+                orphaned.incrementAndGet();
+                if (!dryRun) {
+                    Files.createDirectories(trash);
+                    trashed.put(file, Files.move(file, trash.resolve(file.getFileName())));
+                }
+            } catch (NoSuchFileException exception) {
+                // Файл уже удален
+            } catch (IOException exception) {
+                failed.incrementAndGet();
+                log.warn("Could not collect file {}", file, exception);
+            }
+        }
+        if (trashed.isEmpty()) {
+            return;
+        }
+
+        Set<String> stillReferenced = referenced.apply(trashed.keySet().stream().map(this::key).toList());
+        trashed.forEach((file, trashedFile) -> {
+            try {
+                if (stillReferenced.contains(key(file))
+                        || !Files.getLastModifiedTime(trashedFile).toInstant().isBefore(modifiedBefore)) {
+                    restore(trashedFile, file);
+                    return;
+                }
+                long size = Files.size(trashedFile);
+                Files.delete(trashedFile);
+                deleted.incrementAndGet();
+                totalDeleted.incrementAndGet();
+                reclaimedBytes.addAndGet(size);
+                totalReclaimedBytes.addAndGet(size);
+            } catch (IOException exception) {
+                failed.incrementAndGet();
+                log.warn("Could not collect file {}", file, exception);
+            }
+        });
+    }
+
+    /**
+     * Возвращает на место файлы, оставшиеся в корзине после прерванной очистки. Ссылки на них проверяются заново
+     * при обходе хранилища.
+     */
+    private void restoreTrash() throws IOException {
+        restoreTrash(blobTrash, trashed -> blobStore.resolve(trashed.getFileName().toString()));
+        restoreTrash(uploadTrash, trashed -> uploadDirectory.resolve(trashed.getFileName()));
+    }
+
+    private void restoreTrash(Path trash, Function<Path, Path> origin) throws IOException {
+        if (!Files.isDirectory(trash)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(trash)) {
+            for (Path trashed : entries) {
+                Path file = origin.apply(trashed);
+                Files.createDirectories(file.getParent());
+                restore(trashed, file);
+            }
+        }
+    }
+
+    // Файл на прежнем месте уже записан заново загрузкой; для хранилища по хэшу это то же содержимое
+    private static void restore(Path trashed, Path file) throws IOException {
+        try {
+            Files.move(trashed, file);
+        } catch (FileAlreadyExistsException exception) {
+            Files.delete(trashed);
+        }
+    }
+
+    // Ключ, по которому проверяются ссылки: имя файла хранилища по хэшу или полный путь файла директории загрузок
+    private String key(Path file) {
+        return file.startsWith(blobStore.blobDirectory()) ? file.getFileName().toString() : file.toString();
+    }
+
+    // Пауза между пачками ограничивает нагрузку очистки на диск и базу работающего приложения
+    private void pause() throws InterruptedException {
+        long millis = gcProperties.getBatchPause().toMillis();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
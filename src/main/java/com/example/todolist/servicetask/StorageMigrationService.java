@@ -0,0 +1,179 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.model.StorageMigrationStatus;
+import com.example.todolist.repository.FileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Переносит файлы, сохраненные в плоской директории загрузок (и в плоской раскладке хранилища), в раскладку
+ * хранилища по хэшу и переводит на новые пути записи {@link File}. Работает на запущенном приложении: записи
+ * читаются страницами по идентификатору, для каждого файла сначала создается копия в хранилище (жесткая ссылка),
+ * затем одним запросом обновляются все ссылающиеся на него записи, и только после этого удаляется старый файл.
+ * Поэтому в любой момент каждая запись указывает на существующий файл, а прерванный перенос можно запустить снова.
+ * Записи, путь которых изменился после чтения страницы, пропускаются.
+ */
+@Service
+public class StorageMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorageMigrationService.class);
+
+    private final FileRepository fileRepository;
+
+    private final BlobStore blobStore;
+
+    private final FileSystemStorage fileSystemStorage;
+
+    private final StorageProperties storageProperties;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong scanned = new AtomicLong();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile Long lastFileId;
+    private volatile Date startedAt;
+    private volatile Date finishedAt;
+
+    public StorageMigrationService(FileRepository fileRepository, BlobStore blobStore,
+                                   FileSystemStorage fileSystemStorage, StorageProperties storageProperties) {
+        this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.fileSystemStorage = fileSystemStorage;
+        this.storageProperties = storageProperties;
+    }
+
+    /**
+     * Запускает перенос в фоновом потоке.
+     *
+     * @return false, если перенос уже выполняется.
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        scanned.set(0);
+        migrated.set(0);
+        missing.set(0);
+        failed.set(0);
+        lastFileId = null;
+        startedAt = new Date();
+        finishedAt = null;
+
+        Thread worker = new Thread(this::run, "storage-migration");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public StorageMigrationStatus status() {
+        return new StorageMigrationStatus(running.get(), scanned.get(), migrated.get(), missing.get(), failed.get(),
+                lastFileId, startedAt, finishedAt);
+    }
+
+    private void run() {
+        try {
+            long afterId = 0L;
+            int batchSize = Math.max(1, storageProperties.getMigrationBatchSize());
+            List<File> batch;
+            do {
+                batch = fileRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, batchSize));
+                for (File file : batch) {
+                    migrate(file);
+                    scanned.incrementAndGet();
+                }
+                if (!batch.isEmpty()) {
+                    afterId = batch.getLast().getId();
+                    lastFileId = afterId;
+                }
+                pause();
+            } while (batch.size() == batchSize);
+            log.info("Storage migration finished: {} scanned, {} migrated, {} missing, {} failed",
+                    scanned.get(), migrated.get(), missing.get(), failed.get());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException exception) {
+            log.error("Storage migration stopped after file {}", lastFileId, exception);
+        } finally {
+            finishedAt = new Date();
+            running.set(false);
+        }
+    }
+
+    private void migrate(File file) {
+        if (blobStore.isInLayout(file.getFilePath(), file.getContentHash())) {
+            return;
+        }
+
+        // Страница прочитана до начала обработки: путь записи мог измениться, пока обрабатывались предыдущие
+        // записи (перенос вместе с другой записью, ссылавшейся на тот же файл, или новая загрузка); такая запись
+        // пропускается, чтобы не переносить файл по устаревшему пути
+        File current = fileRepository.findById(file.getId()).orElse(null);
+        if (current == null || !current.getFilePath().equals(file.getFilePath())) {
+            return;
+        }
+
+        Path source = Paths.get(file.getFilePath()).toAbsolutePath().normalize();
+        try {
+            if (!Files.exists(source)) {
+                // Содержимое уже в хранилище (перенос был прерван после копирования), обновляется только путь
+                if (file.getContentHash() != null && blobStore.exists(file.getContentHash())) {
+                    relocate(file.getFilePath(), blobStore.resolve(file.getContentHash()), file.getContentHash(),
+                            file.getSize());
+                } else {
+                    missing.incrementAndGet();
+                }
+                return;
+            }
+
+            BlobStore.StoredBlob content = blobStore.hash(source);
+            Path target = blobStore.adopt(source, content.hash());
+            relocate(file.getFilePath(), target, content.hash(), content.size());
+
+            // Старый файл удаляется только после того, как на него не осталось ссылок
+            if (!source.equals(target)) {
+                Files.deleteIfExists(source);
+            }
+        } catch (IOException | RuntimeException exception) {
+            failed.incrementAndGet();
+            log.warn("Could not migrate file {} ({})", file.getId(), file.getFilePath(), exception);
+        }
+    }
+
+    private void relocate(String oldPath, Path target, String hash, Long size) {
+        // Пока файл переносится, на старый путь могут сослаться новые записи: изображения страниц, скопированные
+        // для PDF с тем же содержимым. Путь обновляется, пока такие записи находятся, и только потом старый
+        // файл удаляется
+        List<File> files;
+        while (!(files = fileRepository.findByFilePath(oldPath)).isEmpty()) {
+            Set<Long> fileIds = new HashSet<>();
+            files.forEach(file -> fileIds.add(file.getId()));
+            fileRepository.relocate(oldPath, target.toString(), hash, size);
+            fileSystemStorage.evictFiles(fileIds);
+            migrated.addAndGet(fileIds.size());
+        }
+    }
+
+    // Пауза между страницами ограничивает нагрузку переноса на диск и базу работающего приложения
+    private void pause() throws InterruptedException {
+        long millis = storageProperties.getMigrationBatchPause().toMillis();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.cache.LruCache;
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.model.CacheStats;
+import com.example.todolist.model.Task;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Кэш задач по идентификатору с ограниченным размером и временем жизни записей. Используется сервисом задач
+ * для чтения и сервисом файлов для инвалидации, когда к задаче добавляются файлы. Время жизни ограничивает
+ * устаревание записей, изменяемых в обход сервисов (например, каскадным удалением категории).
+ */
+@Component
+public class TaskCache {
+
+    private final LruCache<Long, Task> tasksById;
+
+    public TaskCache(CacheProperties cacheProperties) {
+        this.tasksById = new LruCache<>(cacheProperties.getTaskMaxSize(), cacheProperties.getTaskTtl());
+    }
+
+    public Task get(Long id, Supplier<Task> loader) {
+        return tasksById.get(id, loader);
+    }
+
+    public void invalidate(Long id) {
+        if (id != null) {
+            tasksById.invalidate(id);
+        }
+    }
+
+    public CacheStats stats() {
+        return tasksById.stats();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.model.TaskCounts;
+import com.example.todolist.repository.Repository;
+import com.example.todolist.repository.TaskCount;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики задач по тэгам и категориям. Обновляются инкрементально при сохранении и удалении задач,
+ * поэтому чтение стоит O(количества тэгов и категорий) без обращения к таблице задач. Изменения, прошедшие
+ * в обход сервиса задач (например, правки напрямую в базе), исправляются периодической сверкой с базой.
+ */
+@Service
+public class TaskCounterService {
+
+    private final Repository repository;
+
+    private final Map<Long, AtomicLong> tagCounts = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicLong> categoryCounts = new ConcurrentHashMap<>();
+
+    public TaskCounterService(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Учитывает создание или изменение задачи. Для новой задачи предыдущие значения равны null.
+     *
+     * @param previousTagId Тэг задачи до изменения.
+     * @param previousCategoryId Категория задачи до изменения.
+     * @param tagId Тэг задачи после изменения.
+     * @param categoryId Категория задачи после изменения.
+     */
+    public void taskSaved(Long previousTagId, Long previousCategoryId, Long tagId, Long categoryId) {
+        move(tagCounts, previousTagId, tagId);
+        move(categoryCounts, previousCategoryId, categoryId);
+    }
+
+    public void taskDeleted(Long tagId, Long categoryId) {
+        add(tagCounts, tagId, -1);
+        add(categoryCounts, categoryId, -1);
+    }
+
+    public TaskCounts counts() {
+        return new TaskCounts(snapshot(tagCounts), snapshot(categoryCounts));
+    }
+
+    /**
+     * Пересчитывает счетчики агрегирующими запросами к базе и заменяет ими текущие значения. Выполняется после
+     * старта приложения и затем периодически; изменения, сделанные во время пересчета, будут учтены следующей сверкой.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${task.counters.reconcile-interval:PT10M}",
+            initialDelayString = "${task.counters.reconcile-interval:PT10M}")
+    public void reconcile() {
+        replace(tagCounts, repository.countTasksByTag());
+        replace(categoryCounts, repository.countTasksByCategory());
+    }
+
+    private static void move(Map<Long, AtomicLong> counts, Long from, Long to) {
+        if (Objects.equals(from, to)) {
+            return;
+        }
+        add(counts, from, -1);
+        add(counts, to, 1);
+    }
+
+    private static void add(Map<Long, AtomicLong> counts, Long key, long delta) {
+        if (key != null) {
+            counts.computeIfAbsent(key, id -> new AtomicLong()).addAndGet(delta);
+        }
+    }
+
+    private static void replace(Map<Long, AtomicLong> counts, List<TaskCount> actual) {
+        Map<Long, Long> actualById = new TreeMap<>();
+        actual.forEach(count -> actualById.put(count.getId(), count.getCount()));
+
+        counts.keySet().retainAll(actualById.keySet());
+        actualById.forEach((id, count) -> counts.computeIfAbsent(id, key -> new AtomicLong()).set(count));
+    }
+
+    private static Map<Long, Long> snapshot(Map<Long, AtomicLong> counts) {
+        Map<Long, Long> result = new TreeMap<>();
+        counts.forEach((id, count) -> {
+            if (count.get() > 0) {
+                result.put(id, count.get());
+            }
+        });
+        return result;
+    }
+}
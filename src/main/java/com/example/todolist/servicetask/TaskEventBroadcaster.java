@@ -0,0 +1,315 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.TaskEventProperties;
+import com.example.todolist.model.TaskEvent;
+import com.example.todolist.model.TaskEventType;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Рассылает подписчикам события об изменении задач по протоколу Server-Sent Events. Соединения подписчиков
+ * обслуживаются асинхронно и не занимают потоков, пока событий нет. Публикация не ждет отправки: событие
+ * ставится в ограниченную очередь каждого подписчика, а очередь разбирает виртуальный поток, по одному
+ * на подписчика за раз. Отправка клиенту, который не читает соединение, блокируется, но занимает только
+ * виртуальный поток этого подписчика и не задерживает события остальных. Если очередь подписчика переполнена
+ * или отправка не завершается за task.events.send-timeout, подписчик исключается из рассылки; переподключившись,
+ * клиент получает пропущенное по заголовку Last-Event-ID из кольцевого буфера последних событий.
+ */
+@Service
+public class TaskEventBroadcaster {
+
+    // Клиент пропустил больше событий, чем хранит буфер, и должен перечитать список задач целиком
+    static final String RESET_EVENT = "reset";
+
+    private final long emitterTimeout;
+
+    private final int queueSize;
+
+    private final TaskEvent[] buffer;
+
+    // Идентификаторы событий уникальны в пределах запуска приложения; после перезапуска буфер пуст,
+    // и клиент с идентификатором предыдущего запуска получает reset
+    private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+    private long lastSequence;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    private final long sendTimeout;
+
+    private final ExecutorService senders;
+
+    public TaskEventBroadcaster(TaskEventProperties properties) {
+        this.emitterTimeout = properties.getEmitterTimeout().toMillis();
+        this.queueSize = Math.max(1, properties.getSubscriberQueueSize());
+        this.buffer = new TaskEvent[properties.getBufferSize()];
+        this.sendTimeout = properties.getSendTimeout().toMillis();
+        this.senders = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("task-events-", 1).factory());
+    }
+
+    /**
+     * Публикует событие об изменении задачи. Вызывается после фиксации транзакции, поэтому подписчики
+     * не получают событий об откаченных изменениях.
+     *
+     * @param type Тип изменения.
+     * @param taskId Идентификатор задачи.
+     */
+    public void publish(TaskEventType type, Long taskId) {
+        synchronized (buffer) {
+            long sequence = ++lastSequence;
+            TaskEvent event = new TaskEvent(instanceId + "-" + sequence, type, taskId, new Date());
+            buffer[(int) (sequence % buffer.length)] = event;
+
+            // Постановка в очереди под той же блокировкой сохраняет порядок отправки равным порядку идентификаторов
+            subscribers.forEach(subscriber -> subscriber.offer(toSseEvent(event)));
+        }
+    }
+
+    /**
+     * Регистрирует нового подписчика. Если передан идентификатор последнего полученного события, подписчику
+     * сначала отправляются пропущенные события из буфера, а если их там уже нет, событие reset.
+     *
+     * @param lastEventId Значение заголовка Last-Event-ID или null для новой подписки.
+     * @return Эмиттер, через который подписчику отправляются события.
+     */
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = newEmitter(emitterTimeout);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+
+        // Пропущенные события ставятся в очередь подписчика под блокировкой буфера до добавления подписчика
+        // в рассылку, поэтому события, опубликованные позже снимка буфера, не будут ни потеряны, ни отправлены дважды
+        synchronized (buffer) {
+            subscriber.replay(missedEvents(lastEventId));
+            subscribers.add(subscriber);
+        }
+        return emitter;
+    }
+
+    protected SseEmitter newEmitter(long timeout) {
+        return new SseEmitter(timeout);
+    }
+
+    // Вызывается под блокировкой буфера
+    private List<SseEmitter.SseEventBuilder> missedEvents(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) {
+            return List.of();
+        }
+
+        long oldest = Math.max(1, lastSequence - buffer.length + 1);
+        long received = parseSequence(lastEventId);
+        if (received < oldest - 1 || received > lastSequence) {
+            return List.of(SseEmitter.event().id(instanceId + "-" + lastSequence).name(RESET_EVENT).data(""));
+        }
+        List<SseEmitter.SseEventBuilder> missed = new ArrayList<>();
+        for (long sequence = received + 1; sequence <= lastSequence; sequence++) {
+            missed.add(toSseEvent(buffer[(int) (sequence % buffer.length)]));
+        }
+        return missed;
+    }
+
+    // Возвращает -1 для идентификатора другого запуска или некорректного значения
+    private long parseSequence(String eventId) {
+        int separator = eventId.lastIndexOf('-');
+        if (separator < 0 || !eventId.substring(0, separator).equals(instanceId)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId.substring(separator + 1));
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    /**
+     * Периодически отправляет подписчикам без неотправленных событий комментарий, чтобы прокси не закрывали
+     * простаивающие соединения, а оборванные соединения обнаруживались и удалялись из рассылки. Подписчики,
+     * отправка которым идет дольше таймаута, исключаются из рассылки.
+     */
+    @Scheduled(fixedDelayString = "${task.events.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        subscribers.forEach(subscriber -> {
+            if (subscriber.isStalled(now)) {
+                subscriber.close();
+            } else {
+                subscriber.ping();
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+    }
+
+    private static SseEmitter.SseEventBuilder toSseEvent(TaskEvent event) {
+        return SseEmitter.event()
+                .id(event.getId())
+                .name(event.getType().name().toLowerCase(Locale.ROOT))
+                .data(event, MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Подписчик с собственной очередью событий. Очередь разбирает не больше одного потока отправки за раз,
+     * поэтому события подписчика отправляются в порядке постановки.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+
+        // Пропущенные события при переподключении не учитываются в ограничении очереди
+        private int limit = queueSize;
+
+        private boolean sending;
+
+        // Время начала текущей отправки или 0, если отправки нет
+        private long sendStartedAt;
+
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void replay(List<SseEmitter.SseEventBuilder> missed) {
+            synchronized (this) {
+                queue.addAll(missed);
+                limit = queueSize + missed.size();
+            }
+            schedule();
+        }
+
+        void offer(SseEmitter.SseEventBuilder event) {
+            boolean overflow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                overflow = queue.size() >= limit;
+                if (!overflow) {
+                    queue.add(event);
+                }
+            }
+            if (overflow) {
+                // Клиент не успевает читать события: подписка закрывается, чтобы его очередь не росла
+                close();
+            } else {
+                schedule();
+            }
+        }
+
+        void ping() {
+            synchronized (this) {
+                if (closed || !queue.isEmpty()) {
+                    return;
+                }
+                queue.add(SseEmitter.event().comment("ping"));
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (sending || queue.isEmpty()) {
+                    return;
+                }
+                sending = true;
+            }
+            try {
+                senders.execute(this::drain);
+            } catch (RuntimeException rejected) {
+                // Пул остановлен вместе с приложением
+                synchronized (this) {
+                    sending = false;
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                boolean complete;
+                synchronized (this) {
+                    event = closed ? null : queue.poll();
+                    if (event == null) {
+                        sending = false;
+                        complete = closed;
+                    } else {
+                        complete = false;
+                    }
+                }
+                if (event == null) {
+                    if (complete) {
+                        emitter.complete();
+                    }
+                    return;
+                }
+                synchronized (this) {
+                    sendStartedAt = System.currentTimeMillis();
+                }
+                try {
+                    emitter.send(event);
+                    synchronized (this) {
+                        sendStartedAt = 0;
+                    }
+                } catch (IOException | IllegalStateException exception) {
+                    // Соединение закрыто клиентом; контейнер завершит запрос сам
+                    synchronized (this) {
+                        closed = true;
+                        queue.clear();
+                        sending = false;
+                    }
+                    subscribers.remove(this);
+                    return;
+                }
+            }
+        }
+
+        synchronized boolean isStalled(long now) {
+            return sendStartedAt != 0 && now - sendStartedAt > sendTimeout;
+        }
+
+        // Пока идет отправка, эмиттер завершает поток отправки, освободившись: завершение эмиттера ждало бы
+        // зависшую отправку. Зависшая отправка завершается ошибкой, когда контейнер закроет соединение по таймауту
+        private void close() {
+            boolean completeNow;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                queue.clear();
+                completeNow = !sending;
+            }
+            subscribers.remove(this);
+            if (completeNow) {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.Repository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс в памяти по названию и описанию задач. Для каждого терма хранится список задач
+ * с частотой терма, поэтому поиск обходит только задачи, содержащие слова запроса, без сканирования таблицы.
+ * Результаты ранжируются по BM25; термы из названия учитываются с повышенным весом.
+ */
+@Service
+public class TaskSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 2;
+    private static final int REBUILD_BATCH_SIZE = 1000;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Repository repository;
+
+    // терм -> (идентификатор задачи -> взвешенная частота терма)
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>();
+    // идентификатор задачи -> уникальные термы задачи, нужны для удаления задачи из индекса
+    private final Map<Long, String[]> documentTerms = new HashMap<>();
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+    private long totalLength;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public TaskSearchIndex(Repository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Заполняет индекс всеми задачами из базы после старта приложения. Задачи читаются страницами по первичному
+     * ключу, чтобы не держать всю таблицу в памяти одновременно.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long afterId = 0L;
+        int indexed = 0;
+        List<Task> batch;
+        do {
+            batch = repository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Task task : batch) {
+                index(task);
+            }
+            indexed += batch.size();
+            if (!batch.isEmpty()) {
+                afterId = batch.getLast().getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+        log.info("Full-text index built for {} tasks", indexed);
+    }
+
+    /**
+     * Добавляет задачу в индекс или обновляет ее, если она уже проиндексирована.
+     *
+     * @param task Сохраненная задача с заданным идентификатором.
+     */
+    public void index(Task task) {
+        if (task == null || task.getId() == null) {
+            return;
+        }
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : TextAnalyzer.analyze(task.getTitle())) {
+            frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String term : TextAnalyzer.analyze(task.getDescription())) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(task.getId());
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, key -> new HashMap<>()).put(task.getId(), frequency));
+            documentTerms.put(task.getId(), frequencies.keySet().toArray(new String[0]));
+            documentLengths.put(task.getId(), length);
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет задачу из индекса.
+     *
+     * @param taskId Идентификатор удаленной задачи.
+     */
+    public void remove(Long taskId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(taskId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeUnlocked(Long taskId) {
+        String[] terms = documentTerms.remove(taskId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> documents = postings.get(term);
+            if (documents != null) {
+                documents.remove(taskId);
+                if (documents.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Integer length = documentLengths.remove(taskId);
+        if (length != null) {
+            totalLength -= length;
+        }
+    }
+
+    /**
+     * Ищет задачи по словам запроса. Задача попадает в результат, если содержит хотя бы одно слово запроса;
+     * задачи, содержащие больше слов и более редкие слова, получают более высокий ранг.
+     *
+     * @param query Поисковый запрос на русском или английском языке.
+     * @param limit Максимальное количество результатов.
+     * @return Идентификаторы найденных задач в порядке убывания релевантности.
+     */
+    public List<Long> search(String query, int limit) {
+        LinkedHashSet<String> terms = new LinkedHashSet<>(TextAnalyzer.analyze(query));
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documentCount = documentLengths.size();
+            double averageLength = documentCount == 0 ? 0 : (double) totalLength / documentCount;
+
+            for (String term : terms) {
+                Map<Long, Integer> documents = postings.get(term);
+                if (documents == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - documents.size() + 0.5) / (documents.size() + 0.5));
+                documents.forEach((taskId, frequency) -> {
+                    double lengthNorm = 1 - B + B * documentLengths.get(taskId) / averageLength;
+                    double score = idf * frequency * (K1 + 1) / (frequency + K1 * lengthNorm);
+                    scores.merge(taskId, score, Double::sum);
+                });
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Отбор лучших результатов кучей ограниченного размера вместо сортировки всех найденных задач
+        Comparator<Map.Entry<Long, Double>> byScore = Map.Entry.<Long, Double>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+        PriorityQueue<Map.Entry<Long, Double>> top = new PriorityQueue<>(byScore);
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Long> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll().getKey());
+        }
+        return result.reversed();
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentLengths.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.todolist.servicetask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает русский и английский текст на нормализованные термы для полнотекстового индекса:
+ * приводит к нижнему регистру, заменяет "ё" на "е", отбрасывает стоп-слова и срезает типичные окончания,
+ * чтобы разные словоформы ("задача", "задачи", "задачу") попадали в один терм.
+ */
+public final class TextAnalyzer {
+
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "на", "с", "со", "по", "к", "ко", "о", "об", "от", "до", "из", "за", "для", "не", "что",
+            "это", "как", "а", "но", "или", "то", "же", "бы", "ли", "у",
+            "the", "a", "an", "and", "or", "of", "to", "in", "on", "for", "with", "is", "are", "be", "at", "by", "it");
+
+    // Окончания упорядочены от длинных к коротким, чтобы срезалось самое длинное подходящее
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "ать", "ять", "ить", "еть",
+            "ешь", "ете", "ишь", "ите", "ует", "уют", "ая", "яя", "ое", "ее", "ые", "ие", "ый", "ий", "ой",
+            "ую", "юю", "ей", "ом", "ем", "ах", "ях", "ам", "ям", "ов", "ев", "ию", "ия", "ть",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"};
+
+    private static final String[] ENGLISH_ENDINGS = {
+            "ations", "ation", "ings", "ing", "ness", "ment", "edly", "ies", "ied", "ed", "es", "ly", "er", "s"};
+
+    private TextAnalyzer() {
+    }
+
+    /**
+     * Возвращает список термов текста в порядке их появления (с повторами, чтобы можно было посчитать частоту).
+     *
+     * @param text Исходный текст, может быть null.
+     * @return Список нормализованных термов.
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(terms, normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String token) {
+        if (token.length() < MIN_TERM_LENGTH || STOP_WORDS.contains(token)) {
+            return;
+        }
+        terms.add(stem(token));
+    }
+
+    static String stem(String token) {
+        String[] endings = isCyrillic(token) ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (token.endsWith(ending) && token.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return token.substring(0, token.length() - ending.length());
+            }
+        }
+        return token;
+    }
+
+    private static boolean isCyrillic(String token) {
+        return Character.UnicodeBlock.of(token.charAt(0)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
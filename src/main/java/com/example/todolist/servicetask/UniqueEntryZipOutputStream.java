@@ -0,0 +1,43 @@
+package com.example.todolist.servicetask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP-архив, в котором записи с повторяющимися именами получают суффикс: «report.txt», «report (1).txt».
+ * Файлы задачи хранят имена, под которыми их загрузили, и у двух файлов имя может совпадать, а обычный
+ * ZipOutputStream отвергает повторное имя и обрывает архив на середине.
+ */
+public class UniqueEntryZipOutputStream extends ZipOutputStream {
+
+    private final Set<String> names = new HashSet<>();
+
+    public UniqueEntryZipOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void putNextEntry(ZipEntry entry) throws IOException {
+        String name = uniqueName(entry.getName());
+        super.putNextEntry(name.equals(entry.getName()) ? entry : new ZipEntry(name));
+    }
+
+    private String uniqueName(String name) {
+        if (names.add(name)) {
+            return name;
+        }
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int copy = 1; ; copy++) {
+            String candidate = base + " (" + copy + ")" + extension;
+            if (names.add(candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
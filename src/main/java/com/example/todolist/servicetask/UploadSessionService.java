@@ -0,0 +1,314 @@
+package com.example.todolist.servicetask;
+
+import com.example.todolist.config.UploadSessionProperties;
+import com.example.todolist.exception.InvalidUploadException;
+import com.example.todolist.exception.UploadSessionNotFoundException;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.UploadChunk;
+import com.example.todolist.model.UploadSession;
+import com.example.todolist.model.UploadSessionInfo;
+import com.example.todolist.repository.UploadChunkRepository;
+import com.example.todolist.repository.UploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Загрузка больших файлов по частям. Клиент создает сессию с размером файла, затем отправляет части в любом
+ * порядке и параллельно, каждую со своим смещением и SHA-256, и завершает сессию, после чего файл связывается
+ * с задачей. Части пишутся позиционной записью прямо в итоговый файл сессии, поэтому ни файл целиком, ни его
+ * части не буферизуются в памяти или в отдельных временных файлах. Принятые части хранятся в базе, поэтому
+ * после обрыва соединения (или перезапуска приложения) клиент запрашивает состояние сессии и досылает
+ * только недостающие части. Запись частей и завершение сессии исключают друг друга: сессия помечается
+ * завершаемой, только когда ни одна часть не пишется, и после этого новые части не принимаются.
+ */
+@Service
+public class UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadSessionService.class);
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository sessionRepository;
+
+    private final UploadChunkRepository chunkRepository;
+
+    private final FileSystemStorage fileSystemStorage;
+
+    private final ServiceTask serviceTask;
+
+    private final UploadSessionProperties properties;
+
+    private final BlobStore blobStore;
+
+    private final Path sessionDirectory;
+
+    public UploadSessionService(UploadSessionRepository sessionRepository, UploadChunkRepository chunkRepository,
+                                FileSystemStorage fileSystemStorage, ServiceTask serviceTask,
+                                UploadSessionProperties properties, BlobStore blobStore) throws IOException {
+        this.sessionRepository = sessionRepository;
+        this.chunkRepository = chunkRepository;
+        this.fileSystemStorage = fileSystemStorage;
+        this.serviceTask = serviceTask;
+        this.properties = properties;
+        this.blobStore = blobStore;
+        // Файлы сессий лежат на том же разделе, что и хранилище: завершенный файл переносится в него переименованием
+        this.sessionDirectory = Files.createDirectories(blobStore.tempDirectory().resolve("sessions"));
+    }
+
+    /**
+     * Создает сессию загрузки файла для задачи.
+     *
+     * @param taskId Идентификатор задачи, к которой будет прикреплен файл.
+     * @param fileName Имя файла.
+     * @param contentType Тип содержимого файла.
+     * @param size Размер файла в байтах.
+     * @param chunkSize Размер части (необязательный); все части, кроме последней, должны быть этого размера.
+     * @return Состояние созданной сессии.
+     */
+    public UploadSessionInfo createSession(Long taskId, String fileName, String contentType, Long size,
+                                           Integer chunkSize) {
+        if (serviceTask.findTaskById(taskId) == null) {
+            throw new InvalidUploadException("Task not found: " + taskId);
+        }
+        if (size == null || size <= 0 || size > properties.getMaxFileSize()) {
+            throw new InvalidUploadException("File size must be between 1 and " + properties.getMaxFileSize());
+        }
+        int resolvedChunkSize = chunkSize == null ? properties.getDefaultChunkSize() : chunkSize;
+        if (resolvedChunkSize <= 0 || resolvedChunkSize > properties.getMaxChunkSize()) {
+            throw new InvalidUploadException("Chunk size must be between 1 and " + properties.getMaxChunkSize());
+        }
+        if (!StringUtils.hasText(fileName)) {
+            throw new InvalidUploadException("File name is required");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setTaskId(taskId);
+        session.setFileName(StringUtils.cleanPath(fileName));
+        session.setContentType(StringUtils.hasText(contentType) ? contentType : "application/octet-stream");
+        session.setSize(size);
+        session.setChunkSize(resolvedChunkSize);
+
+        // Файл сессии сразу получает итоговую длину; на большинстве файловых систем он остается разреженным
+        // и занимает место только по мере записи частей
+        try (RandomAccessFile file = new RandomAccessFile(partFile(session.getId()).toFile(), "rw")) {
+            file.setLength(size);
+        } catch (IOException exception) {
+            throw new InvalidUploadException("Could not allocate upload: " + exception.getMessage());
+        }
+
+        sessionRepository.save(session);
+        return toInfo(session, List.of());
+    }
+
+    public UploadSessionInfo getSession(String sessionId) {
+        UploadSession session = findSession(sessionId);
+        return toInfo(session, chunkRepository.findBySessionIdOrderByChunkIndexAsc(sessionId));
+    }
+
+    /**
+     * Принимает часть файла. Данные читаются из тела запроса небольшим буфером и записываются в файл сессии
+     * по смещению части, одновременно вычисляется SHA-256. Часть учитывается принятой, только если записана
+     * целиком и хэш совпал с переданным клиентом. Повторная отправка части перезаписывает ее, поэтому до записи
+     * отметка о приеме части снимается: оборванная или испорченная повторная отправка оставляет часть непринятой,
+     * и сессию нельзя завершить с наполовину перезаписанными данными. Пока сессия завершается, части не принимаются.
+     *
+     * @param sessionId Идентификатор сессии.
+     * @param offset Смещение части в файле, кратное размеру части.
+     * @param checksum SHA-256 части в шестнадцатеричном виде.
+     * @param body Тело запроса с данными части.
+     */
+    public void writeChunk(String sessionId, long offset, String checksum, InputStream body) throws IOException {
+        UploadSession session = findSession(sessionId);
+        if (offset < 0 || offset >= session.getSize() || offset % session.getChunkSize() != 0) {
+            throw new InvalidUploadException("Offset must be a multiple of " + session.getChunkSize()
+                    + " within the file");
+        }
+        if (!StringUtils.hasText(checksum)) {
+            throw new InvalidUploadException("Chunk checksum is required");
+        }
+        int index = (int) (offset / session.getChunkSize());
+        int expectedSize = (int) Math.min(session.getChunkSize(), session.getSize() - offset);
+        if (sessionRepository.startWrite(sessionId, new Date()) == 0) {
+            throw new InvalidUploadException("Upload is being committed");
+        }
+        try {
+            chunkRepository.deleteBySessionIdAndChunkIndex(sessionId, index);
+            receiveChunk(sessionId, offset, index, expectedSize, checksum, body);
+        } finally {
+            sessionRepository.finishWrite(sessionId);
+        }
+    }
+
+    private void receiveChunk(String sessionId, long offset, int index, int expectedSize, String checksum,
+                              InputStream body) throws IOException {
+        MessageDigest digest = newDigest();
+        long written = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(TRANSFER_BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(partFile(sessionId), StandardOpenOption.WRITE);
+             ReadableByteChannel in = Channels.newChannel(body)) {
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                written += buffer.remaining();
+                if (written > expectedSize) {
+                    throw new InvalidUploadException("Chunk " + index + " is larger than " + expectedSize + " bytes");
+                }
+                digest.update(buffer.array(), buffer.position(), buffer.remaining());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, offset + written - buffer.remaining());
+                }
+                buffer.clear();
+            }
+            if (written != expectedSize) {
+                throw new InvalidUploadException("Chunk " + index + " must be " + expectedSize + " bytes, got " + written);
+            }
+            // Часть подтверждается клиенту только после сброса на диск
+            channel.force(false);
+        }
+
+        String actual = HexFormat.of().formatHex(digest.digest());
+        if (!actual.equals(checksum.toLowerCase(Locale.ROOT))) {
+            throw new InvalidUploadException("Checksum mismatch for chunk " + index);
+        }
+        recordChunk(sessionId, index, expectedSize, actual);
+    }
+
+    private void recordChunk(String sessionId, int index, int size, String checksum) {
+        UploadChunk chunk = chunkRepository.findBySessionIdAndChunkIndex(sessionId, index)
+                .orElseGet(() -> new UploadChunk(null, sessionId, index, size, checksum));
+        chunk.setSize(size);
+        chunk.setChecksum(checksum);
+        try {
+            chunkRepository.save(chunk);
+        } catch (DataIntegrityViolationException exception) {
+            // Та же часть одновременно принята другим запросом с теми же данными
+        }
+        sessionRepository.touch(sessionId, new Date());
+    }
+
+    /**
+     * Завершает сессию: проверяет, что приняты все части, при необходимости сверяет SHA-256 всего файла
+     * и прикрепляет файл к задаче. Пока части пишутся, сессию завершить нельзя; на время завершения новые части
+     * не принимаются, поэтому файл сессии проверяется и переносится в хранилище без одновременной записи.
+     * Если завершить не удалось, сессия снова принимает части.
+     *
+     * @param sessionId Идентификатор сессии.
+     * @param checksum SHA-256 всего файла (необязательный).
+     * @return Сохраненная запись о файле.
+     */
+    public File commit(String sessionId, String checksum) {
+        UploadSession session = findSession(sessionId);
+        if (sessionRepository.startCommit(sessionId, new Date()) == 0) {
+            throw new InvalidUploadException("Upload has chunks in progress or is already being committed");
+        }
+        try {
+            File file = commitSession(session, checksum);
+            deleteSession(session);
+            return file;
+        } catch (RuntimeException exception) {
+            sessionRepository.cancelCommit(sessionId);
+            throw exception;
+        }
+    }
+
+    private File commitSession(UploadSession session, String checksum) {
+        String sessionId = session.getId();
+        List<UploadChunk> chunks = chunkRepository.findBySessionIdOrderByChunkIndexAsc(sessionId);
+        if (chunks.size() != session.getChunkCount()) {
+            throw new InvalidUploadException("Upload is incomplete: " + chunks.size() + " of "
+                    + session.getChunkCount() + " chunks received");
+        }
+
+        Task task = serviceTask.findTaskById(session.getTaskId());
+        if (task == null) {
+            throw new InvalidUploadException("Task not found: " + session.getTaskId());
+        }
+
+        if (StringUtils.hasText(checksum)) {
+            String actual;
+            try {
+                actual = blobStore.hash(partFile(sessionId)).hash();
+            } catch (IOException exception) {
+                throw new InvalidUploadException("Could not read upload: " + exception.getMessage());
+            }
+            if (!checksum.equalsIgnoreCase(actual)) {
+                throw new InvalidUploadException("Checksum mismatch for uploaded file");
+            }
+        }
+
+        return fileSystemStorage.saveUploadedFile(partFile(sessionId), session.getFileName(),
+                session.getContentType(), task);
+    }
+
+    public void abort(String sessionId) {
+        deleteSession(findSession(sessionId));
+    }
+
+    /**
+     * Удаляет незавершенные сессии, в которые дольше заданного срока не поступало частей, вместе с их файлами.
+     * Долгая загрузка, части которой продолжают поступать, не удаляется.
+     */
+    @Scheduled(fixedDelayString = "${upload.session.cleanup-interval:PT1H}")
+    public void removeExpiredSessions() {
+        Date expiredBefore = new Date(System.currentTimeMillis() - properties.getTtl().toMillis());
+        for (UploadSession session : sessionRepository.findByLastActivityAtBefore(expiredBefore)) {
+            deleteSession(session);
+        }
+    }
+
+    private void deleteSession(UploadSession session) {
+        chunkRepository.deleteBySessionId(session.getId());
+        sessionRepository.delete(session);
+        try {
+            Files.deleteIfExists(partFile(session.getId()));
+        } catch (IOException exception) {
+            log.warn("Could not delete upload file for session {}", session.getId(), exception);
+        }
+    }
+
+    private UploadSession findSession(String sessionId) {
+        return sessionRepository.findById(sessionId)
+                .orElseThrow(() -> new UploadSessionNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    private Path partFile(String sessionId) {
+        return sessionDirectory.resolve(sessionId + ".part");
+    }
+
+    private static UploadSessionInfo toInfo(UploadSession session, List<UploadChunk> chunks) {
+        return new UploadSessionInfo(session.getId(), session.getTaskId(), session.getFileName(), session.getSize(),
+                session.getChunkSize(), session.getChunkCount(),
+                chunks.stream().map(UploadChunk::getChunkIndex).toList());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
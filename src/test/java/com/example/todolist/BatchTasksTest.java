@@ -0,0 +1,204 @@
+package com.example.todolist;
+
+import com.example.todolist.exception.InvalidBatchException;
+import com.example.todolist.model.BatchItemResult;
+import com.example.todolist.model.BatchItemStatus;
+import com.example.todolist.model.Category;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskBatchItem;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.ServiceCategory;
+import com.example.todolist.servicetask.ServiceTag;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskCounterService;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import com.example.todolist.servicetask.TaskSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Маленький размер порции, чтобы пакет из нескольких элементов сбрасывался в базу несколько раз
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "task.batch.flush-size=2",
+        "task.batch.max-items=5"
+})
+@Import(ServiceTask.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class BatchTasksTest {
+
+    @Autowired
+    private ServiceTask serviceTask;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private TaskSearchIndex searchIndex;
+    @MockBean
+    private TaskCache taskCache;
+    @MockBean
+    private ServiceCategory catService;
+    @MockBean
+    private ServiceTag tagService;
+    @MockBean
+    private TaskCounterService counterService;
+    @MockBean
+    private TaskEventBroadcaster eventBroadcaster;
+    @MockBean
+    private FileSystemStorage fileSystemStorage;
+    @MockBean
+    private PdfConversionQueue conversionQueue;
+
+    private Category category;
+    private Tag tag;
+
+    @BeforeEach
+    void SetUp() {
+        category = new Category();
+        category.setName("Работа");
+        entityManager.persist(category);
+
+        tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persist(tag);
+        entityManager.flush();
+
+        when(catService.findTaskById(anyLong())).thenAnswer(invocation ->
+                category.getId().equals(invocation.getArgument(0)) ? category : null);
+        when(tagService.findTaskById(anyLong())).thenAnswer(invocation ->
+                tag.getId().equals(invocation.getArgument(0)) ? tag : null);
+    }
+
+    @Test
+    public void whenCreateBatch_thenValidItemsSavedAndInvalidReported() {
+        List<BatchItemResult> results = serviceTask.createTasks(List.of(
+                item(null, "First"),
+                item(null, " "),
+                item(null, "Second"),
+                new TaskBatchItem(null, "Third", null, category.getId(), -1L),
+                item(null, "Fourth")));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(BatchItemStatus.CREATED, BatchItemStatus.INVALID, BatchItemStatus.CREATED,
+                BatchItemStatus.INVALID, BatchItemStatus.CREATED), statuses(results));
+        assertEquals("Title is required", results.get(1).getMessage());
+        assertEquals("Unknown tag", results.get(3).getMessage());
+        for (int index : new int[]{0, 2, 4}) {
+            Task saved = entityManager.find(Task.class, results.get(index).getId());
+            assertNotNull(saved);
+            assertEquals(category.getId(), saved.getCategory().getId());
+        }
+    }
+
+    @Test
+    public void whenUpdateBatch_thenExistingTasksChangedAndMissingReported() {
+        Long first = persistTask("First");
+        Long second = persistTask("Second");
+
+        List<BatchItemResult> results = serviceTask.updateTasks(List.of(
+                item(first, "First edited"),
+                item(-1L, "Missing"),
+                item(null, "No id"),
+                item(second, "Second edited")));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(BatchItemStatus.UPDATED, BatchItemStatus.NOT_FOUND, BatchItemStatus.INVALID,
+                BatchItemStatus.UPDATED), statuses(results));
+        assertEquals("First edited", entityManager.find(Task.class, first).getTitle());
+        assertEquals("Second edited", entityManager.find(Task.class, second).getTitle());
+        // Версия увеличивается в базе, как и при сохранении одной задачи
+        assertEquals(2L, entityManager.find(Task.class, first).getVersion());
+    }
+
+    @Test
+    public void whenDeleteBatch_thenExistingTasksRemovedAndMissingReported() {
+        Long first = persistTask("First");
+        Long second = persistTask("Second");
+        Long kept = persistTask("Kept");
+
+        List<BatchItemResult> results = serviceTask.deleteTasks(List.of(first, -1L, second));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(BatchItemStatus.DELETED, BatchItemStatus.NOT_FOUND, BatchItemStatus.DELETED),
+                statuses(results));
+        assertNull(entityManager.find(Task.class, first));
+        assertNull(entityManager.find(Task.class, second));
+        assertNotNull(entityManager.find(Task.class, kept));
+    }
+
+    @Test
+    public void whenDeleteBatchRepeatsId_thenTaskReportedDeletedOnce() {
+        Long id = persistTask("Repeated");
+
+        List<BatchItemResult> results = serviceTask.deleteTasks(List.of(id, id, id));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(List.of(BatchItemStatus.DELETED, BatchItemStatus.INVALID, BatchItemStatus.INVALID),
+                statuses(results));
+        assertEquals("Duplicate task id", results.get(1).getMessage());
+        assertNull(entityManager.find(Task.class, id));
+    }
+
+    @Test
+    public void whenDeleteBatch_thenConversionOfTaskFilesCancelled() {
+        Long withFile = persistTask("With file");
+        Long withoutFile = persistTask("Without file");
+        File pdf = new File();
+        pdf.setFilePath("ab/abcdef");
+        pdf.setFileType("application/pdf");
+        pdf.setTask(entityManager.find(Task.class, withFile));
+        entityManager.persist(pdf);
+        entityManager.flush();
+        entityManager.clear();
+
+        serviceTask.deleteTasks(List.of(withFile, withoutFile));
+
+        verify(conversionQueue).cancelForFiles(List.of(pdf.getId()));
+    }
+
+    @Test
+    public void whenBatchEmptyOrTooLarge_thenRejected() {
+        assertThrows(InvalidBatchException.class, () -> serviceTask.createTasks(List.of()));
+        assertThrows(InvalidBatchException.class, () -> serviceTask.deleteTasks(List.of(1L, 2L, 3L, 4L, 5L, 6L)));
+    }
+
+    private TaskBatchItem item(Long id, String title) {
+        return new TaskBatchItem(id, title, "Description", category.getId(), tag.getId());
+    }
+
+    private Long persistTask(String title) {
+        Task task = new Task();
+        task.setTitle(title);
+        task.setCategory(category);
+        task.setTag(tag);
+        entityManager.persist(task);
+        entityManager.flush();
+        return task.getId();
+    }
+
+    private static List<BatchItemStatus> statuses(List<BatchItemResult> results) {
+        return results.stream().map(BatchItemResult::getStatus).toList();
+    }
+}
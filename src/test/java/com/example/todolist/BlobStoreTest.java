@@ -0,0 +1,101 @@
+package com.example.todolist;
+
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.ContentTypeSniffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlobStoreTest {
+
+    @TempDir
+    Path storageRoot;
+
+    private BlobStore blobStore;
+
+    @BeforeEach
+    void SetUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setLocation(storageRoot.toString());
+        blobStore = new BlobStore(properties);
+    }
+
+    @Test
+    public void whenSameContentStoredTwice_thenStoredOnce() throws Exception {
+        byte[] content = "Отчет за квартал".getBytes(StandardCharsets.UTF_8);
+
+        BlobStore.StoredBlob first = blobStore.store(new MockMultipartFile("file", "report.txt", "text/plain", content));
+        BlobStore.StoredBlob second = blobStore.store(new MockMultipartFile("file", "copy.txt", "text/plain", content));
+
+        assertEquals(first.hash(), second.hash());
+        assertEquals(first.path(), second.path());
+        assertEquals(content.length, first.size());
+        assertArrayEquals(content, Files.readAllBytes(first.path()));
+        try (Stream<Path> blobs = Files.walk(storageRoot.resolve("blobs")).filter(Files::isRegularFile)) {
+            assertEquals(1, blobs.count());
+        }
+    }
+
+    @Test
+    public void whenSameNameDifferentContent_thenBothKept() throws Exception {
+        BlobStore.StoredBlob first = blobStore.store(new MockMultipartFile("file", "notes.txt", "text/plain",
+                "first".getBytes(StandardCharsets.UTF_8)));
+        BlobStore.StoredBlob second = blobStore.store(new MockMultipartFile("file", "notes.txt", "text/plain",
+                "second".getBytes(StandardCharsets.UTF_8)));
+
+        assertNotEquals(first.path(), second.path());
+        assertEquals("first", Files.readString(first.path()));
+        assertEquals("second", Files.readString(second.path()));
+    }
+
+    @Test
+    public void whenContentStored_thenPathIsShardedByHashPrefix() throws Exception {
+        BlobStore.StoredBlob blob = blobStore.store(new MockMultipartFile("file", "a.txt", "text/plain",
+                "content".getBytes(StandardCharsets.UTF_8)));
+
+        Path relative = storageRoot.resolve("blobs").relativize(blob.path());
+        assertEquals(3, relative.getNameCount());
+        assertEquals(blob.hash().substring(0, 2), relative.getName(0).toString());
+        assertEquals(blob.hash().substring(2, 4), relative.getName(1).toString());
+        assertTrue(blobStore.isInLayout(blob.path().toString(), blob.hash()));
+    }
+
+    @Test
+    public void whenTempFileStored_thenMovedIntoStoreAndTypeDetected() throws Exception {
+        Path upload = Files.createTempFile(blobStore.tempDirectory(), "upload", ".part");
+        Files.write(upload, "%PDF-1.7 document".getBytes(StandardCharsets.US_ASCII));
+
+        BlobStore.StoredBlob blob = blobStore.storeFile(upload);
+
+        assertFalse(Files.exists(upload));
+        assertEquals("%PDF-1.7 document", Files.readString(blob.path()));
+        assertEquals("application/pdf", blob.contentType());
+    }
+
+    @Test
+    public void whenPdfHeaderAfterLeadingBytes_thenDetectedAsPdf() {
+        byte[] head = ("\r\n".repeat(300) + "%PDF-1.7\n").getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("application/pdf", ContentTypeSniffer.detect(head, head.length));
+        assertNull(ContentTypeSniffer.detect(head, 600));
+    }
+
+    @Test
+    public void whenDeclaredTypeContradictsContent_thenContentWins() {
+        assertEquals("application/pdf", ContentTypeSniffer.resolve("text/plain", "application/pdf"));
+        assertEquals("application/octet-stream", ContentTypeSniffer.resolve("application/pdf", null));
+        assertEquals("text/plain", ContentTypeSniffer.resolve("text/plain", null));
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                ContentTypeSniffer.resolve("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                        "application/zip"));
+    }
+}
@@ -14,14 +14,19 @@ import com.example.todolist.servicetask.ServiceTask;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 @ExtendWith(MockitoExtension.class)
 public class CreateTaskTest {
 
@@ -33,6 +38,8 @@ public class CreateTaskTest {
     private ServiceCategory catService;
     @Mock
     private ServiceTag tagService;
+    @Spy
+    private SyncTaskExecutor attachmentExecutor = new SyncTaskExecutor();
 
     @InjectMocks
     private APIController apiController;
@@ -59,12 +66,16 @@ public class CreateTaskTest {
 
         pdfFile = new MockMultipartFile("document.pdf", "document.pdf", "application/pdf", "PDF content".getBytes());
 
-        when(catService.findTaskById(anyLong())).thenReturn(category);
-        when(tagService.findTaskById(anyLong())).thenReturn(tag);
-        when(serviceTask.saveTask(any(Task.class))).thenAnswer(invocation -> {
+        lenient().when(catService.findTaskById(anyLong())).thenReturn(category);
+        lenient().when(tagService.findTaskById(anyLong())).thenReturn(tag);
+        lenient().when(fileSystemStorage.storeUpload(any(MultipartFile.class))).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(0);
+            return new FileSystemStorage.StoredUpload(null, file.getOriginalFilename(), file.getContentType());
+        });
+        lenient().when(serviceTask.saveTaskWithFiles(any(Task.class), anyList())).thenAnswer(invocation -> {
             Task task = invocation.getArgument(0);
             task.setId(preparedTask.getId()); // Установка ID для возвращаемого объекта
-            return task;
+            return new ServiceTask.TaskWithFiles(task, List.of());
         });
     }
 
@@ -92,23 +103,42 @@ public class CreateTaskTest {
         Task result = (Task) response.getBody();
         assertEquals("New Task", result.getTitle());
 
-        // Проверка, что метод saveFile был вызван для каждого файла
+        // Содержимое каждого файла сохранено, и все файлы связаны с задачей при ее сохранении
         for (MultipartFile file : files) {
-            verify(fileSystemStorage, times(1)).saveFile(eq(file), any(Task.class));
+            verify(fileSystemStorage, times(1)).storeUpload(file);
         }
+        ArgumentCaptor<List<FileSystemStorage.StoredUpload>> uploads = ArgumentCaptor.forClass(List.class);
+        verify(serviceTask).saveTaskWithFiles(any(Task.class), uploads.capture());
+        assertEquals(List.of("file1.txt", "file2.txt"),
+                uploads.getValue().stream().map(FileSystemStorage.StoredUpload::fileName).toList());
     }
 
     @Test
     public void whenCreateTaskAndFileSavingFails_thenInternalServerError() {
         // Настройка мока для генерации исключения при сохранении файла
-        doThrow(new RuntimeException("File saving failed")).when(fileSystemStorage).saveFile(any(MultipartFile.class), any(Task.class));
+        doThrow(new RuntimeException("File saving failed")).when(fileSystemStorage).storeUpload(any(MultipartFile.class));
 
         ResponseEntity<?> response = apiController.createTask("New Task", "New Description", files, "1", "1");
 
         assertNotNull(response);
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
         // Проверка, что тело ответа содержит ожидаемое сообщение об ошибке
-        assertEquals("Failed to save file: file1.txt", response.getBody());
+        assertEquals("Failed to save file: file1.txt (File saving failed)", response.getBody());
+        // Задача не создается, поэтому и удалять нечего
+        verify(serviceTask, never()).saveTaskWithFiles(any(Task.class), anyList());
+        verify(serviceTask, never()).deleteTask(anyLong());
+    }
+
+    @Test
+    public void whenSecondFileFails_thenTaskNotCreated() {
+        when(fileSystemStorage.storeUpload(files[1])).thenThrow(new RuntimeException("Disk full"));
+
+        ResponseEntity<?> response = apiController.createTask("New Task", "New Description", files, "1", "1");
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        assertEquals("Failed to save file: file2.txt (Disk full)", response.getBody());
+        verify(serviceTask, never()).saveTaskWithFiles(any(Task.class), anyList());
+        verify(fileSystemStorage, never()).attachUpload(any(), any(Task.class));
     }
 
     @Test
@@ -122,7 +152,7 @@ public class CreateTaskTest {
         Task result = (Task) response.getBody();
         assertEquals("New Task", result.getTitle());
 
-        // Проверка, что метод saveFile был вызван для PDF-файла
-        verify(fileSystemStorage, times(1)).saveFile(eq(pdfFile), any(Task.class));
+        // Проверка, что содержимое PDF-файла было сохранено
+        verify(fileSystemStorage, times(1)).storeUpload(pdfFile);
     }
 }
\ No newline at end of file
@@ -10,11 +10,19 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
-import java.net.MalformedURLException;
+import java.io.IOException;
+import java.util.Date;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,34 +36,65 @@ public class DownloadFileTest {
     private APIController apiController;
 
     @Test
-    public void whenDownloadPdf_thenReturnZip() throws MalformedURLException {
+    public void whenDownloadPdf_thenReturnZip() throws IOException {
         Long fileId = 1L;
         File pdfFile = new File();
         pdfFile.setId(fileId);
         pdfFile.setFileType("application/pdf");
 
         when(fileSystemStorage.findFileById(fileId)).thenReturn(pdfFile);
-        when(fileSystemStorage.downloadPdfAsZip(pdfFile, null)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        when(fileSystemStorage.downloadPdfAsZip(pdfFile, null, null)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
 
-        ResponseEntity<Resource> response = apiController.downloadFile(fileId, null);
+        ResponseEntity<Resource> response = apiController.downloadFile(fileId, null, null, null);
 
-        verify(fileSystemStorage).downloadPdfAsZip(pdfFile, null);
+        verify(fileSystemStorage).downloadPdfAsZip(pdfFile, null, null);
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
     @Test
-    public void whenDownloadRegularFile_thenReturnFile() throws MalformedURLException {
+    public void whenFileUnknown_thenNotFound() throws IOException {
+        when(fileSystemStorage.findFileById(99L)).thenReturn(null);
+
+        ResponseEntity<Resource> response = apiController.downloadFile(99L, null,
+                new MockHttpServletRequest("GET", "/api/tasks/files/download/99"), new MockHttpServletResponse());
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    public void whenDownloadRegularFile_thenSendFile() throws IOException {
         Long fileId = 2L;
         File regularFile = new File();
         regularFile.setId(fileId);
         regularFile.setFileType("text/plain");
 
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/2");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
         when(fileSystemStorage.findFileById(fileId)).thenReturn(regularFile);
-        when(fileSystemStorage.downloadRegularFile(regularFile)).thenReturn(new ResponseEntity<>(HttpStatus.OK));
 
-        ResponseEntity<Resource> response = apiController.downloadFile(fileId, null);
+        apiController.downloadFile(fileId, null, request, servletResponse);
 
-        verify(fileSystemStorage).downloadRegularFile(regularFile);
-        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(fileSystemStorage).sendRegularFile(eq(regularFile), anyString(), eq(request), eq(servletResponse));
+    }
+
+    @Test
+    public void whenFileNotModified_thenRespondWithNotModifiedWithoutReadingFile() throws IOException {
+        Long fileId = 3L;
+        File regularFile = new File();
+        regularFile.setId(fileId);
+        regularFile.setFileType("text/plain");
+        regularFile.setLastModified(new Date(1_700_000_000_000L));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/3");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"file-3-1700000000000\"");
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        when(fileSystemStorage.findFileById(fileId)).thenReturn(regularFile);
+
+        ResponseEntity<Resource> response = apiController.downloadFile(fileId, null, request, servletResponse);
+
+        verify(fileSystemStorage, never()).sendRegularFile(any(), any(), any(), any());
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
     }
 }
@@ -0,0 +1,108 @@
+package com.example.todolist;
+
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.exception.FileStorageException;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskEventType;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorageService;
+import com.example.todolist.servicetask.PDFService;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.RenderedPageCache;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FileChangeEventsTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private PDFService pdfService;
+
+    @Mock
+    private TaskCache taskCache;
+
+    @Mock
+    private TaskEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private PdfConversionQueue conversionQueue;
+
+    @Mock
+    private RenderedPageCache pageCache;
+
+    private FileSystemStorageService storageService;
+
+    private final Task task = new Task(1L, "Read report", "Description here");
+
+    @BeforeEach
+    void SetUp() {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        storageService = new FileSystemStorageService(storageProperties, fileRepository, pdfService, taskCache,
+                new CacheProperties(), eventBroadcaster, new BlobStore(storageProperties), conversionQueue,
+                pageCache, new PdfConversionProperties(), new PageRenderProperties());
+    }
+
+    @Test
+    public void whenFileSavedInTransaction_thenEventPublishedOnlyAfterCommit() {
+        when(fileRepository.save(any(File.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            storageService.saveFile(new MockMultipartFile("file", "notes.txt", "text/plain",
+                    "notes".getBytes(StandardCharsets.UTF_8)), task);
+
+            verify(fileRepository).touchTask(eq(1L), any());
+            verify(eventBroadcaster, never()).publish(any(), any());
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(taskCache).invalidate(1L);
+            verify(eventBroadcaster).publish(TaskEventType.UPDATED, 1L);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void whenFileNotSaved_thenTaskNotTouchedAndNoEvent() {
+        MockMultipartFile broken = new MockMultipartFile("file", "notes.txt", "text/plain", new byte[0]) {
+            @Override
+            public void transferTo(java.io.File dest) throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+
+        assertThrows(FileStorageException.class, () -> storageService.saveFile(broken, task));
+
+        verify(fileRepository, never()).touchTask(anyLong(), any());
+        verifyNoInteractions(eventBroadcaster);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Task;
+import com.example.todolist.servicetask.TaskSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FullTextSearchTest {
+
+    private TaskSearchIndex index;
+
+    @BeforeEach
+    void SetUp() {
+        index = new TaskSearchIndex(null);
+        index.index(new Task(1L, "Убрать квартиру", "Пропылесосить ковры и помыть окна"));
+        index.index(new Task(2L, "Write report", "Quarterly reports for the team"));
+        index.index(new Task(3L, "Помыть машину", "Съездить на мойку"));
+    }
+
+    @Test
+    public void whenSearchRussianWordForm_thenMatchOtherForms() {
+        List<Long> result = index.search("квартира", 10);
+
+        assertEquals(List.of(1L), result);
+    }
+
+    @Test
+    public void whenSearchEnglishWordForm_thenMatchOtherForms() {
+        List<Long> result = index.search("reporting", 10);
+
+        assertEquals(List.of(2L), result);
+    }
+
+    @Test
+    public void whenSearchSeveralTerms_thenTitleMatchRankedFirst() {
+        List<Long> result = index.search("помыть машину", 10);
+
+        assertEquals(3L, result.getFirst());
+        assertTrue(result.contains(1L));
+    }
+
+    @Test
+    public void whenTaskUpdatedOrRemoved_thenIndexFollows() {
+        index.index(new Task(2L, "Buy groceries", "Milk and bread"));
+        assertTrue(index.search("report", 10).isEmpty());
+        assertEquals(List.of(2L), index.search("groceries", 10));
+
+        index.remove(2L);
+        assertTrue(index.search("groceries", 10).isEmpty());
+        assertEquals(2, index.size());
+    }
+}
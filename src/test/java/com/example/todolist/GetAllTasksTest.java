@@ -0,0 +1,53 @@
+package com.example.todolist;
+
+import com.example.todolist.controller.APIController;
+import com.example.todolist.exception.InvalidCursorException;
+import com.example.todolist.model.TaskListItem;
+import com.example.todolist.model.TaskPage;
+import com.example.todolist.servicetask.CursorCodec;
+import com.example.todolist.servicetask.ServiceTask;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class GetAllTasksTest {
+
+    @Mock
+    private ServiceTask serviceTask;
+
+    @InjectMocks
+    private APIController apiController;
+
+    @Test
+    public void whenGetAllTasks_thenReturnPageWithCursor() {
+        TaskListItem item = new TaskListItem(1L, "Clean house", null, "Срочно", "Личное", 0L);
+        String nextCursor = CursorCodec.encode(1L);
+        when(serviceTask.findTasksPage(null, 1, null)).thenReturn(new TaskPage<>(List.of(item), nextCursor));
+
+        TaskPage<TaskListItem> page = apiController.getAllTask(null, 1, null);
+
+        assertNotNull(page);
+        assertEquals(1, page.getItems().size());
+        assertEquals(nextCursor, page.getNextCursor());
+        assertNull(page.getItems().getFirst().getDescription());
+    }
+
+    @Test
+    public void whenCursorEncoded_thenDecodeReturnsSameId() {
+        assertEquals(42L, CursorCodec.decode(CursorCodec.encode(42L)));
+        assertEquals(0L, CursorCodec.decode(null));
+    }
+
+    @Test
+    public void whenCursorMalformed_thenThrowInvalidCursor() {
+        assertThrows(InvalidCursorException.class, () -> CursorCodec.decode("not-a-cursor"));
+    }
+}
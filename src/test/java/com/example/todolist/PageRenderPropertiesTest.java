@@ -0,0 +1,40 @@
+package com.example.todolist;
+
+import com.example.todolist.config.PageRenderProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.BindException;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PageRenderPropertiesTest {
+
+    @Test
+    public void whenFormatKnown_thenTierBound() {
+        PageRenderProperties properties = bind(Map.of(
+                "pdf.render.tiers.preview.dpi", "96",
+                "pdf.render.tiers.preview.format", "jpeg"));
+
+        PageRenderProperties.Tier preview = properties.getTiers().get("preview");
+        assertTrue(preview.isJpeg());
+        assertEquals("jpg", preview.extension());
+        assertEquals("image/jpeg", preview.contentType());
+    }
+
+    @Test
+    public void whenFormatUnknown_thenBindingFails() {
+        // Раньше неизвестный формат молча отрисовывался в PNG
+        assertThrows(BindException.class, () -> bind(Map.of(
+                "pdf.render.tiers.preview.dpi", "96",
+                "pdf.render.tiers.preview.format", "webp")));
+    }
+
+    private static PageRenderProperties bind(Map<String, String> values) {
+        return new Binder(new MapConfigurationPropertySource(values))
+                .bind("pdf.render", PageRenderProperties.class)
+                .get();
+    }
+}
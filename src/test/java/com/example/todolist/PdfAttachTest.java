@@ -0,0 +1,118 @@
+package com.example.todolist;
+
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorageService;
+import com.example.todolist.servicetask.PDFService;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.RenderedPageCache;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PdfAttachTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private PDFService pdfService;
+
+    @Mock
+    private TaskCache taskCache;
+
+    @Mock
+    private TaskEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private PdfConversionQueue conversionQueue;
+
+    @Mock
+    private RenderedPageCache pageCache;
+
+    private FileSystemStorageService storageService;
+
+    // Строка таблицы file: состояние, которое видят другие потоки
+    private final File row = new File();
+
+    @BeforeEach
+    void SetUp() {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        storageService = new FileSystemStorageService(storageProperties, fileRepository, pdfService, taskCache,
+                new CacheProperties(), eventBroadcaster, new BlobStore(storageProperties), conversionQueue,
+                pageCache, new PdfConversionProperties(), new PageRenderProperties());
+
+        when(fileRepository.save(any(File.class))).thenAnswer(invocation -> {
+            File entity = invocation.getArgument(0);
+            if (entity.getId() == null) {
+                entity.setId(10L);
+            }
+            row.setId(entity.getId());
+            row.setConversionStatus(entity.getConversionStatus());
+            row.setPageCount(entity.getPageCount());
+            row.setConvertedPages(entity.getConvertedPages());
+            row.setConversionJobId(entity.getConversionJobId());
+            row.setLastModified(entity.getLastModified());
+            return entity;
+        });
+        when(fileRepository.findConvertedCopies(anyString(), anyString(), anyLong(), any())).thenReturn(List.of());
+        when(fileRepository.updateConversionJobId(anyLong(), anyLong())).thenAnswer(invocation -> {
+            row.setConversionJobId(invocation.getArgument(1));
+            return 1;
+        });
+    }
+
+    @Test
+    public void whenWorkerFinishesBeforeAttachReturns_thenWorkerStateKept() {
+        Date finishedAt = new Date(System.currentTimeMillis() + 60_000);
+        when(conversionQueue.enqueue(anyLong(), anyLong(), anyInt())).thenAnswer(invocation -> {
+            // Поток отрисовки захватил задание и отрисовал все страницы до возврата из enqueue
+            row.setConversionStatus(PdfConversionStatus.DONE);
+            row.setPageCount(3);
+            row.setConvertedPages(3);
+            row.setLastModified(finishedAt);
+            PdfConversionJob job = new PdfConversionJob();
+            job.setId(77L);
+            return job;
+        });
+        Task task = new Task(1L, "Read report", "Description here");
+
+        File saved = storageService.saveFile(new MockMultipartFile("file", "report.pdf", "application/pdf",
+                "%PDF-1.4 report".getBytes(StandardCharsets.UTF_8)), task);
+
+        assertEquals(77L, saved.getConversionJobId());
+        assertEquals(PdfConversionStatus.DONE, row.getConversionStatus());
+        assertEquals(3, row.getPageCount());
+        assertEquals(3, row.getConvertedPages());
+        assertEquals(finishedAt, row.getLastModified());
+        assertEquals(77L, row.getConversionJobId());
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.todolist;
+
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.exception.PageTooLargeException;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import com.example.todolist.repository.PdfConversionJobRepository;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class PdfConversionQueueTest {
+
+    @Mock
+    private PdfConversionJobRepository jobRepository;
+
+    private PdfConversionQueue queue;
+
+    private PdfConversionJob job;
+
+    @BeforeEach
+    void SetUp() {
+        PdfConversionProperties properties = new PdfConversionProperties();
+        properties.setMaxAttempts(3);
+        properties.setRetryDelay(Duration.ofSeconds(30));
+        queue = new PdfConversionQueue(jobRepository, properties);
+
+        job = new PdfConversionJob();
+        job.setId(1L);
+        job.setFileId(10L);
+        job.setTaskId(100L);
+        job.setStatus(PdfConversionStatus.QUEUED);
+        job.setPriority(PdfConversionJob.PRIORITY_INTERACTIVE);
+        job.setAttempts(0);
+        job.setNextAttemptAt(new Date());
+    }
+
+    @Test
+    public void whenJobClaimed_thenRunningWithAttemptCounted() {
+        when(jobRepository.findNextForUpdate(any(Date.class)))
+                .thenReturn(Optional.of(job));
+
+        PdfConversionJob claimed = queue.claimNext().orElseThrow();
+
+        assertEquals(PdfConversionStatus.RUNNING, claimed.getStatus());
+        assertEquals(1, claimed.getAttempts());
+        assertNotNull(claimed.getHeartbeatAt());
+    }
+
+    @Test
+    public void whenJobFails_thenRequeuedWithGrowingDelay() {
+        when(jobRepository.requeue(eq(1L), anyInt(), eq(PdfConversionStatus.RUNNING), eq(PdfConversionStatus.QUEUED),
+                eq("Broken page"), any(Date.class))).thenReturn(1);
+        ArgumentCaptor<Date> nextAttemptAt = ArgumentCaptor.forClass(Date.class);
+
+        job.setAttempts(1);
+        long before = System.currentTimeMillis();
+        assertEquals(Optional.of(PdfConversionStatus.QUEUED), queue.fail(job, new IOException("Broken page")));
+        verify(jobRepository).requeue(eq(1L), eq(1), any(), any(), any(), nextAttemptAt.capture());
+        long firstDelay = nextAttemptAt.getValue().getTime() - before;
+        assertTrue(firstDelay >= 30_000 && firstDelay < 31_000);
+
+        job.setAttempts(2);
+        before = System.currentTimeMillis();
+        assertEquals(Optional.of(PdfConversionStatus.QUEUED), queue.fail(job, new IOException("Broken page")));
+        verify(jobRepository).requeue(eq(1L), eq(2), any(), any(), any(), nextAttemptAt.capture());
+        long secondDelay = nextAttemptAt.getValue().getTime() - before;
+        assertTrue(secondDelay >= 60_000 && secondDelay < 61_000);
+    }
+
+    @Test
+    public void whenAttemptsExhausted_thenJobFailed() {
+        job.setAttempts(3);
+        when(jobRepository.finish(eq(1L), eq(3), eq(PdfConversionStatus.RUNNING), eq(PdfConversionStatus.FAILED),
+                eq("Broken page"), any(Date.class))).thenReturn(1);
+
+        assertEquals(Optional.of(PdfConversionStatus.FAILED), queue.fail(job, new IOException("Broken page")));
+    }
+
+    @Test
+    public void whenPageTooLarge_thenJobFailedWithoutRetry() {
+        job.setAttempts(1);
+        when(jobRepository.finish(eq(1L), eq(1), eq(PdfConversionStatus.RUNNING), eq(PdfConversionStatus.FAILED),
+                eq("Page 0 needs 900 MB"), any(Date.class))).thenReturn(1);
+
+        assertEquals(Optional.of(PdfConversionStatus.FAILED),
+                queue.fail(job, new PageTooLargeException("Page 0 needs 900 MB")));
+        verify(jobRepository, never()).requeue(anyLong(), anyInt(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void whenJobTakenOver_thenUpdatesReportLostOwnership() {
+        // Задание возвращено в очередь и захвачено заново: номер попытки в базе уже другой
+        job.setAttempts(1);
+        when(jobRepository.heartbeat(eq(1L), eq(1), eq(PdfConversionStatus.RUNNING), any(Date.class))).thenReturn(0);
+        when(jobRepository.updateProgress(eq(1L), eq(1), eq(PdfConversionStatus.RUNNING), anyInt(), anyInt(),
+                any(Date.class))).thenReturn(0);
+        when(jobRepository.finish(eq(1L), eq(1), eq(PdfConversionStatus.RUNNING), any(), any(), any(Date.class)))
+                .thenReturn(0);
+        when(jobRepository.requeue(eq(1L), eq(1), eq(PdfConversionStatus.RUNNING), any(), any(), any(Date.class)))
+                .thenReturn(0);
+
+        assertFalse(queue.heartbeat(job));
+        assertFalse(queue.progress(job, 1, 3));
+        assertFalse(queue.complete(job));
+        assertFalse(queue.cancel(job));
+        assertEquals(Optional.empty(), queue.fail(job, new IOException("Broken page")));
+    }
+}
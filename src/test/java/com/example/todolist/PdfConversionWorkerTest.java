@@ -0,0 +1,124 @@
+package com.example.todolist;
+
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.model.PdfConversionJob;
+import com.example.todolist.model.PdfConversionStatus;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.PdfConversionWorker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PdfConversionWorkerTest {
+
+    @Mock
+    private FileSystemStorage fileSystemStorage;
+
+    @Mock
+    private PdfConversionQueue queue;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    private PdfConversionWorker worker;
+
+    private PdfConversionJob job;
+
+    @BeforeEach
+    void SetUp() {
+        PdfConversionProperties properties = new PdfConversionProperties();
+        properties.setHeartbeatInterval(Duration.ofMillis(20));
+        worker = new PdfConversionWorker(fileSystemStorage, queue, fileRepository, properties);
+
+        job = new PdfConversionJob();
+        job.setId(1L);
+        job.setFileId(10L);
+        job.setStatus(PdfConversionStatus.RUNNING);
+        job.setAttempts(1);
+
+        File pdf = new File();
+        pdf.setId(10L);
+        when(fileRepository.findById(10L)).thenReturn(Optional.of(pdf));
+    }
+
+    @AfterEach
+    void TearDown() {
+        worker.stop();
+    }
+
+    @Test
+    public void whenPageRendersLong_thenHeartbeatKeepsJob() throws Exception {
+        when(queue.heartbeat(job)).thenReturn(true);
+        when(queue.complete(job)).thenReturn(true);
+        doAnswer(invocation -> {
+            Thread.sleep(200);
+            return null;
+        }).when(fileSystemStorage).convertPdfPages(any(), any());
+
+        worker.process(job);
+
+        verify(queue, atLeast(2)).heartbeat(job);
+        verify(queue).complete(job);
+    }
+
+    @Test
+    public void whenHeartbeatUpdatesNoRow_thenRenderingStopped() throws Exception {
+        when(queue.heartbeat(job)).thenReturn(false);
+        doAnswer(invocation -> {
+            // Отрисовка долгой страницы; прерывание останавливает ее, как в PDFService
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("PDF rendering interrupted");
+            }
+            return null;
+        }).when(fileSystemStorage).convertPdfPages(any(), any());
+
+        long started = System.currentTimeMillis();
+        worker.process(job);
+
+        assertTrue(System.currentTimeMillis() - started < 5_000);
+        assertFalse(Thread.currentThread().isInterrupted());
+        verify(queue, never()).complete(any());
+        verify(queue, never()).fail(any(), any());
+        verify(fileRepository, never()).updateConversionStatus(anyLong(), any(), any());
+    }
+
+    @Test
+    public void whenProgressUpdatesNoRow_thenRenderingStopped() throws Exception {
+        lenient().when(queue.heartbeat(job)).thenReturn(true);
+        when(queue.progress(eq(job), anyInt(), anyInt())).thenReturn(false);
+        doAnswer(invocation -> {
+            BiConsumer<Integer, Integer> progress = invocation.getArgument(1);
+            progress.accept(1, 3);
+            fail("Rendering continued after the job was lost");
+            return null;
+        }).when(fileSystemStorage).convertPdfPages(any(), any());
+
+        worker.process(job);
+
+        assertFalse(Thread.currentThread().isInterrupted());
+        verify(queue, never()).complete(any());
+        verify(queue, never()).fail(any(), any());
+        verify(fileRepository, never()).updateConversionStatus(anyLong(), any(), any());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.todolist;
+
+import com.example.todolist.config.ExecutionProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.servicetask.PDFService;
+import com.example.todolist.servicetask.RenderMemoryBudget;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PdfRenderingTest {
+
+    @TempDir
+    Path directory;
+
+    private PDFService pdfService;
+
+    private RenderMemoryBudget memoryBudget;
+
+    private PageRenderProperties.Tier tier;
+
+    @BeforeEach
+    void SetUp() {
+        ExecutionProperties executionProperties = new ExecutionProperties();
+        executionProperties.setRenderThreads(4);
+        executionProperties.setRenderParallelism(4);
+        executionProperties.setEncodeThreads(2);
+        PageRenderProperties renderProperties = new PageRenderProperties();
+        memoryBudget = new RenderMemoryBudget(renderProperties);
+        pdfService = new PDFService(executionProperties, memoryBudget);
+
+        tier = new PageRenderProperties.Tier();
+        tier.setDpi(36);
+    }
+
+    @AfterEach
+    void TearDown() {
+        pdfService.shutdown();
+    }
+
+    @Test
+    public void whenDocumentSplitIntoRanges_thenEveryPageRenderedOnceAndCopiesClosed() throws Exception {
+        // Диапазоны по 20 страниц: пока первая страница ждет в обработчике, ни один диапазон не может
+        // завершиться, так как число некодированных страниц ограничено
+        Path pdf = TestPdf.write(directory.resolve("report.pdf"), 80);
+        Path output = Files.createDirectory(directory.resolve("pages"));
+        List<Integer> pages = new ArrayList<>();
+        AtomicInteger openCopies = new AtomicInteger();
+
+        int pageCount = pdfService.convertPDFToImages(pdf, output, "report", Set.of(), tier, (pageIndex, count, image) -> {
+            if (pages.isEmpty()) {
+                // Первая страница ждет, пока каждый из четырех диапазонов загрузит свою копию документа
+                long deadline = System.currentTimeMillis() + 10_000;
+                while (pdfService.openDocuments() < 4 && System.currentTimeMillis() < deadline) {
+                    Thread.onSpinWait();
+                }
+                openCopies.set(pdfService.openDocuments());
+            }
+            assertEquals(80, count);
+            assertEquals("report-page-" + pageIndex + ".png", image.getFileName().toString());
+            assertTrue(Files.size(image) > 0);
+            pages.add(pageIndex);
+        });
+
+        assertEquals(80, pageCount);
+        assertEquals(4, openCopies.get());
+        assertEquals(IntStream.range(0, 80).boxed().toList(), pages.stream().sorted().toList());
+        // Копии документов всех диапазонов закрыты, и их память возвращена в бюджет
+        assertEquals(0, pdfService.openDocuments());
+        assertEquals(memoryBudget.totalDocumentBytes(), memoryBudget.availableDocumentBytes());
+    }
+
+    @Test
+    public void whenDocumentBudgetFitsOneCopy_thenRangesRenderedOneAfterAnother() throws Exception {
+        Path pdf = TestPdf.write(directory.resolve("report.pdf"), 80);
+        Path output = Files.createDirectory(directory.resolve("pages"));
+        ExecutionProperties executionProperties = new ExecutionProperties();
+        executionProperties.setRenderThreads(4);
+        executionProperties.setRenderParallelism(4);
+        PageRenderProperties renderProperties = new PageRenderProperties();
+        renderProperties.setDocumentMemoryFactor(4);
+        renderProperties.setDocumentMemoryBudget(DataSize.ofBytes(Files.size(pdf) * 4));
+        RenderMemoryBudget budget = new RenderMemoryBudget(renderProperties);
+        PDFService service = new PDFService(executionProperties, budget);
+        List<Integer> pages = new ArrayList<>();
+        AtomicInteger maxOpenCopies = new AtomicInteger();
+
+        try {
+            int pageCount = assertTimeoutPreemptively(Duration.ofSeconds(30), () ->
+                    service.convertPDFToImages(pdf, output, "report", Set.of(), tier, (pageIndex, count, image) -> {
+                        maxOpenCopies.accumulateAndGet(service.openDocuments(), Math::max);
+                        pages.add(pageIndex);
+                    }));
+
+            assertEquals(80, pageCount);
+            assertEquals(IntStream.range(0, 80).boxed().toList(), pages.stream().sorted().toList());
+            // Вторая копия ждет, пока первая будет закрыта
+            assertEquals(1, maxOpenCopies.get());
+            assertEquals(0, service.openDocuments());
+            assertEquals(budget.totalDocumentBytes(), budget.availableDocumentBytes());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void whenPagesSkipped_thenOnlyRemainingPagesRendered() throws Exception {
+        Path pdf = TestPdf.write(directory.resolve("report.pdf"), 12);
+        Path output = Files.createDirectory(directory.resolve("pages"));
+        List<Integer> pages = new ArrayList<>();
+
+        int pageCount = pdfService.convertPDFToImages(pdf, output, "report", Set.of(0, 1, 5, 11), tier,
+                (pageIndex, count, image) -> pages.add(pageIndex));
+
+        assertEquals(12, pageCount);
+        assertEquals(List.of(2, 3, 4, 6, 7, 8, 9, 10), pages.stream().sorted().toList());
+        assertEquals(0, pdfService.openDocuments());
+    }
+
+    @Test
+    public void whenRenderingInterrupted_thenReturnsOnlyAfterRenderTasksStop() throws Exception {
+        Path pdf = TestPdf.write(directory.resolve("report.pdf"), 8);
+        Path output = Files.createDirectory(directory.resolve("pages"));
+        CountDownLatch handlerEntered = new CountDownLatch(1);
+        AtomicBoolean handlerFinished = new AtomicBoolean();
+        AtomicBoolean finishedBeforeReturn = new AtomicBoolean();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Thread caller = new Thread(() -> {
+            try {
+                pdfService.convertPDFToImages(pdf, output, "report", Set.of(), tier, (pageIndex, count, image) -> {
+                    handlerEntered.countDown();
+                    // Обработчик страницы еще работает с изображением, когда вызывающий поток прерывают
+                    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+                    while (System.nanoTime() < until) {
+                        Thread.onSpinWait();
+                    }
+                    handlerFinished.set(true);
+                });
+            } catch (Exception exception) {
+                failure.set(exception);
+            }
+            finishedBeforeReturn.set(handlerFinished.get());
+        });
+        caller.start();
+
+        assertTrue(handlerEntered.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(10_000);
+
+        assertInstanceOf(InterruptedIOException.class, failure.get());
+        assertTrue(finishedBeforeReturn.get());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.todolist;
+
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.PdfConversionProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorageService;
+import com.example.todolist.servicetask.PDFService;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.RenderedPageCache;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class RangeDownloadTest {
+
+    private static final String ETAG = "\"file-1-1700000000000\"";
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private PDFService pdfService;
+
+    @Mock
+    private TaskCache taskCache;
+
+    @Mock
+    private TaskEventBroadcaster eventBroadcaster;
+
+    @Mock
+    private BlobStore blobStore;
+
+    @Mock
+    private PdfConversionQueue conversionQueue;
+
+    @Mock
+    private RenderedPageCache pageCache;
+
+    private FileSystemStorageService storageService;
+
+    private File fileEntity;
+
+    @BeforeEach
+    void SetUp() throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        storageService = new FileSystemStorageService(storageProperties, fileRepository, pdfService, taskCache,
+                new CacheProperties(), eventBroadcaster, blobStore, conversionQueue, pageCache,
+                new PdfConversionProperties(), new PageRenderProperties());
+
+        Path content = Files.writeString(storageRoot.resolve("digits.txt"), "0123456789");
+        fileEntity = new File();
+        fileEntity.setId(1L);
+        fileEntity.setFilePath(content.toString());
+        fileEntity.setFileType("text/plain");
+        fileEntity.setFileName("digits.txt");
+    }
+
+    @Test
+    public void whenRangeRequested_thenRespondWithPartialContent() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    public void whenIfRangeDoesNotMatch_thenRespondWithWholeFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"file-1-1\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    public void whenSeveralRangesRequested_thenRespondWithMultipartByteranges() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,8-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String body = response.getContentAsString();
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+    }
+
+    @Test
+    public void whenRangesOverlapOrAdjoin_thenCoalesced() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=4-5,0-2,1-3,8-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(206, response.getStatus());
+        String body = response.getContentAsString();
+        assertTrue(body.contains("Content-Range: bytes 0-5/10\r\n\r\n012345"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+        assertEquals(2, body.split("Content-Range").length - 1);
+    }
+
+    @Test
+    public void whenRangesExceedFileLength_thenRespondWith416() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-,0-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("", response.getContentAsString());
+    }
+
+    @Test
+    public void whenRangeNotSatisfiable_thenRespondWith416() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=20-30");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    public void whenRangeHeaderMalformed_thenRespondWithWholeFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/tasks/files/download/1");
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        storageService.sendRegularFile(fileEntity, ETAG, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("0123456789", response.getContentAsString());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.todolist;
+
+import com.example.todolist.config.CacheProperties;
+import com.example.todolist.model.Category;
+import com.example.todolist.repository.CategoryRepository;
+import com.example.todolist.servicetask.ServiceCategory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReferenceCacheTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    private ServiceCategory serviceCategory;
+
+    private Category category;
+
+    @BeforeEach
+    void SetUp() {
+        serviceCategory = new ServiceCategory(categoryRepository, new CacheProperties());
+        category = new Category(1L, "Работа", "Рабочие задачи", null, List.of());
+    }
+
+    @Test
+    public void whenCategoryRequestedTwice_thenRepositoryQueriedOnce() {
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(category));
+
+        assertSame(category, serviceCategory.findTaskById(1L));
+        assertSame(category, serviceCategory.findTaskById(1L));
+
+        verify(categoryRepository, times(1)).findById(1L);
+        assertEquals(1, serviceCategory.cacheStats().get("categoriesById").getHits());
+    }
+
+    @Test
+    public void whenCategorySaved_thenCachedEntriesInvalidated() {
+        when(categoryRepository.findByName("Работа")).thenReturn(Optional.of(category));
+        when(categoryRepository.save(category)).thenReturn(category);
+
+        assertEquals(1L, serviceCategory.getIdByName("Работа"));
+        serviceCategory.saveCategory(category);
+        assertEquals(1L, serviceCategory.getIdByName("Работа"));
+
+        verify(categoryRepository, times(2)).findByName("Работа");
+    }
+}
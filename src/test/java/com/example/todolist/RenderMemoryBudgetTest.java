@@ -0,0 +1,65 @@
+package com.example.todolist;
+
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.servicetask.RenderMemoryBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RenderMemoryBudgetTest {
+
+    private RenderMemoryBudget budget;
+
+    @BeforeEach
+    void SetUp() {
+        PageRenderProperties properties = new PageRenderProperties();
+        properties.setMemoryBudget(DataSize.ofMegabytes(8));
+        budget = new RenderMemoryBudget(properties);
+    }
+
+    @Test
+    public void whenReservationClosed_thenMemoryReturnedOnce() throws InterruptedException {
+        RenderMemoryBudget.Reservation reservation = budget.reserve(DataSize.ofMegabytes(3).toBytes());
+        assertEquals(DataSize.ofMegabytes(5).toBytes(), budget.availableBytes());
+
+        reservation.close();
+        reservation.close();
+
+        assertEquals(DataSize.ofMegabytes(8).toBytes(), budget.availableBytes());
+    }
+
+    @Test
+    public void whenBudgetExhausted_thenReserveWaitsForRelease() throws Exception {
+        RenderMemoryBudget.Reservation first = budget.reserve(DataSize.ofMegabytes(6).toBytes());
+
+        CompletableFuture<RenderMemoryBudget.Reservation> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return budget.reserve(DataSize.ofMegabytes(4).toBytes());
+            } catch (InterruptedException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+        assertThrows(TimeoutException.class, () -> second.get(200, TimeUnit.MILLISECONDS));
+
+        first.close();
+
+        second.get(5, TimeUnit.SECONDS).close();
+        assertEquals(DataSize.ofMegabytes(8).toBytes(), budget.availableBytes());
+    }
+
+    @Test
+    public void whenImageExceedsBudget_thenRejectedWithoutWaiting() {
+        long tooLarge = DataSize.ofMegabytes(9).toBytes();
+
+        assertFalse(budget.fits(tooLarge));
+        assertTrue(budget.fits(DataSize.ofMegabytes(8).toBytes()));
+        assertThrows(IllegalArgumentException.class, () -> budget.reserve(tooLarge));
+        assertEquals(DataSize.ofMegabytes(8).toBytes(), budget.availableBytes());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.todolist;
+
+import com.example.todolist.config.PageCacheProperties;
+import com.example.todolist.config.PageRenderProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.servicetask.PDFService;
+import com.example.todolist.servicetask.RenderedPageCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RenderedPageCacheTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private PDFService pdfService;
+
+    private final Path pdf = Path.of("document.pdf");
+
+    private final PageRenderProperties.Tier preview =
+            new PageRenderProperties.Tier(96, PageRenderProperties.Format.JPEG, 0.8f);
+
+    private StorageProperties storageProperties;
+
+    private PageCacheProperties cacheProperties;
+
+    @BeforeEach
+    void SetUp() throws Exception {
+        storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        cacheProperties = new PageCacheProperties();
+
+        // Изображение страницы заменяется текстом с ее номером (6 байт)
+        doAnswer(invocation -> {
+            int pageIndex = invocation.getArgument(1);
+            Files.writeString(invocation.getArgument(3), "page " + pageIndex);
+            return null;
+        }).when(pdfService).renderPage(eq(pdf), anyInt(), any(PageRenderProperties.Tier.class), any(Path.class));
+    }
+
+    @Test
+    public void whenPageRequestedTwice_thenRenderedOnce() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(storageProperties, cacheProperties, pdfService);
+
+        assertEquals("page 2", new String(cache.getPage("hash", pdf, 2, preview)));
+        assertEquals("page 2", new String(cache.getPage("hash", pdf, 2, preview)));
+
+        verify(pdfService, times(1)).renderPage(eq(pdf), eq(2), eq(preview), any(Path.class));
+        assertEquals(1, cache.memoryStats().getHits());
+    }
+
+    @Test
+    public void whenRestarted_thenPagesServedFromDisk() throws Exception {
+        new RenderedPageCache(storageProperties, cacheProperties, pdfService).getPage("hash", pdf, 0, preview);
+
+        RenderedPageCache restarted = new RenderedPageCache(storageProperties, cacheProperties, pdfService);
+        assertEquals("page 0", new String(restarted.getPage("hash", pdf, 0, preview)));
+
+        verify(pdfService, times(1)).renderPage(eq(pdf), eq(0), eq(preview), any(Path.class));
+        assertEquals(1, restarted.diskStats().getHits());
+    }
+
+    @Test
+    public void whenTiersDiffer_thenPagesCachedSeparately() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(storageProperties, cacheProperties, pdfService);
+        PageRenderProperties.Tier thumbnail =
+                new PageRenderProperties.Tier(36, PageRenderProperties.Format.JPEG, 0.7f);
+
+        cache.getPage("hash", pdf, 0, preview);
+        cache.getPage("hash", pdf, 0, thumbnail);
+
+        verify(pdfService).renderPage(eq(pdf), eq(0), eq(preview), any(Path.class));
+        verify(pdfService).renderPage(eq(pdf), eq(0), eq(thumbnail), any(Path.class));
+        assertEquals(2, cache.diskStats().getSize());
+    }
+
+    @Test
+    public void whenDiskLimitExceeded_thenLeastRecentlyUsedPageEvicted() throws Exception {
+        cacheProperties.setMemoryMaxSize(DataSize.ofBytes(0));
+        cacheProperties.setDiskMaxSize(DataSize.ofBytes(15));
+        RenderedPageCache cache = new RenderedPageCache(storageProperties, cacheProperties, pdfService);
+
+        cache.getPage("hash", pdf, 0, preview);
+        cache.getPage("hash", pdf, 1, preview);
+        // Страница 0 использована позже страницы 1, поэтому вытесняется страница 1
+        cache.getPage("hash", pdf, 0, preview);
+        cache.getPage("hash", pdf, 2, preview);
+
+        Path cacheDirectory = storageRoot.resolve("page-cache");
+        assertTrue(Files.exists(cacheDirectory.resolve("hash-96jpgq80-0.jpg")));
+        assertFalse(Files.exists(cacheDirectory.resolve("hash-96jpgq80-1.jpg")));
+        assertTrue(Files.exists(cacheDirectory.resolve("hash-96jpgq80-2.jpg")));
+        assertEquals(1, cache.diskStats().getEvictions());
+    }
+
+    @Test
+    public void whenAllPagesRequested_thenMissingPagesRenderedInOnePass() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(storageProperties, cacheProperties, pdfService);
+        cache.getPage("hash", pdf, 1, preview);
+        // Отрисовка документа отдает страницы не по порядку
+        when(pdfService.convertPDFToImages(eq(pdf), any(Path.class), anyString(), any(), eq(preview), any()))
+                .thenAnswer(invocation -> {
+                    Path outputDir = invocation.getArgument(1);
+                    Set<Integer> skipPages = invocation.getArgument(3);
+                    PDFService.PageHandler handler = invocation.getArgument(5);
+                    for (int pageIndex = 3; pageIndex >= 0; pageIndex--) {
+                        if (!skipPages.contains(pageIndex)) {
+                            Path image = Files.writeString(outputDir.resolve("page-" + pageIndex), "page " + pageIndex);
+                            handler.accept(pageIndex, 4, image);
+                        }
+                    }
+                    return 4;
+                });
+
+        List<String> pages = new ArrayList<>();
+        cache.forEachPage("hash", pdf, 4, preview, (pageIndex, content) -> pages.add(new String(content)));
+        cache.forEachPage("hash", pdf, 4, preview, (pageIndex, content) -> pages.add(new String(content)));
+
+        List<String> expected = List.of("page 0", "page 1", "page 2", "page 3");
+        assertEquals(expected, pages.subList(0, 4));
+        assertEquals(expected, pages.subList(4, 8));
+        // Документ загружается один раз для всех недостающих страниц, повторный проход берет их из кэша
+        verify(pdfService, times(1)).convertPDFToImages(eq(pdf), any(Path.class), anyString(), eq(Set.of(1)),
+                eq(preview), any());
+        verify(pdfService, times(1)).renderPage(eq(pdf), anyInt(), eq(preview), any(Path.class));
+        assertEquals(4, cache.diskStats().getSize());
+        try (Stream<Path> files = Files.list(storageRoot.resolve("page-cache"))) {
+            assertTrue(files.allMatch(Files::isRegularFile));
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.todolist;
+
+import com.example.todolist.exception.FileStorageException;
+import com.example.todolist.model.Category;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.ServiceCategory;
+import com.example.todolist.servicetask.ServiceTag;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskCounterService;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import com.example.todolist.servicetask.TaskSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(ServiceTask.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class SaveTaskWithFilesTest {
+
+    @Autowired
+    private ServiceTask serviceTask;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private TaskSearchIndex searchIndex;
+    @MockBean
+    private TaskCache taskCache;
+    @MockBean
+    private ServiceCategory catService;
+    @MockBean
+    private ServiceTag tagService;
+    @MockBean
+    private TaskCounterService counterService;
+    @MockBean
+    private TaskEventBroadcaster eventBroadcaster;
+    @MockBean
+    private FileSystemStorage fileSystemStorage;
+    @MockBean
+    private PdfConversionQueue conversionQueue;
+
+    private Category category;
+    private Tag tag;
+
+    @BeforeEach
+    void SetUp() {
+        category = new Category();
+        category.setName("Работа");
+        entityManager.persist(category);
+
+        tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persist(tag);
+        entityManager.flush();
+    }
+
+    @Test
+    public void whenFilesAttached_thenTaskSavedWithFiles() {
+        File attached = new File();
+        when(fileSystemStorage.attachUpload(any(), any(Task.class))).thenReturn(attached);
+
+        ServiceTask.TaskWithFiles saved = serviceTask.saveTaskWithFiles(newTask(), List.of(upload("report.txt")));
+
+        assertNotNull(saved.task().getId());
+        assertEquals(List.of(attached), saved.files());
+        verify(fileSystemStorage).attachUpload(any(), eq(saved.task()));
+    }
+
+    @Test
+    public void whenFileCannotBeAttached_thenTaskNotCreated() {
+        File attached = new File();
+        when(fileSystemStorage.attachUpload(any(), any(Task.class)))
+                .thenReturn(attached)
+                .thenThrow(new FileStorageException("Could not upload file"));
+
+        assertThrows(FileStorageException.class, () -> serviceTask.saveTaskWithFiles(newTask(),
+                List.of(upload("report.txt"), upload("notes.txt"))));
+        verify(fileSystemStorage).discardFiles(List.of(attached));
+
+        // Транзакция откатывается: задача не создается, и подписчики не узнают о ней
+        TestTransaction.end();
+        verify(eventBroadcaster, never()).publish(any(), anyLong());
+        TestTransaction.start();
+        assertEquals(0L, entityManager.getEntityManager()
+                .createQuery("select count(t) from Task t", Long.class)
+                .getSingleResult());
+    }
+
+    private Task newTask() {
+        Task task = new Task();
+        task.setTitle("Prepare report");
+        task.setDescription("Quarterly numbers");
+        task.setCategory(category);
+        task.setTag(tag);
+        return task;
+    }
+
+    private static FileSystemStorage.StoredUpload upload(String fileName) {
+        BlobStore.StoredBlob blob = new BlobStore.StoredBlob("0".repeat(64), 1, Path.of(fileName), "text/plain");
+        return new FileSystemStorage.StoredUpload(blob, fileName, "text/plain");
+    }
+}
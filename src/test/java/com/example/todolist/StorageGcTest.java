@@ -0,0 +1,167 @@
+package com.example.todolist;
+
+import com.example.todolist.config.StorageGcProperties;
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.StorageGcStatus;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.StorageGarbageCollector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageGcTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    private BlobStore blobStore;
+
+    private StorageGarbageCollector garbageCollector;
+
+    private BlobStore.StoredBlob referenced;
+
+    private BlobStore.StoredBlob orphan;
+
+    @BeforeEach
+    void SetUp() throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        blobStore = new BlobStore(storageProperties);
+
+        StorageGcProperties gcProperties = new StorageGcProperties();
+        gcProperties.setBatchPause(Duration.ZERO);
+        garbageCollector = new StorageGarbageCollector(fileRepository, blobStore, storageProperties, gcProperties);
+
+        referenced = store("task attachment");
+        orphan = store("attachment of a deleted task");
+        when(fileRepository.findReferencedHashes(anyCollection())).thenReturn(Set.of(referenced.hash()));
+    }
+
+    @Test
+    public void whenBlobUnreferenced_thenDeleted() throws Exception {
+        StorageGcStatus status = collect(false);
+
+        assertTrue(Files.exists(referenced.path()));
+        assertFalse(Files.exists(orphan.path()));
+        assertEquals(2, status.getScanned());
+        assertEquals(1, status.getDeleted());
+        assertEquals(orphan.size(), status.getReclaimedBytes());
+    }
+
+    @Test
+    public void whenDryRun_thenNothingDeleted() throws Exception {
+        StorageGcStatus status = collect(true);
+
+        assertTrue(Files.exists(orphan.path()));
+        assertEquals(1, status.getOrphaned());
+        assertEquals(0, status.getDeleted());
+    }
+
+    @Test
+    public void whenUnreferencedBlobIsRecent_thenKept() throws Exception {
+        Files.setLastModifiedTime(orphan.path(), FileTime.from(Instant.now()));
+
+        StorageGcStatus status = collect(false);
+
+        assertTrue(Files.exists(orphan.path()));
+        assertEquals(0, status.getDeleted());
+    }
+
+    @Test
+    public void whenLegacyFileUnreferenced_thenDeleted() throws Exception {
+        Path kept = legacyFile("kept.txt");
+        Path legacyOrphan = legacyFile("orphan.txt");
+        when(fileRepository.findReferencedPaths(anyCollection())).thenReturn(Set.of(kept.toString()));
+
+        collect(false);
+
+        assertTrue(Files.exists(kept));
+        assertFalse(Files.exists(legacyOrphan));
+    }
+
+    @Test
+    public void whenReferencedAfterFirstCheck_thenRestored() throws Exception {
+        // Запись о загрузке того же содержимого появляется, пока файл переносится в корзину
+        when(fileRepository.findReferencedHashes(anyCollection()))
+                .thenReturn(Set.of(referenced.hash()))
+                .thenReturn(Set.of(orphan.hash()));
+
+        StorageGcStatus status = collect(false);
+
+        assertTrue(Files.exists(orphan.path()));
+        assertEquals(1, status.getOrphaned());
+        assertEquals(0, status.getDeleted());
+        assertFalse(Files.exists(storageRoot.resolve("tmp").resolve("trash").resolve("blobs")
+                .resolve(orphan.hash())));
+    }
+
+    @Test
+    public void whenTrashLeftByInterruptedRun_thenRestoredBeforeCollecting() throws Exception {
+        Path trash = Files.createDirectories(storageRoot.resolve("tmp").resolve("trash").resolve("blobs"));
+        Files.move(referenced.path(), trash.resolve(referenced.hash()));
+
+        collect(false);
+
+        assertTrue(Files.exists(referenced.path()));
+        assertFalse(Files.exists(orphan.path()));
+    }
+
+    @Test
+    public void whenScheduledWithDefaults_thenDryRun() throws Exception {
+        garbageCollector.scheduledCollect();
+        StorageGcStatus status = awaitFinished();
+
+        assertTrue(status.isDryRun());
+        assertTrue(Files.exists(orphan.path()));
+        assertEquals(1, status.getOrphaned());
+    }
+
+    private Path legacyFile(String name) throws Exception {
+        Path file = Files.writeString(storageRoot.resolve(name), name);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return file;
+    }
+
+    private BlobStore.StoredBlob store(String content) throws Exception {
+        BlobStore.StoredBlob blob = blobStore.store(new MockMultipartFile("file", "file.txt", "text/plain",
+                content.getBytes(StandardCharsets.UTF_8)));
+        Files.setLastModifiedTime(blob.path(), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        return blob;
+    }
+
+    private StorageGcStatus collect(boolean dryRun) throws InterruptedException {
+        assertTrue(garbageCollector.start(dryRun));
+        return awaitFinished();
+    }
+
+    private StorageGcStatus awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (garbageCollector.status().isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        StorageGcStatus status = garbageCollector.status();
+        assertFalse(status.isRunning());
+        return status;
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.todolist;
+
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.model.File;
+import com.example.todolist.model.StorageMigrationStatus;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.StorageMigrationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class StorageMigrationTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private FileRepository fileRepository;
+
+    @Mock
+    private FileSystemStorage fileSystemStorage;
+
+    private BlobStore blobStore;
+
+    private StorageMigrationService migrationService;
+
+    private Path legacyDirectory;
+
+    // Таблица файлов; репозиторий возвращает копии записей, как при чтении из базы
+    private final List<File> table = new ArrayList<>();
+
+    private long nextId = 1;
+
+    // Действия других запросов, выполняемые во время переноса
+    private Consumer<List<File>> onPageRead = page -> {
+    };
+    private Runnable onRelocate = () -> {
+    };
+
+    @BeforeEach
+    void SetUp() throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        storageProperties.setMigrationBatchSize(2);
+        storageProperties.setMigrationBatchPause(Duration.ZERO);
+        blobStore = new BlobStore(storageProperties);
+        migrationService = new StorageMigrationService(fileRepository, blobStore, fileSystemStorage,
+                storageProperties);
+        legacyDirectory = Files.createDirectories(storageRoot.resolve("legacy"));
+        stubRepository();
+    }
+
+    @Test
+    public void whenMigrated_thenReadInBatchesAfterLastId() throws Exception {
+        List<Path> sources = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Path source = legacyFile("file-" + i + ".txt", "content " + i);
+            sources.add(source);
+            addRow(source);
+        }
+
+        StorageMigrationStatus status = migrate();
+
+        assertEquals(5, status.getScanned());
+        assertEquals(5, status.getMigrated());
+        assertEquals(0, status.getFailed());
+        assertEquals(5L, status.getLastFileId());
+        for (File row : table) {
+            assertTrue(blobStore.isInLayout(row.getFilePath(), row.getContentHash()));
+            assertTrue(Files.exists(Paths.get(row.getFilePath())));
+        }
+        sources.forEach(source -> assertFalse(Files.exists(source)));
+
+        // Каждая следующая страница читается после последнего идентификатора предыдущей
+        ArgumentCaptor<Long> afterIds = ArgumentCaptor.forClass(Long.class);
+        verify(fileRepository, atLeastOnce()).findByIdGreaterThanOrderByIdAsc(afterIds.capture(), any());
+        assertEquals(List.of(0L, 2L, 4L), afterIds.getAllValues());
+    }
+
+    @Test
+    public void whenRunAgain_thenMigratedFilesKept() throws Exception {
+        addRow(legacyFile("report.txt", "report"));
+        File interrupted = addRow(legacyFile("notes.txt", "notes"));
+        // Прерванный перенос: содержимое уже в хранилище, а запись указывает на удаленный старый файл
+        BlobStore.StoredBlob blob = blobStore.hash(Paths.get(interrupted.getFilePath()));
+        blobStore.adopt(Paths.get(interrupted.getFilePath()), blob.hash());
+        Files.delete(Paths.get(interrupted.getFilePath()));
+        interrupted.setContentHash(blob.hash());
+
+        StorageMigrationStatus first = migrate();
+        List<String> paths = table.stream().map(File::getFilePath).toList();
+        StorageMigrationStatus second = migrate();
+
+        assertEquals(2, first.getMigrated());
+        assertEquals(0, first.getMissing());
+        assertEquals(2, second.getScanned());
+        assertEquals(0, second.getMigrated());
+        assertEquals(paths, table.stream().map(File::getFilePath).toList());
+        table.forEach(row -> assertTrue(Files.exists(Paths.get(row.getFilePath()))));
+    }
+
+    @Test
+    public void whenPathChangedWhileBatchRuns_thenRowSkipped() throws Exception {
+        Path shared = legacyFile("shared.txt", "shared");
+        addRow(shared);
+        File sameFile = addRow(shared);
+        File replaced = addRow(legacyFile("old.txt", "old"));
+        Path replacement = legacyFile("new.txt", "new");
+        // Путь третьей записи меняется после того, как ее страница прочитана
+        onPageRead = page -> {
+            if (page.stream().anyMatch(row -> row.getId().equals(replaced.getId()))) {
+                replaced.setFilePath(replacement.toString());
+            }
+        };
+
+        StorageMigrationStatus status = migrate();
+
+        // Вторая запись перенесена вместе с первой и пропущена по устаревшему пути, третья не тронута
+        assertEquals(2, status.getMigrated());
+        assertEquals(0, status.getMissing());
+        assertEquals(0, status.getFailed());
+        assertTrue(blobStore.isInLayout(sameFile.getFilePath(), sameFile.getContentHash()));
+        assertEquals(replacement.toString(), replaced.getFilePath());
+        assertTrue(Files.exists(replacement));
+        assertFalse(Files.exists(shared));
+    }
+
+    @Test
+    public void whenRowAddedDuringRelocate_thenAlsoRelocated() throws Exception {
+        Path source = legacyFile("page-1.png", "rendered page");
+        addRow(source);
+        // Изображение страницы копируется для другого PDF с тем же содержимым по старому пути
+        AtomicBoolean copied = new AtomicBoolean();
+        onRelocate = () -> {
+            if (copied.compareAndSet(false, true)) {
+                addRow(source);
+            }
+        };
+
+        StorageMigrationStatus status = migrate();
+
+        assertEquals(2, status.getMigrated());
+        for (File row : table) {
+            assertTrue(blobStore.isInLayout(row.getFilePath(), row.getContentHash()));
+        }
+        assertFalse(Files.exists(source));
+    }
+
+    private void stubRepository() {
+        when(fileRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            List<File> page = page(invocation.getArgument(0), invocation.getArgument(1));
+            onPageRead.accept(page);
+            return page;
+        });
+        when(fileRepository.findById(anyLong())).thenAnswer(invocation -> table.stream()
+                .filter(row -> row.getId().equals(invocation.getArgument(0)))
+                .findFirst()
+                .map(StorageMigrationTest::copy));
+        when(fileRepository.findByFilePath(anyString())).thenAnswer(invocation -> table.stream()
+                .filter(row -> row.getFilePath().equals(invocation.getArgument(0)))
+                .map(StorageMigrationTest::copy)
+                .toList());
+        when(fileRepository.relocate(anyString(), anyString(), anyString(), any())).thenAnswer(invocation -> {
+            int updated = relocate(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2),
+                    invocation.getArgument(3));
+            onRelocate.run();
+            return updated;
+        });
+    }
+
+    private List<File> page(long afterId, Pageable pageable) {
+        return table.stream()
+                .filter(row -> row.getId() > afterId)
+                .sorted(Comparator.comparing(File::getId))
+                .limit(pageable.getPageSize())
+                .map(StorageMigrationTest::copy)
+                .toList();
+    }
+
+    private int relocate(String oldPath, String newPath, String hash, Long size) {
+        int updated = 0;
+        for (File row : table) {
+            if (row.getFilePath().equals(oldPath)) {
+                row.setFilePath(newPath);
+                row.setContentHash(hash);
+                row.setSize(size);
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    private File addRow(Path path) {
+        File row = new File();
+        row.setId(nextId++);
+        row.setFilePath(path.toString());
+        row.setFileType("text/plain");
+        row.setFileName(path.getFileName().toString());
+        table.add(row);
+        return row;
+    }
+
+    private static File copy(File row) {
+        File copy = new File();
+        copy.setId(row.getId());
+        copy.setFilePath(row.getFilePath());
+        copy.setFileType(row.getFileType());
+        copy.setFileName(row.getFileName());
+        copy.setContentHash(row.getContentHash());
+        copy.setSize(row.getSize());
+        return copy;
+    }
+
+    private Path legacyFile(String name, String content) throws Exception {
+        return Files.writeString(legacyDirectory.resolve(name), content);
+    }
+
+    private StorageMigrationStatus migrate() throws InterruptedException {
+        assertTrue(migrationService.start());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (migrationService.status().isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        StorageMigrationStatus status = migrationService.status();
+        assertFalse(status.isRunning());
+        return status;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.todolist;
+
+import com.example.todolist.config.AsyncTimeoutInterceptor;
+import com.example.todolist.config.TaskPageProperties;
+import com.example.todolist.controller.APIController;
+import com.example.todolist.servicetask.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class StreamTimeoutTest {
+
+    // Общий таймаут асинхронных запросов
+    private static final long DEFAULT_TIMEOUT = 30_000L;
+
+    private APIController apiController;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @BeforeEach
+    void SetUp() {
+        TaskPageProperties pageProperties = new TaskPageProperties();
+        pageProperties.setStreamTimeout(Duration.ofMinutes(90));
+        apiController = new APIController(mock(ServiceTask.class), mock(FileSystemStorage.class),
+                mock(ServiceCategory.class), mock(ServiceTag.class), mock(PDFService.class),
+                mock(TaskEventBroadcaster.class), pageProperties, mock(TaskExecutor.class));
+
+        request = new MockHttpServletRequest("GET", "/api/tasks/stream");
+        request.setAsyncSupported(true);
+        response = new MockHttpServletResponse();
+    }
+
+    @Test
+    public void whenTasksStreamed_thenStreamTimeoutApplied() throws Exception {
+        apiController.streamTasksAsNdjson(request);
+        startAsync();
+
+        assertEquals(Duration.ofMinutes(90).toMillis(), request.getAsyncContext().getTimeout());
+    }
+
+    @Test
+    public void whenTasksStreamedAsArray_thenStreamTimeoutApplied() throws Exception {
+        apiController.streamTasksAsJsonArray(request);
+        startAsync();
+
+        assertEquals(Duration.ofMinutes(90).toMillis(), request.getAsyncContext().getTimeout());
+    }
+
+    @Test
+    public void whenTimeoutNotSet_thenDefaultTimeoutKept() throws Exception {
+        startAsync();
+
+        assertEquals(DEFAULT_TIMEOUT, request.getAsyncContext().getTimeout());
+    }
+
+    // Начинает асинхронную обработку так же, как Spring MVC для StreamingResponseBody
+    private void startAsync() throws Exception {
+        StandardServletAsyncWebRequest asyncWebRequest = new StandardServletAsyncWebRequest(request, response);
+        asyncWebRequest.setTimeout(DEFAULT_TIMEOUT);
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        asyncManager.setAsyncWebRequest(asyncWebRequest);
+        asyncManager.registerCallableInterceptor("timeout", new AsyncTimeoutInterceptor());
+        asyncManager.startCallableProcessing(() -> null);
+    }
+}
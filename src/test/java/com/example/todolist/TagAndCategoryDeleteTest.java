@@ -0,0 +1,157 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.TaskEventType;
+import com.example.todolist.repository.Repository;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.ServiceCategory;
+import com.example.todolist.servicetask.ServiceTag;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskCounterService;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import com.example.todolist.servicetask.TaskSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({ServiceTask.class, ServiceTag.class, ServiceCategory.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class TagAndCategoryDeleteTest {
+
+    @Autowired
+    private ServiceTask serviceTask;
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @MockBean
+    private TaskSearchIndex searchIndex;
+    @MockBean
+    private TaskCache taskCache;
+    @MockBean
+    private TaskCounterService counterService;
+    @MockBean
+    private TaskEventBroadcaster eventBroadcaster;
+    @MockBean
+    private FileSystemStorage fileSystemStorage;
+    @MockBean
+    private PdfConversionQueue conversionQueue;
+
+    private Category work;
+    private Category home;
+    private Tag urgent;
+    private Tag later;
+
+    @BeforeEach
+    void SetUp() {
+        work = persistCategory("Работа");
+        home = persistCategory("Дом");
+        urgent = persistTag("Срочно");
+        later = persistTag("Потом");
+    }
+
+    @Test
+    public void whenTagDeleted_thenOnlyItsTasksAccountedAsDeleted() {
+        Long first = persistTask(urgent, work);
+        Long second = persistTask(urgent, home);
+        Long kept = persistTask(later, work);
+        Long pdfId = persistFile(first);
+        entityManager.clear();
+
+        serviceTask.deleteTag(urgent.getId());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertFalse(repository.existsById(first));
+        assertFalse(repository.existsById(second));
+        assertTrue(repository.existsById(kept));
+
+        verify(conversionQueue).cancelForFiles(List.of(pdfId));
+        verify(fileSystemStorage).evictFiles(List.of(pdfId));
+        verify(counterService).taskDeleted(urgent.getId(), work.getId());
+        verify(counterService).taskDeleted(urgent.getId(), home.getId());
+        verify(counterService, never()).reconcile();
+        for (Long id : List.of(first, second)) {
+            verify(searchIndex).remove(id);
+            verify(taskCache).invalidate(id);
+            verify(eventBroadcaster).publish(TaskEventType.DELETED, id);
+        }
+        verify(searchIndex, never()).remove(kept);
+    }
+
+    @Test
+    public void whenCategoryDeleted_thenOnlyItsTasksAccountedAsDeleted() {
+        Long first = persistTask(urgent, home);
+        Long kept = persistTask(urgent, work);
+        entityManager.clear();
+
+        serviceTask.deleteCategory(home.getId());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertFalse(repository.existsById(first));
+        assertTrue(repository.existsById(kept));
+
+        verify(counterService).taskDeleted(urgent.getId(), home.getId());
+        verify(counterService, times(1)).taskDeleted(anyLong(), anyLong());
+        verify(searchIndex).remove(first);
+        verify(taskCache).invalidate(first);
+        verify(eventBroadcaster).publish(TaskEventType.DELETED, first);
+        verify(eventBroadcaster, times(1)).publish(any(), anyLong());
+    }
+
+    private Category persistCategory(String name) {
+        Category category = new Category();
+        category.setName(name);
+        return entityManager.persist(category);
+    }
+
+    private Tag persistTag(String name) {
+        Tag tag = new Tag();
+        tag.setName(name);
+        return entityManager.persist(tag);
+    }
+
+    private Long persistTask(Tag tag, Category category) {
+        Task task = new Task();
+        task.setTitle("Task");
+        task.setTag(tag);
+        task.setCategory(category);
+        entityManager.persist(task);
+        entityManager.flush();
+        return task.getId();
+    }
+
+    private Long persistFile(Long taskId) {
+        File pdf = new File();
+        pdf.setFilePath("ab/abcdef");
+        pdf.setFileType("application/pdf");
+        pdf.setTask(entityManager.find(Task.class, taskId));
+        entityManager.persist(pdf);
+        entityManager.flush();
+        return pdf.getId();
+    }
+}
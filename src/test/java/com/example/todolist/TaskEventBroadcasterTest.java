@@ -0,0 +1,205 @@
+package com.example.todolist;
+
+import com.example.todolist.config.TaskEventProperties;
+import com.example.todolist.model.TaskEventType;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskEventBroadcasterTest {
+
+    private static final Pattern ID = Pattern.compile("id:(\\S+)");
+    private static final Pattern NAME = Pattern.compile("event:(\\S+)");
+
+    private static final long SEND_TIMEOUT_MS = 100;
+
+    private TaskEventBroadcaster broadcaster;
+
+    private final Deque<RecordingEmitter> emitters = new ArrayDeque<>();
+
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @AfterEach
+    void TearDown() {
+        unblock.countDown();
+        broadcaster.shutdown();
+    }
+
+    @Test
+    public void whenReconnectWithLastEventId_thenMissedEventsReplayed() throws InterruptedException {
+        createBroadcaster(16, 16);
+        RecordingEmitter first = subscribe(null, new RecordingEmitter(false));
+        broadcaster.publish(TaskEventType.CREATED, 1L);
+        broadcaster.publish(TaskEventType.UPDATED, 1L);
+        broadcaster.publish(TaskEventType.DELETED, 1L);
+        List<String> received = first.await(3);
+
+        RecordingEmitter second = subscribe(id(received.get(0)), new RecordingEmitter(false));
+        List<String> replayed = second.await(2);
+
+        assertEquals(List.of(id(received.get(1)), id(received.get(2))), replayed.stream().map(this::id).toList());
+        assertEquals(List.of("updated", "deleted"), replayed.stream().map(this::name).toList());
+    }
+
+    @Test
+    public void whenMissedEventsLeftBuffer_thenResetSent() throws InterruptedException {
+        createBroadcaster(2, 16);
+        RecordingEmitter first = subscribe(null, new RecordingEmitter(false));
+        for (long taskId = 1; taskId <= 4; taskId++) {
+            broadcaster.publish(TaskEventType.UPDATED, taskId);
+        }
+        List<String> received = first.await(4);
+
+        RecordingEmitter stale = subscribe(id(received.get(0)), new RecordingEmitter(false));
+        RecordingEmitter foreign = subscribe("previous-run-3", new RecordingEmitter(false));
+
+        assertEquals("reset", name(stale.await(1).get(0)));
+        assertEquals(id(received.get(3)), id(stale.await(1).get(0)));
+        assertEquals("reset", name(foreign.await(1).get(0)));
+    }
+
+    @Test
+    public void whenSubscriberStalls_thenOthersStillReceiveAndStalledDisconnected() throws InterruptedException {
+        createBroadcaster(16, 4);
+        RecordingEmitter stalled = subscribe(null, new RecordingEmitter(true));
+        RecordingEmitter healthy = subscribe(null, new RecordingEmitter(false));
+
+        // Первое событие зависает в отправке, следующие четыре заполняют очередь, шестое ее переполняет
+        for (int taskId = 1; taskId <= 6; taskId++) {
+            broadcaster.publish(TaskEventType.UPDATED, (long) taskId);
+            assertEquals(taskId, healthy.await(taskId).size());
+        }
+
+        assertEquals(1, broadcaster.subscriberCount());
+        unblock.countDown();
+        assertTrue(stalled.awaitCompletion());
+    }
+
+    @Test
+    public void whenManySubscribersStall_thenHealthySubscriberStillReceives() throws InterruptedException {
+        createBroadcaster(16, 4);
+        // Зависших подписчиков больше, чем было потоков в прежнем пуле отправки
+        for (int i = 0; i < 16; i++) {
+            subscribe(null, new RecordingEmitter(true));
+        }
+        RecordingEmitter healthy = subscribe(null, new RecordingEmitter(false));
+
+        broadcaster.publish(TaskEventType.CREATED, 1L);
+        broadcaster.publish(TaskEventType.UPDATED, 1L);
+
+        assertEquals(2, healthy.await(2).size());
+        unblock.countDown();
+    }
+
+    @Test
+    public void whenSendExceedsTimeout_thenSubscriberDroppedOnHeartbeat() throws InterruptedException {
+        createBroadcaster(16, 4);
+        RecordingEmitter stalled = subscribe(null, new RecordingEmitter(true));
+        RecordingEmitter healthy = subscribe(null, new RecordingEmitter(false));
+
+        broadcaster.publish(TaskEventType.UPDATED, 1L);
+        healthy.await(1);
+        Thread.sleep(SEND_TIMEOUT_MS * 3);
+        broadcaster.heartbeat();
+
+        assertEquals(1, broadcaster.subscriberCount());
+        unblock.countDown();
+        assertTrue(stalled.awaitCompletion());
+    }
+
+    private void createBroadcaster(int bufferSize, int queueSize) {
+        TaskEventProperties properties = new TaskEventProperties();
+        properties.setBufferSize(bufferSize);
+        properties.setSubscriberQueueSize(queueSize);
+        properties.setSendTimeout(Duration.ofMillis(SEND_TIMEOUT_MS));
+        broadcaster = new TaskEventBroadcaster(properties) {
+            @Override
+            protected SseEmitter newEmitter(long timeout) {
+                return emitters.poll();
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe(String lastEventId, RecordingEmitter emitter) {
+        emitters.add(emitter);
+        assertSame(emitter, broadcaster.subscribe(lastEventId));
+        return emitter;
+    }
+
+    private String id(String event) {
+        Matcher matcher = ID.matcher(event);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private String name(String event) {
+        Matcher matcher = NAME.matcher(event);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    // Эмиттер без HTTP-соединения: запоминает отправленные события; зависший эмиттер не возвращается из отправки,
+    // как при клиенте, который не читает соединение
+    private class RecordingEmitter extends SseEmitter {
+
+        private final boolean blocking;
+
+        private final List<String> events = new ArrayList<>();
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter(boolean blocking) {
+            this.blocking = blocking;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (blocking) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(exception);
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            synchronized (events) {
+                events.add(text.toString());
+                events.notifyAll();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        List<String> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5_000;
+            synchronized (events) {
+                while (events.size() < count && System.currentTimeMillis() < deadline) {
+                    events.wait(100);
+                }
+                assertEquals(count, events.size());
+                return List.copyOf(events);
+            }
+        }
+
+        boolean awaitCompletion() throws InterruptedException {
+            return completed.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.Tag;
+import com.example.todolist.repository.Repository;
+import com.example.todolist.repository.TaskListVersion;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+public class TaskListVersionTest {
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    public void whenTagAddedOrRenamed_thenListVersionChanges() throws InterruptedException {
+        Tag tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persistAndFlush(tag);
+        TaskListVersion created = repository.findListVersion();
+        assertEquals(1, created.getTagCount());
+        assertNotNull(created.getTagsModified());
+
+        Thread.sleep(5);
+        tag.setName("Очень срочно");
+        entityManager.flush();
+        TaskListVersion renamed = repository.findListVersion();
+        assertTrue(renamed.getTagsModified().after(created.getTagsModified()));
+    }
+
+    @Test
+    public void whenCategoryAdded_thenListVersionChanges() {
+        assertEquals(0, repository.findListVersion().getCategoryCount());
+
+        Category category = new Category();
+        category.setName("Работа");
+        entityManager.persistAndFlush(category);
+
+        TaskListVersion version = repository.findListVersion();
+        assertEquals(1, version.getCategoryCount());
+        assertNotNull(version.getCategoriesModified());
+        assertEquals(0, version.getCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.FileRepository;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.PdfConversionQueue;
+import com.example.todolist.servicetask.ServiceCategory;
+import com.example.todolist.servicetask.ServiceTag;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.TaskCache;
+import com.example.todolist.servicetask.TaskCounterService;
+import com.example.todolist.servicetask.TaskEventBroadcaster;
+import com.example.todolist.servicetask.TaskSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(ServiceTask.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+public class TaskVersionTest {
+
+    @Autowired
+    private ServiceTask serviceTask;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    // Зависимости ServiceTask, которые сохранение задачи не использует
+    @MockBean
+    private TaskSearchIndex searchIndex;
+    @MockBean
+    private TaskCache taskCache;
+    @MockBean
+    private ServiceCategory catService;
+    @MockBean
+    private ServiceTag tagService;
+    @MockBean
+    private TaskCounterService counterService;
+    @MockBean
+    private TaskEventBroadcaster eventBroadcaster;
+    @MockBean
+    private FileSystemStorage fileSystemStorage;
+    @MockBean
+    private PdfConversionQueue conversionQueue;
+
+    @Test
+    public void whenStaleTaskSavedAfterFilesChanged_thenVersionStillGrows() {
+        Long id = persistTask();
+        Task stale = entityManager.find(Task.class, id);
+        entityManager.clear();
+        assertEquals(1L, stale.getVersion());
+
+        // Файл добавлен к задаче, пока клиент редактирует устаревший экземпляр
+        fileRepository.touchTask(id, new Date());
+        stale.setTitle("Edited");
+        serviceTask.saveTask(stale);
+        entityManager.flush();
+        entityManager.clear();
+
+        Task saved = entityManager.find(Task.class, id);
+        assertEquals("Edited", saved.getTitle());
+        assertEquals(3L, saved.getVersion());
+    }
+
+    private Long persistTask() {
+        Category category = new Category();
+        category.setName("Работа");
+        entityManager.persist(category);
+
+        Tag tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persist(tag);
+
+        Task task = new Task();
+        task.setTitle("Task");
+        task.setCategory(category);
+        task.setTag(tag);
+        entityManager.persist(task);
+        entityManager.flush();
+        entityManager.clear();
+        return task.getId();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.File;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.Repository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+public class TaskViewQueryCountTest {
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    public void whenTaskCountGrows_thenViewStatementCountStaysConstant() {
+        long statementsForFewTasks = countViewStatements(3);
+        long statementsForManyTasks = countViewStatements(30);
+
+        assertEquals(statementsForFewTasks, statementsForManyTasks);
+    }
+
+    private long countViewStatements(int taskCount) {
+        Category category = new Category();
+        category.setName("Работа");
+        entityManager.persist(category);
+
+        Tag tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persist(tag);
+
+        for (int i = 0; i < taskCount; i++) {
+            Task task = new Task();
+            task.setTitle("Task " + i);
+            task.setCategory(category);
+            task.setTag(tag);
+            entityManager.persist(task);
+
+            File file = new File();
+            file.setFilePath("/uploads/file-" + i + ".txt");
+            file.setFileType("text/plain");
+            file.setTask(task);
+            entityManager.persist(file);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Обращение к тем же ассоциациям, что и шаблон taskpage.html
+        List<Task> tasks = repository.findAllForView();
+        for (Task task : tasks) {
+            task.getFiles().forEach(File::getFilePath);
+            task.getCategory().getName();
+            task.getTag().getName();
+        }
+
+        long statements = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        return statements;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.todolist;
+
+import com.example.todolist.model.Category;
+import com.example.todolist.model.Tag;
+import com.example.todolist.model.Task;
+import com.example.todolist.repository.Repository;
+import com.example.todolist.repository.TaskSpecifications;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+public class TitlePrefixFilterTest {
+
+    @Autowired
+    private Repository repository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @BeforeEach
+    void SetUp() {
+        Category category = new Category();
+        category.setName("Работа");
+        entityManager.persist(category);
+
+        Tag tag = new Tag();
+        tag.setName("Срочно");
+        entityManager.persist(tag);
+
+        for (String title : List.of("100% done", "1000 items", "a_b", "axb", "back\\slash", "backslash")) {
+            Task task = new Task();
+            task.setTitle(title);
+            task.setCategory(category);
+            task.setTag(tag);
+            entityManager.persist(task);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    public void whenPrefixContainsPercent_thenItMatchesLiterally() {
+        assertEquals(List.of("100% done"), titlesStartingWith("100%"));
+    }
+
+    @Test
+    public void whenPrefixContainsUnderscore_thenItMatchesLiterally() {
+        assertEquals(List.of("a_b"), titlesStartingWith("a_"));
+    }
+
+    @Test
+    public void whenPrefixContainsBackslash_thenItMatchesLiterally() {
+        assertEquals(List.of("back\\slash"), titlesStartingWith("back\\"));
+    }
+
+    private List<String> titlesStartingWith(String prefix) {
+        return repository.findAll(TaskSpecifications.titleStartsWith(prefix)).stream()
+                .map(Task::getTitle)
+                .toList();
+    }
+}
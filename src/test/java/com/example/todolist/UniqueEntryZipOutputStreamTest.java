@@ -0,0 +1,39 @@
+package com.example.todolist;
+
+import com.example.todolist.servicetask.UniqueEntryZipOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UniqueEntryZipOutputStreamTest {
+
+    @Test
+    public void whenEntryNamesRepeat_thenSuffixAdded() throws IOException {
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zippedOut = new UniqueEntryZipOutputStream(zipBytes)) {
+            for (String name : List.of("report.txt", "report.txt", "report (1).txt", "report.txt", "README", "README")) {
+                zippedOut.putNextEntry(new ZipEntry(name));
+                zippedOut.write(name.getBytes());
+                zippedOut.closeEntry();
+            }
+        }
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zipBytes.toByteArray()))) {
+            for (ZipEntry entry = zis.getNextEntry(); entry != null; entry = zis.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("report.txt", "report (1).txt", "report (1) (1).txt", "report (2).txt",
+                "README", "README (1)"), names);
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.todolist;
 
 import com.example.todolist.controller.APIController;
+import com.example.todolist.exception.FileStorageException;
 import com.example.todolist.model.Category;
 import com.example.todolist.model.Tag;
 import com.example.todolist.model.Task;
@@ -13,14 +14,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -38,6 +44,8 @@ public class UpdateTaskTest {
     private ServiceCategory catService;
     @Mock
     private ServiceTag tagService;
+    @Spy
+    private SyncTaskExecutor attachmentExecutor = new SyncTaskExecutor();
 
     @InjectMocks
     private APIController apiController;
@@ -62,8 +70,13 @@ public class UpdateTaskTest {
 
         lenient().when(catService.findTaskById(anyLong())).thenReturn(category);
         lenient().when(tagService.findTaskById(anyLong())).thenReturn(tag);
-        lenient().when(serviceTask.findTaskById(existingTask.getId())).thenReturn(existingTask);
-        lenient().when(serviceTask.saveTask(any(Task.class))).thenReturn(existingTask);
+        lenient().when(serviceTask.findTaskForUpdate(existingTask.getId())).thenReturn(existingTask);
+        lenient().when(fileSystemStorage.storeUpload(any(MultipartFile.class))).thenAnswer(invocation -> {
+            MultipartFile file = invocation.getArgument(0);
+            return new FileSystemStorage.StoredUpload(null, file.getOriginalFilename(), file.getContentType());
+        });
+        lenient().when(serviceTask.saveTaskWithFiles(any(Task.class), anyList()))
+                .thenAnswer(invocation -> new ServiceTask.TaskWithFiles(invocation.getArgument(0), List.of()));
     }
 
     @Test
@@ -81,14 +94,28 @@ public class UpdateTaskTest {
         assertEquals(tag, result.getTag());
 
         for (MultipartFile file : files) {
-            verify(fileSystemStorage, times(1)).saveFile(eq(file), any(Task.class));
+            verify(fileSystemStorage, times(1)).storeUpload(file);
         }
+        verify(serviceTask).saveTaskWithFiles(eq(existingTask), anyList());
+        verify(serviceTask, never()).findTaskById(anyLong());
+    }
+
+    @Test
+    public void whenFileSavingFails_thenTaskNotChanged() {
+        doThrow(new RuntimeException("File saving failed")).when(fileSystemStorage).storeUpload(any(MultipartFile.class));
+
+        FileStorageException exception = assertThrows(FileStorageException.class, () ->
+                apiController.updateTask(existingTask.getId(), "Updated Title", "Updated Description", 1L, 1L, files));
+
+        assertTrue(exception.getMessage().endsWith("(File saving failed)"));
+        assertEquals("Existing Task", existingTask.getTitle());
+        verify(serviceTask, never()).saveTaskWithFiles(any(Task.class), anyList());
     }
 
     @Test
     public void whenUpdateNonExistingTask_thenNotFound() {
         Long nonExistingId = 2L;
-        when(serviceTask.findTaskById(nonExistingId)).thenReturn(null);
+        when(serviceTask.findTaskForUpdate(nonExistingId)).thenReturn(null);
 
         ResponseEntity<Task> response = apiController.updateTask(nonExistingId, "Title", "Description", 1L, 1L, files);
 
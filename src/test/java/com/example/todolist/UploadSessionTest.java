@@ -0,0 +1,191 @@
+package com.example.todolist;
+
+import com.example.todolist.config.StorageProperties;
+import com.example.todolist.config.UploadSessionProperties;
+import com.example.todolist.exception.InvalidUploadException;
+import com.example.todolist.model.Task;
+import com.example.todolist.model.UploadChunk;
+import com.example.todolist.model.UploadSession;
+import com.example.todolist.model.UploadSessionInfo;
+import com.example.todolist.repository.UploadChunkRepository;
+import com.example.todolist.repository.UploadSessionRepository;
+import com.example.todolist.servicetask.BlobStore;
+import com.example.todolist.servicetask.FileSystemStorage;
+import com.example.todolist.servicetask.ServiceTask;
+import com.example.todolist.servicetask.UploadSessionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UploadSessionTest {
+
+    @TempDir
+    Path storageRoot;
+
+    @Mock
+    private UploadSessionRepository sessionRepository;
+
+    @Mock
+    private UploadChunkRepository chunkRepository;
+
+    @Mock
+    private FileSystemStorage fileSystemStorage;
+
+    @Mock
+    private ServiceTask serviceTask;
+
+    private UploadSessionService uploadService;
+
+    private UploadSession session;
+
+    @BeforeEach
+    void SetUp() throws Exception {
+        StorageProperties storageProperties = new StorageProperties();
+        storageProperties.setLocation(storageRoot.toString());
+        uploadService = new UploadSessionService(sessionRepository, chunkRepository, fileSystemStorage, serviceTask,
+                new UploadSessionProperties(), new BlobStore(storageProperties));
+
+        when(serviceTask.findTaskById(1L)).thenReturn(new Task(1L, "Clean house", "Description here"));
+        ArgumentCaptor<UploadSession> saved = ArgumentCaptor.forClass(UploadSession.class);
+        when(sessionRepository.save(saved.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        UploadSessionInfo info = uploadService.createSession(1L, "video.bin", null, 10L, 4);
+        session = saved.getValue();
+        assertEquals(3, info.getChunkCount());
+        lenient().when(sessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+    }
+
+    @Test
+    public void whenChunksUploadedOutOfOrder_thenWrittenAtTheirOffsets() throws Exception {
+        when(sessionRepository.startWrite(eq(session.getId()), any())).thenReturn(1);
+        when(chunkRepository.findBySessionIdAndChunkIndex(anyString(), anyInt())).thenReturn(Optional.empty());
+
+        uploadService.writeChunk(session.getId(), 8, sha256("89"), stream("89"));
+        uploadService.writeChunk(session.getId(), 0, sha256("0123"), stream("0123"));
+        uploadService.writeChunk(session.getId(), 4, sha256("4567"), stream("4567"));
+
+        verify(chunkRepository, times(3)).save(any(UploadChunk.class));
+        Path part = storageRoot.resolve("tmp").resolve("sessions").resolve(session.getId() + ".part");
+        assertEquals("0123456789", Files.readString(part));
+    }
+
+    @Test
+    public void whenChecksumDoesNotMatch_thenChunkRejected() {
+        when(sessionRepository.startWrite(eq(session.getId()), any())).thenReturn(1);
+        assertThrows(InvalidUploadException.class,
+                () -> uploadService.writeChunk(session.getId(), 0, sha256("0000"), stream("0123")));
+        verify(chunkRepository).deleteBySessionIdAndChunkIndex(session.getId(), 0);
+        verify(chunkRepository, never()).save(any(UploadChunk.class));
+    }
+
+    @Test
+    public void whenAcceptedChunkResentTruncated_thenChunkNoLongerReceived() throws Exception {
+        when(sessionRepository.startWrite(eq(session.getId()), any())).thenReturn(1);
+        // Репозиторий частей в памяти: проверяется, какие части остаются отмеченными принятыми
+        Map<Integer, UploadChunk> chunks = new TreeMap<>();
+        when(chunkRepository.findBySessionIdAndChunkIndex(anyString(), anyInt()))
+                .thenAnswer(invocation -> Optional.ofNullable(chunks.get(invocation.<Integer>getArgument(1))));
+        when(chunkRepository.save(any(UploadChunk.class))).thenAnswer(invocation -> {
+            UploadChunk chunk = invocation.getArgument(0);
+            chunks.put(chunk.getChunkIndex(), chunk);
+            return chunk;
+        });
+        when(chunkRepository.deleteBySessionIdAndChunkIndex(anyString(), anyInt()))
+                .thenAnswer(invocation -> chunks.remove(invocation.<Integer>getArgument(1)) == null ? 0 : 1);
+        when(chunkRepository.findBySessionIdOrderByChunkIndexAsc(session.getId()))
+                .thenAnswer(invocation -> List.copyOf(chunks.values()));
+
+        uploadService.writeChunk(session.getId(), 0, sha256("0123"), stream("0123"));
+        assertEquals(List.of(0), uploadService.getSession(session.getId()).getReceivedChunks());
+
+        assertThrows(InvalidUploadException.class,
+                () -> uploadService.writeChunk(session.getId(), 0, sha256("0123"), stream("01")));
+        assertEquals(List.of(), uploadService.getSession(session.getId()).getReceivedChunks());
+    }
+
+    @Test
+    public void whenOffsetNotAligned_thenChunkRejected() {
+        assertThrows(InvalidUploadException.class,
+                () -> uploadService.writeChunk(session.getId(), 3, sha256("3456"), stream("3456")));
+    }
+
+    @Test
+    public void whenSessionCommitting_thenChunkRejected() {
+        when(sessionRepository.startWrite(eq(session.getId()), any())).thenReturn(0);
+
+        assertThrows(InvalidUploadException.class,
+                () -> uploadService.writeChunk(session.getId(), 0, sha256("0123"), stream("0123")));
+        verify(chunkRepository, never()).deleteBySessionIdAndChunkIndex(anyString(), anyInt());
+        verify(sessionRepository, never()).finishWrite(anyString());
+    }
+
+    @Test
+    public void whenChunkFails_thenWriterReleased() {
+        when(sessionRepository.startWrite(eq(session.getId()), any())).thenReturn(1);
+
+        assertThrows(InvalidUploadException.class,
+                () -> uploadService.writeChunk(session.getId(), 0, sha256("0123"), stream("01")));
+        verify(sessionRepository).finishWrite(session.getId());
+    }
+
+    @Test
+    public void whenChunkInProgress_thenCommitRejected() {
+        when(sessionRepository.startCommit(eq(session.getId()), any())).thenReturn(0);
+
+        assertThrows(InvalidUploadException.class, () -> uploadService.commit(session.getId(), null));
+        verify(fileSystemStorage, never()).saveUploadedFile(any(), anyString(), anyString(), any());
+        verify(sessionRepository, never()).cancelCommit(anyString());
+    }
+
+    @Test
+    public void whenCommitFails_thenSessionAcceptsChunksAgain() {
+        when(sessionRepository.startCommit(eq(session.getId()), any())).thenReturn(1);
+        when(chunkRepository.findBySessionIdOrderByChunkIndexAsc(session.getId()))
+                .thenReturn(List.of(new UploadChunk(1L, session.getId(), 0, 4, "checksum")));
+
+        assertThrows(InvalidUploadException.class, () -> uploadService.commit(session.getId(), null));
+        verify(sessionRepository).cancelCommit(session.getId());
+        verify(sessionRepository, never()).delete(any(UploadSession.class));
+    }
+
+    @Test
+    public void whenSessionIdle_thenExpiredByLastActivity() {
+        when(sessionRepository.findByLastActivityAtBefore(any())).thenReturn(List.of(session));
+
+        uploadService.removeExpiredSessions();
+
+        verify(sessionRepository).delete(session);
+        assertFalse(Files.exists(storageRoot.resolve("tmp").resolve("sessions").resolve(session.getId() + ".part")));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(String content) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}